@@ -0,0 +1,154 @@
+package com.example.todo.config;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache kept in this JVM: each region is an LRU map with a maximum number of entries
+ * and a time to live, so a large task table cannot grow the heap without bound.
+ * <p>
+ * Regions are sized with {@code hibernate.cache.local.<region>.max_entries} and
+ * {@code hibernate.cache.local.<region>.ttl_seconds} (see application.properties); a region without settings gets
+ * {@value #DEFAULT_MAX_ENTRIES} entries and {@value #DEFAULT_TTL_SECONDS} seconds. The update-timestamps region is
+ * never bounded: dropping one of its entries could let the query cache return results older than a write.
+ * <p>
+ * Local only: with several application instances, each would need its own invalidation.
+ */
+public class LocalCacheRegionFactory extends RegionFactoryTemplate {
+  public static final String SETTINGS_PREFIX = "hibernate.cache.local.";
+  static final int DEFAULT_MAX_ENTRIES = 10_000;
+  static final long DEFAULT_TTL_SECONDS = 600;
+
+  private final Map<String, Object> settings = new HashMap<>();
+  private final Map<String, BoundedStorage> storageByRegion = new ConcurrentHashMap<>();
+
+  /** Number of entries currently held by a region; 0 for an unknown region. */
+  public int size(String regionName) {
+    BoundedStorage storage = storageByRegion.get(regionName);
+    return storage == null ? 0 : storage.size();
+  }
+
+  @Override
+  protected void prepareForUse(SessionFactoryOptions options, Map<String, Object> configValues) {
+    configValues.forEach((key, value) -> {
+      if (key.startsWith(SETTINGS_PREFIX) && value != null) {
+        settings.put(key, value);
+      }
+    });
+  }
+
+  @Override
+  protected void releaseFromUse() {
+    storageByRegion.values().forEach(BoundedStorage::evictData);
+    storageByRegion.clear();
+  }
+
+  @Override
+  protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                  DomainDataRegionBuildingContext buildingContext) {
+    return bounded(regionConfig.getRegionName());
+  }
+
+  @Override
+  protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+    return bounded(regionName);
+  }
+
+  @Override
+  protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+    // One entry per table, and none may expire
+    return storageByRegion.computeIfAbsent(regionName, name -> new BoundedStorage(Integer.MAX_VALUE, 0));
+  }
+
+  private BoundedStorage bounded(String regionName) {
+    return storageByRegion.computeIfAbsent(regionName, name -> new BoundedStorage(
+            setting(name, "max_entries", DEFAULT_MAX_ENTRIES),
+            TimeUnit.SECONDS.toNanos(setting(name, "ttl_seconds", DEFAULT_TTL_SECONDS))));
+  }
+
+  private int setting(String regionName, String name, int defaultValue) {
+    Object value = settings.get(SETTINGS_PREFIX + regionName + "." + name);
+    return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+  }
+
+  private long setting(String regionName, String name, long defaultValue) {
+    Object value = settings.get(SETTINGS_PREFIX + regionName + "." + name);
+    return value == null ? defaultValue : Long.parseLong(value.toString().trim());
+  }
+
+  /**
+   * An access-ordered map evicting its least recently used entry once full. Reads reorder the map, so every
+   * access takes the region's lock; regions are small and the work under the lock is a hash lookup.
+   */
+  private static final class BoundedStorage implements DomainDataStorageAccess {
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    private final long ttlNanos; // 0: entries never expire
+    private final Map<Object, Entry> entries;
+
+    BoundedStorage(int maxEntries, long ttlNanos) {
+      this.ttlNanos = ttlNanos;
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+          return size() > maxEntries;
+        }
+      };
+    }
+
+    @Override
+    public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (ttlNanos > 0 && System.nanoTime() - entry.expiresAt() > 0) {
+        entries.remove(key);
+        return null;
+      }
+      return entry.value();
+    }
+
+    @Override
+    public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+      entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return getFromCache(key, null) != null;
+    }
+
+    @Override
+    public synchronized void evictData() {
+      entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+      entries.remove(key);
+    }
+
+    @Override
+    public void release() {
+      evictData();
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+  }
+}
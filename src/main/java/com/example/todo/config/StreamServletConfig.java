@@ -0,0 +1,35 @@
+package com.example.todo.config;
+
+import com.example.todo.controller.TodoEventsServlet;
+import com.example.todo.controller.TodoStreamServlet;
+import com.example.todo.service.TodoChangeFeed;
+import com.example.todo.service.TodoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link TodoStreamServlet} and {@link TodoEventsServlet} next to the DispatcherServlet: their exact paths
+ * take precedence over the dispatcher's "/" mapping. Servlets of their own, because writing only when the output is
+ * ready needs the servlet API's {@code WriteListener}, which Spring MVC's return types do not expose.
+ */
+@Configuration
+public class StreamServletConfig {
+
+  @Bean
+  public ServletRegistrationBean<TodoStreamServlet> todoStreamServlet(TodoService todoService, ObjectMapper objectMapper) {
+    ServletRegistrationBean<TodoStreamServlet> registration =
+            new ServletRegistrationBean<>(new TodoStreamServlet(todoService, objectMapper), TodoStreamServlet.PATH);
+    registration.setAsyncSupported(true);
+    return registration;
+  }
+
+  @Bean
+  public ServletRegistrationBean<TodoEventsServlet> todoEventsServlet(TodoChangeFeed changeFeed) {
+    ServletRegistrationBean<TodoEventsServlet> registration =
+            new ServletRegistrationBean<>(new TodoEventsServlet(changeFeed), TodoEventsServlet.PATH);
+    registration.setAsyncSupported(true);
+    return registration;
+  }
+}
@@ -0,0 +1,56 @@
+package com.example.todo.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs Tomcat request handling, {@code @Async} methods and async MVC requests on virtual threads
+ * ({@code todo.threads.mode=virtual}, Java 21 or later). A request blocked on JDBC then parks its virtual thread
+ * instead of holding one of Tomcat's platform threads; how many requests run at once is bounded by
+ * {@code server.tomcat.max-connections} and how many use the database by the connection pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.threads.mode", havingValue = "virtual")
+public class VirtualThreadConfig {
+
+  private final ExecutorService virtualThreads;
+
+  public VirtualThreadConfig() {
+    // Looked up reflectively: the application is compiled for Java 17
+    try {
+      virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("todo.threads.mode=virtual needs Java 21 or later, not " + Runtime.version(), e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Virtual threads are not available on Java " + Runtime.version(), e);
+    }
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+    return protocolHandler -> protocolHandler.setExecutor(virtualThreads);
+  }
+
+  // Replaces Spring Boot's pooled executor under both of its names; async MVC requests look it up by the first
+  @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+          AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+  public AsyncTaskExecutor applicationTaskExecutor() {
+    return new TaskExecutorAdapter(virtualThreads);
+  }
+
+  // Tomcat does not shut down an executor it was given; it has stopped by the time beans are destroyed
+  @PreDestroy
+  void shutdown() {
+    virtualThreads.shutdown();
+  }
+}
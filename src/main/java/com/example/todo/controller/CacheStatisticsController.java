@@ -0,0 +1,48 @@
+package com.example.todo.controller;
+
+import com.example.todo.config.LocalCacheRegionFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit and miss counts of the Hibernate second-level and query caches, per region, since startup.
+ * Needs hibernate.generate_statistics; without it every count is 0.
+ */
+@RestController
+public class CacheStatisticsController {
+
+  public record RegionStatistics(String region, long hits, long misses, long puts, int entries) {
+  }
+
+  public record CacheStatistics(boolean enabled, List<RegionStatistics> regions,
+                                long queryCacheHits, long queryCacheMisses, long queryCachePuts) {
+  }
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @GetMapping("/admin/cache")
+  public CacheStatistics cacheStatistics() {
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    Statistics statistics = sessionFactory.getStatistics();
+    LocalCacheRegionFactory regionFactory = sessionFactory.getCache().getRegionFactory() instanceof LocalCacheRegionFactory local
+            ? local : null;
+    List<RegionStatistics> regions = Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted()
+            .map(region -> {
+              CacheRegionStatistics counts = statistics.getCacheRegionStatistics(region);
+              return new RegionStatistics(region, counts.getHitCount(), counts.getMissCount(), counts.getPutCount(),
+                      regionFactory == null ? 0 : regionFactory.size(region));
+            })
+            .toList();
+    return new CacheStatistics(statistics.isStatisticsEnabled(), regions, statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount());
+  }
+}
@@ -0,0 +1,201 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.model.TodoView;
+import com.example.todo.model.TodoViewPage;
+import com.example.todo.service.TodoBatchService;
+import com.example.todo.service.TodoOperation;
+import com.example.todo.service.TodoOperationResult;
+import com.example.todo.service.TodoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The task list as JSON, with the filters, sorts and paging of the index page, plus create, update, complete and
+ * delete, one at a time or many in one batch. GET responses carry a strong ETag
+ * ({@link TodoService#getEntityTag}); a request whose If-None-Match still matches gets 304 Not Modified before
+ * anything is read or serialized.
+ */
+@RestController
+@RequestMapping("/api/todos")
+public class TodoApiController {
+
+  /** A task with its subtasks, in sibling order. {@code parentId} is null for a top-level task. */
+  public record TodoResource(long id, String title, boolean completed, LocalDate dueDate, Priority priority,
+                             Long parentId, List<TodoResource> subTasks) {
+  }
+
+  /** One page of top-level tasks; {@code nextCursor} is null on the last page. */
+  public record TodoListResource(List<TodoResource> todos, String nextCursor) {
+  }
+
+  /** Body of POST and PUT. {@code parentId} is only read by POST; null creates a top-level task. */
+  public record TodoRequest(String title, LocalDate dueDate, Priority priority, Long parentId) {
+  }
+
+  /** Body of POST /batch. */
+  public record TodoBatchRequest(List<TodoOperation> operations) {
+  }
+
+  /** One result per operation, in the order of the request. */
+  public record TodoBatchResource(List<TodoOperationResult> results) {
+  }
+
+  @Autowired
+  private TodoService todoService;
+
+  @Autowired
+  private TodoBatchService todoBatchService;
+
+  @GetMapping
+  public ResponseEntity<TodoListResource> listTodos(
+          @RequestParam(required = false, defaultValue = "ALL") String filterByStatus,
+          @RequestParam(required = false) Priority filterByPriority,
+          @RequestParam(required = false, defaultValue = "ALL") String filterByDueDate,
+          @RequestParam(required = false) String searchTerm,
+          @RequestParam(required = false) String sortBy, // Default: relevance when searching, manual order otherwise
+          @RequestParam(required = false, defaultValue = "ASC") String sortDir,
+          @RequestParam(required = false) String cursor,
+          @RequestParam(required = false, defaultValue = "" + TodoService.DEFAULT_PAGE_SIZE) int size,
+          WebRequest request
+  ) {
+    String tag = todoService.getEntityTag(filterByDueDate);
+    if (request.checkNotModified(tag)) {
+      return null; // 304, with the ETag
+    }
+    if (sortBy == null || sortBy.isBlank()) {
+      sortBy = searchTerm != null && !searchTerm.isBlank() ? TodoService.RELEVANCE : "displayOrder";
+    }
+    TodoViewPage page;
+    try {
+      page = todoService.getTodoViewPage(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir, cursor, size);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+    List<TodoResource> todos = page.getRoots().stream().map(root -> resourceOf(root, page::childrenOf)).toList();
+    return revalidated(tag, new TodoListResource(todos, page.getNextCursor()));
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<TodoResource> getTodo(@PathVariable long id, WebRequest request) {
+    String tag = todoService.getEntityTag(null); // Any write can change the task or its subtree
+    if (request.checkNotModified(tag)) {
+      return null;
+    }
+    Todo todo = todoService.findTodoById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No task " + id));
+    Map<Long, List<TodoView>> childrenByParentId = new HashMap<>();
+    for (Todo descendant : todoService.findDescendants(id)) { // Shallowest first, in sibling order
+      TodoView view = viewOf(descendant);
+      childrenByParentId.computeIfAbsent(view.parentId(), k -> new ArrayList<>()).add(view);
+    }
+    return revalidated(tag, resourceOf(viewOf(todo),
+            parentId -> childrenByParentId.getOrDefault(parentId, Collections.emptyList())));
+  }
+
+  @PostMapping
+  public ResponseEntity<TodoResource> createTodo(@RequestBody TodoRequest body) {
+    String title = requireTitle(body);
+    Todo created;
+    if (body.parentId() == null) {
+      created = todoService.addTodo(title, body.dueDate(), body.priority());
+    } else {
+      created = todoService.addSubTask(body.parentId(), title, body.dueDate(), body.priority())
+              .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "No parent task " + body.parentId()));
+    }
+    return ResponseEntity.created(URI.create("/api/todos/" + created.getId()))
+            .body(resourceOf(viewOf(created), parentId -> Collections.emptyList()));
+  }
+
+  // Replaces title and due date; the priority is kept when the body has none
+  @PutMapping("/{id}")
+  public TodoResource updateTodo(@PathVariable long id, @RequestBody TodoRequest body) {
+    Todo updated = todoService.updateTodo(id, requireTitle(body), body.dueDate(), body.priority())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No task " + id));
+    return resourceOf(viewOf(updated), parentId -> Collections.emptyList());
+  }
+
+  @PostMapping("/{id}/complete")
+  public ResponseEntity<Void> completeTodo(@PathVariable long id,
+                                           @RequestParam(required = false, defaultValue = "false") boolean subtree) {
+    if (todoService.findTodoById(id).isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    if (subtree) {
+      todoService.markSubtreeCompleted(id);
+    } else {
+      todoService.markCompleted(id);
+    }
+    return ResponseEntity.noContent().build();
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> deleteTodo(@PathVariable long id) {
+    todoService.deleteTodo(id); // With its subtasks; deleting a missing task is not an error
+    return ResponseEntity.noContent().build();
+  }
+
+  // All in one transaction; a failed operation is reported in its result and does not stop the others
+  @PostMapping("/batch")
+  public TodoBatchResource applyBatch(@RequestBody TodoBatchRequest body) {
+    if (body == null || body.operations() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing operations");
+    }
+    if (body.operations().size() > TodoBatchService.MAX_OPERATIONS) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+              "At most " + TodoBatchService.MAX_OPERATIONS + " operations per batch");
+    }
+    return new TodoBatchResource(todoBatchService.apply(body.operations()));
+  }
+
+  // no-cache rather than the no-store Spring Security sets by default, so that clients keep the body and revalidate
+  private static <T> ResponseEntity<T> revalidated(String tag, T body) {
+    return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(tag).body(body);
+  }
+
+  private static String requireTitle(TodoRequest body) {
+    if (body == null || body.title() == null || body.title().isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing title");
+    }
+    return body.title();
+  }
+
+  private static TodoView viewOf(Todo todo) {
+    Long parentId = Optional.ofNullable(todo.getParent()).map(Todo::getId).orElse(null); // Does not load the parent
+    return new TodoView(todo.getId(), todo.getTitle(), todo.isCompleted(), todo.getDueDate(), todo.getPriority(),
+            parentId, null);
+  }
+
+  // Also used by TodoStreamServlet
+  static TodoResource resourceOf(TodoView view, Function<Long, List<TodoView>> childrenOf) {
+    List<TodoResource> subTasks = childrenOf.apply(view.id()).stream()
+            .map(child -> resourceOf(child, childrenOf))
+            .toList();
+    return new TodoResource(view.id(), view.title(), view.completed(), view.dueDate(), view.priority(),
+            view.parentId(), subTasks);
+  }
+}
@@ -2,18 +2,29 @@ package com.example.todo.controller;
 
 import com.example.todo.model.Priority;
 import com.example.todo.model.Todo;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.model.TodoViewPage;
+import com.example.todo.service.TodoCalendar;
+import com.example.todo.service.TodoChangeFeed;
 import com.example.todo.service.TodoService;
+import com.example.todo.service.TodoWriteBehind;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 
 import java.time.LocalDate;
 import java.util.List; // Added for ReorderRequestPayload
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 public class TodoController {
@@ -40,20 +51,93 @@ public class TodoController {
         }
     }
 
+    // Payload for moving a single task: its new parent and the siblings it was dropped between
+    public static class RepositionRequestPayload {
+        private Long taskId;
+        private Long parentId; // Can be null for top-level tasks
+        private Long previousTaskId; // Null when dropped at the start of the list
+        private Long nextTaskId; // Null when dropped at the end of the list
+
+        public Long getTaskId() {
+            return taskId;
+        }
+
+        public void setTaskId(Long taskId) {
+            this.taskId = taskId;
+        }
+
+        public Long getParentId() {
+            return parentId;
+        }
+
+        public void setParentId(Long parentId) {
+            this.parentId = parentId;
+        }
+
+        public Long getPreviousTaskId() {
+            return previousTaskId;
+        }
+
+        public void setPreviousTaskId(Long previousTaskId) {
+            this.previousTaskId = previousTaskId;
+        }
+
+        public Long getNextTaskId() {
+            return nextTaskId;
+        }
+
+        public void setNextTaskId(Long nextTaskId) {
+            this.nextTaskId = nextTaskId;
+        }
+    }
+
+  // Set by the in-place forms of index.html, as by htmx: such posts get task-update.html instead of a redirect
+  static final String FRAGMENT_REQUEST_HEADER = "HX-Request";
+  // Seconds a client is asked to wait before posting again when the write-behind queue is full
+  static final int WRITE_BEHIND_RETRY_AFTER_SECONDS = 1;
+
   @Autowired
   private TodoService todoService;
 
+  // Adds, completions and edits from the forms; waited for, so the page rendered next shows them
+  @Autowired
+  private TodoWriteBehind todoWriteBehind;
+
+  @Autowired
+  private TodoCalendar calendar;
+
+  @Autowired
+  private TodoChangeFeed changeFeed;
+
   @GetMapping("/")
   public String index(
           @RequestParam(required = false, defaultValue = "ALL") String filterByStatus,
           @RequestParam(required = false) Priority filterByPriority,
           @RequestParam(required = false, defaultValue = "ALL") String filterByDueDate,
           @RequestParam(required = false) String searchTerm,
-          @RequestParam(required = false, defaultValue = "creationDate") String sortBy,
+          @RequestParam(required = false) String sortBy, // Default: relevance when searching, manual order otherwise
           @RequestParam(required = false, defaultValue = "ASC") String sortDir,
+          @RequestParam(required = false) String cursor, // Opaque, from the previous page's "Load more" link
+          @RequestParam(required = false, defaultValue = "" + TodoService.DEFAULT_PAGE_SIZE) int size,
           Model model
   ) {
-    model.addAttribute("todos", todoService.getTodos(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir));
+    if (sortBy == null || sortBy.isBlank()) {
+      sortBy = searchTerm != null && !searchTerm.isBlank() ? TodoService.RELEVANCE : "displayOrder";
+    }
+    String changeEventId = changeFeed.lastEventId(); // Before reading: the page's feed replays anything newer
+    TodoViewPage page;
+    try {
+      page = todoService.getTodoViewPage(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir, cursor, size);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+    model.addAttribute("todos", page.getRoots());
+    model.addAttribute("todoTree", page); // Children by parent id, like TodoTree
+    model.addAttribute("nextCursor", page.getNextCursor());
+    model.addAttribute("pageSize", size);
+    model.addAttribute("summary", todoService.getSummary());
+    model.addAttribute("today", calendar.today());
+    model.addAttribute("changeEventId", changeEventId);
 
     // Add current filter/sort parameters to model for UI to reflect current state
     model.addAttribute("currentFilterByStatus", filterByStatus);
@@ -69,26 +153,58 @@ public class TodoController {
     return "index";
   }
 
+  // The header counts of index.html, as JSON
+  @GetMapping("/todos/summary")
+  @ResponseBody
+  public TodoSummary summary() {
+    return todoService.getSummary();
+  }
+
+  // task-update.html for a change event: the task's item (nothing if it is gone) and the summary
+  @GetMapping("/todos/item")
+  public String taskItem(@RequestParam(required = false) Long id, Model model) {
+    return taskUpdate(id, model);
+  }
+
   @PostMapping("/add")
   public String addTodo(@RequestParam("title") String title,
                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
-                        @RequestParam(required = false) Priority priority) {
+                        @RequestParam(required = false) Priority priority,
+                        @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                        Model model) {
+    Long addedId = null;
     if (title != null && !title.trim().isEmpty()) {
-      todoService.addTodo(title, dueDate, priority);
+      addedId = await(todoWriteBehind.addTodo(title, dueDate, priority)).getId();
     }
-    return "redirect:/";
+    return fragment ? taskUpdate(addedId, model) : "redirect:/";
   }
 
+  // In place, the parent's item is sent again without the deleted subtask; a deleted top-level item is just removed
   @PostMapping("/delete")
-  public String deleteTodo(@RequestParam("id") long id) {
+  public String deleteTodo(@RequestParam("id") long id,
+                           @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                           Model model) {
+    Long parentId = fragment
+            ? todoService.findTodoById(id).map(Todo::getParent).map(Todo::getId).orElse(null)
+            : null;
     todoService.deleteTodo(id);
-    return "redirect:/";
+    return fragment ? taskUpdate(parentId, model) : "redirect:/";
   }
 
   @PostMapping("/complete")
-  public String completeTodo(@RequestParam("id") long id) {
-    todoService.markCompleted(id);
-    return "redirect:/";
+  public String completeTodo(@RequestParam("id") long id,
+                             @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                             Model model) {
+    await(todoWriteBehind.markCompleted(id));
+    return fragment ? taskUpdate(id, model) : "redirect:/";
+  }
+
+  @PostMapping("/completeSubtree")
+  public String completeSubtree(@RequestParam("id") long id,
+                                @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                                Model model) {
+    todoService.markSubtreeCompleted(id);
+    return fragment ? taskUpdate(id, model) : "redirect:/";
   }
 
   @GetMapping("/edit/{id}")
@@ -106,11 +222,13 @@ public class TodoController {
   @PostMapping("/update/{id}")
   public String updateTodo(@PathVariable long id, @RequestParam String title,
                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
-                         @RequestParam(required = false) Priority priority) {
+                         @RequestParam(required = false) Priority priority,
+                         @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                         Model model) {
     if (title != null && !title.trim().isEmpty()) {
-      todoService.updateTodo(id, title, dueDate, priority);
+      await(todoWriteBehind.updateTodo(id, title, dueDate, priority));
     }
-    return "redirect:/";
+    return fragment ? taskUpdate(id, model) : "redirect:/";
   }
 
   @GetMapping("/task/{parentId}/addSubTask")
@@ -127,15 +245,18 @@ public class TodoController {
     }
   }
 
+  // In place, the parent's item is sent again with the new subtask in sibling order
   @PostMapping("/task/{parentId}/addSubTask")
   public String addSubTask(@PathVariable Long parentId,
                            @RequestParam String title,
                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
-                           @RequestParam(required = false) Priority priority) {
+                           @RequestParam(required = false) Priority priority,
+                           @RequestHeader(value = FRAGMENT_REQUEST_HEADER, defaultValue = "false") boolean fragment,
+                           Model model) {
     if (title != null && !title.trim().isEmpty()) {
       todoService.addSubTask(parentId, title, dueDate, priority);
     }
-    return "redirect:/"; // Consider redirecting to parent task anchor: "/#task-" + parentId
+    return fragment ? taskUpdate(parentId, model) : "redirect:/"; // Consider redirecting to parent task anchor: "/#task-" + parentId
   }
 
   @PostMapping("/todos/reorder")
@@ -146,4 +267,51 @@ public class TodoController {
       todoService.updateTaskOrder(payload.getOrderedTaskIds(), payload.getParentId());
       return ResponseEntity.ok().build();
   }
+
+  @PostMapping("/todos/reposition")
+  public ResponseEntity<Void> repositionTask(@RequestBody RepositionRequestPayload payload) {
+      if (payload == null || payload.getTaskId() == null) {
+          return ResponseEntity.badRequest().build();
+      }
+      try {
+          Optional<Todo> moved = todoService.repositionTask(payload.getTaskId(), payload.getParentId(),
+                  payload.getPreviousTaskId(), payload.getNextTaskId());
+          return moved.isPresent() ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+      } catch (IllegalArgumentException e) {
+          return ResponseEntity.badRequest().build();
+      }
+  }
+
+  // A full write-behind queue: the write was not taken, and may be posted again shortly
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<String> writeBehindQueueFull(RejectedExecutionException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Integer.toString(WRITE_BEHIND_RETRY_AFTER_SECONDS))
+            .body(e.getMessage());
+  }
+
+  // Waits for a write-behind write, failing as the direct service call would rather than with a CompletionException
+  private static <T> T await(CompletableFuture<T> write) {
+    try {
+      return write.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  // task-update.html for one task's subtree (none if taskId is null or the task is gone) and the summary;
+  // the work is proportional to that subtree, not to the list
+  private String taskUpdate(Long taskId, Model model) {
+    TodoViewPage subtree = taskId == null ? null : todoService.getTodoViewSubtree(taskId).orElse(null);
+    model.addAttribute("task", subtree == null ? null : subtree.getRoots().get(0));
+    model.addAttribute("todoTree", subtree);
+    model.addAttribute("today", calendar.today());
+    model.addAttribute("summary", todoService.getSummary());
+    model.addAttribute("priorities", Priority.values());
+    model.addAttribute("swapOutOfBand", "true");
+    return "task-update";
+  }
 }
@@ -0,0 +1,40 @@
+package com.example.todo.controller;
+
+import com.example.todo.service.TodoChangeFeed;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Change events for the list page at {@code /todos/events}: {@link com.example.todo.service.TodoChange} as JSON,
+ * named created, updated, completed, deleted or reordered, or a {@value TodoChangeFeed#RESYNC} event.
+ * {@code after} is the changeEventId the page was rendered with; reconnects send Last-Event-ID instead.
+ * <p>
+ * A servlet of its own, like {@link TodoStreamServlet}, so that {@link TodoChangeFeed} can write with non-blocking
+ * output.
+ */
+public class TodoEventsServlet extends HttpServlet {
+  public static final String PATH = "/todos/events";
+
+  private final TodoChangeFeed changeFeed;
+
+  public TodoEventsServlet(TodoChangeFeed changeFeed) {
+    this.changeFeed = changeFeed;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String lastEventId = request.getHeader("Last-Event-ID");
+    if (lastEventId == null) {
+      lastEventId = request.getParameter("after");
+    }
+    response.setContentType("text/event-stream");
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    AsyncContext async = request.startAsync();
+    changeFeed.subscribe(lastEventId, async, response.getOutputStream());
+  }
+}
@@ -0,0 +1,139 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.TodoView;
+import com.example.todo.model.TodoViewPage;
+import com.example.todo.service.TodoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * The whole filtered task list as NDJSON, one top-level task with its subtasks per line, at {@code /api/todos/stream}.
+ * Takes the filter, search and sort parameters of {@code /api/todos}; a {@code cursor} from there starts the stream at
+ * that page.
+ * <p>
+ * Written with non-blocking servlet output: no thread waits on a slow client. Tasks are read a page
+ * ({@value TodoService#MAX_PAGE_SIZE} top-level tasks) at a time, and the next page only once the client has taken
+ * the previous one, so a client that stops reading stops the reads too. Pages are read like {@code /api/todos} pages:
+ * a task written after the stream has passed its position is not included.
+ */
+public class TodoStreamServlet extends HttpServlet {
+  public static final String PATH = "/api/todos/stream";
+
+  private final TodoService todoService;
+  private final ObjectMapper objectMapper;
+
+  public TodoStreamServlet(TodoService todoService, ObjectMapper objectMapper) {
+    this.todoService = todoService;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ListQuery query;
+    TodoViewPage first;
+    try {
+      query = ListQuery.of(request);
+      first = query.read(todoService, request.getParameter("cursor"));
+    } catch (IllegalArgumentException e) { // An unknown priority, or a malformed cursor
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    response.setContentType(TodoTransferController.NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    AsyncContext async = request.startAsync();
+    async.setTimeout(0); // Ends with the list; a stalled client is closed by the connector's socket timeout
+    ServletOutputStream out = response.getOutputStream();
+    out.setWriteListener(new PageWriter(query, first, async, out));
+  }
+
+  /** The parameters of one stream, with the defaults of {@code /api/todos}. */
+  record ListQuery(String filterByStatus, Priority filterByPriority, String filterByDueDate, String searchTerm,
+                   String sortBy, String sortDir) {
+
+    static ListQuery of(HttpServletRequest request) {
+      String priority = request.getParameter("filterByPriority");
+      String searchTerm = request.getParameter("searchTerm");
+      String sortBy = request.getParameter("sortBy");
+      if (sortBy == null || sortBy.isBlank()) {
+        sortBy = searchTerm != null && !searchTerm.isBlank() ? TodoService.RELEVANCE : "displayOrder";
+      }
+      return new ListQuery(
+              valueOr(request.getParameter("filterByStatus"), "ALL"),
+              priority == null || priority.isBlank() ? null : Priority.valueOf(priority.toUpperCase(Locale.ROOT)),
+              valueOr(request.getParameter("filterByDueDate"), "ALL"),
+              searchTerm,
+              sortBy,
+              valueOr(request.getParameter("sortDir"), "ASC"));
+    }
+
+    TodoViewPage read(TodoService todoService, String cursor) {
+      return todoService.getTodoViewPage(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy,
+              sortDir, cursor, TodoService.MAX_PAGE_SIZE);
+    }
+
+    private static String valueOr(String value, String defaultValue) {
+      return value == null || value.isBlank() ? defaultValue : value;
+    }
+  }
+
+  // Called by the container whenever the output can take more; returns as soon as it cannot
+  final class PageWriter implements WriteListener {
+    private final ListQuery query;
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final Deque<byte[]> lines = new ArrayDeque<>();
+    private String nextCursor;
+
+    PageWriter(ListQuery query, TodoViewPage first, AsyncContext async, ServletOutputStream out) throws IOException {
+      this.query = query;
+      this.async = async;
+      this.out = out;
+      add(first);
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+      while (out.isReady()) {
+        if (!lines.isEmpty()) {
+          out.write(lines.pollFirst());
+        } else if (nextCursor != null) {
+          out.flush(); // Send the page before reading the next one
+          if (out.isReady()) {
+            add(query.read(todoService, nextCursor));
+          }
+        } else {
+          async.complete();
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      async.complete(); // The client went away
+    }
+
+    private void add(TodoViewPage page) throws IOException {
+      for (TodoView root : page.getRoots()) {
+        byte[] json = objectMapper.writeValueAsBytes(TodoApiController.resourceOf(root, page::childrenOf));
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        lines.addLast(line);
+      }
+      nextCursor = page.getNextCursor();
+    }
+  }
+}
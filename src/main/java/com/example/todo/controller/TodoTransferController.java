@@ -0,0 +1,111 @@
+package com.example.todo.controller;
+
+import com.example.todo.service.TodoExportService;
+import com.example.todo.service.TodoImportService;
+import com.example.todo.service.TransferFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bulk transfer endpoints. Bodies are read and written as streams, never buffered whole.
+ */
+@RestController
+public class TodoTransferController {
+  static final String NDJSON = "application/x-ndjson";
+  static final String CSV = "text/csv";
+
+  @Autowired
+  private TodoImportService todoImportService;
+
+  @Autowired
+  private TodoExportService todoExportService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Streams every task as NDJSON (default) or CSV, parents first. The output can be posted back to /todos/import.
+   */
+  @GetMapping("/todos/export")
+  public void exportTodos(@RequestParam(required = false, defaultValue = "NDJSON") TransferFormat format,
+                          HttpServletResponse response) throws IOException {
+    response.setContentType(format.getMediaType());
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader("Content-Disposition",
+            "attachment; filename=\"todos." + (format == TransferFormat.CSV ? "csv" : "ndjson") + "\"");
+    todoExportService.exportTodos(response.getWriter(), format);
+  }
+
+  /**
+   * Imports tasks from an NDJSON or CSV body (see {@link TodoImportService} for the fields).
+   * The response is NDJSON written while the import runs: an "error" line per rejected row,
+   * a "progress" line per committed batch and a final "done" line with the totals.
+   */
+  @PostMapping(value = "/todos/import", consumes = {NDJSON, CSV}, produces = NDJSON)
+  public void importTodos(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    MediaType contentType = MediaType.parseMediaType(request.getContentType());
+    TransferFormat format = contentType.isCompatibleWith(MediaType.parseMediaType(CSV))
+            ? TransferFormat.CSV
+            : TransferFormat.NDJSON;
+    Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+
+    response.setContentType(NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    PrintWriter out = response.getWriter();
+
+    try (Reader body = new InputStreamReader(request.getInputStream(), charset)) {
+      TodoImportService.Progress result = todoImportService.importTodos(body, format, new TodoImportService.Listener() {
+        @Override
+        public void onRowError(long lineNumber, String message) {
+          Map<String, Object> event = new LinkedHashMap<>();
+          event.put("event", "error");
+          event.put("line", lineNumber);
+          event.put("message", message);
+          writeLine(out, event);
+        }
+
+        @Override
+        public void onProgress(TodoImportService.Progress progress) {
+          writeLine(out, progressEvent("progress", progress));
+          out.flush(); // Push progress to the client as each batch commits
+        }
+      });
+      writeLine(out, progressEvent("done", result));
+    }
+    out.flush();
+  }
+
+  private static Map<String, Object> progressEvent(String name, TodoImportService.Progress progress) {
+    Map<String, Object> event = new LinkedHashMap<>();
+    event.put("event", name);
+    event.put("rowsRead", progress.rowsRead());
+    event.put("imported", progress.imported());
+    event.put("failed", progress.failed());
+    return event;
+  }
+
+  private void writeLine(PrintWriter out, Map<String, Object> event) {
+    try {
+      out.println(objectMapper.writeValueAsString(event));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -1,17 +1,25 @@
 package com.example.todo.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.OrderBy; // Added this import
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.format.annotation.DateTimeFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -20,9 +28,24 @@ import java.util.ArrayList;
 // Priority Enum is in the same package
 
 @Entity
+@Table // Columns and indexes are defined in schema.sql
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "todo") // Sized in application.properties
+// UPDATEs write only the changed columns, so an entity loaded before a bulk statement does not write back the
+// completed flag or path the statement has since changed (see TodoBatchService)
+@DynamicUpdate
 public class Todo {
+  public static final String ROOT_PATH = "/";
+
+  // Pooled sequence instead of IDENTITY: ids are known before the INSERT, so Hibernate can batch
+  // inserts, and one sequence call covers ID_ALLOCATION_SIZE new rows
+  public static final int ID_ALLOCATION_SIZE = 50;
+  // title VARCHAR(255) in schema.sql
+  public static final int MAX_TITLE_LENGTH = 255;
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+  @SequenceGenerator(name = "todo_seq", sequenceName = "todo_seq", allocationSize = ID_ALLOCATION_SIZE)
   private long id;
   private String title;
   private boolean completed;
@@ -33,22 +56,35 @@ public class Todo {
   @Enumerated(EnumType.STRING)
   private Priority priority;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "parent_id")
   private Todo parent;
 
-  @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL, orphanRemoval = true, fetch = jakarta.persistence.FetchType.EAGER)
+  // Lazy on purpose: list rendering loads whole trees through TodoService.getTodoTree instead
+  @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
   @OrderBy("displayOrder ASC") // Added this annotation
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "todo.subTasks") // Reorders: see TodoCacheEvictor
   private List<Todo> subTasks = new ArrayList<>();
 
   private LocalDateTime creationDate;
-  private Integer displayOrder;
+  // Sparse rank among siblings (see DisplayOrderAllocator); gaps let a move rewrite only the moved row
+  private Long displayOrder;
+
+  // Materialized ancestor path: "/" for top-level tasks, "/1/5/" for a task under 5 under 1.
+  // Lets subtree reads and writes run as a single indexed "path LIKE 'prefix%'" statement.
+  @Column(length = 1024)
+  private String path;
+
+  private int depth;
 
   @PrePersist
   protected void onCreate() {
     if (creationDate == null) {
       creationDate = LocalDateTime.now();
     }
+    if (path == null) {
+      placeUnder(parent);
+    }
   }
 
   public Todo() {
@@ -128,14 +164,46 @@ public class Todo {
     this.creationDate = creationDate;
   }
 
-  public Integer getDisplayOrder() {
+  public Long getDisplayOrder() {
     return displayOrder;
   }
 
-  public void setDisplayOrder(Integer displayOrder) {
+  public void setDisplayOrder(Long displayOrder) {
     this.displayOrder = displayOrder;
   }
 
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  /** Path prefix shared by every descendant of this task. */
+  public String getDescendantPathPrefix() {
+    return (path != null ? path : ROOT_PATH) + id + "/";
+  }
+
+  /** Sets path and depth as if this task were a direct child of the given parent (null for top level). */
+  public void placeUnder(Todo newParent) {
+    if (newParent == null) {
+      this.path = ROOT_PATH;
+      this.depth = 0;
+    } else {
+      this.path = newParent.getDescendantPathPrefix();
+      this.depth = newParent.getDepth() + 1;
+    }
+  }
+
   // Utility methods for managing subtasks
   public void addSubTask(Todo subTask) {
     this.subTasks.add(subTask);
@@ -148,17 +216,25 @@ public class Todo {
   }
 
   public boolean isOverdue() {
+    return isOverdue(java.time.LocalDate.now());
+  }
+
+  // For rendering a list: every task is compared with the same, already known day
+  public boolean isOverdue(java.time.LocalDate today) {
     if (this.dueDate == null || this.isCompleted()) {
       return false;
     }
-    return java.time.LocalDate.now().isAfter(this.dueDate);
+    return today.isAfter(this.dueDate);
   }
 
   public boolean isDueSoon(int days) {
+    return isDueSoon(java.time.LocalDate.now(), days);
+  }
+
+  public boolean isDueSoon(java.time.LocalDate today, int days) {
     if (this.dueDate == null || this.isCompleted()) {
       return false;
     }
-    java.time.LocalDate today = java.time.LocalDate.now();
     java.time.LocalDate soonDate = today.plusDays(days);
     // Due date is between today (inclusive) and 'days' from now (inclusive of soonDate)
     // and not in the past (unless today is the due date)
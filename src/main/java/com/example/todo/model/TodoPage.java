@@ -0,0 +1,12 @@
+package com.example.todo.model;
+
+/**
+ * One page of top-level tasks with their subtasks.
+ * {@code nextCursor} is null on the last page.
+ */
+public record TodoPage(TodoTree tree, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
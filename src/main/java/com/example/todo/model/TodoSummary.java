@@ -0,0 +1,14 @@
+package com.example.todo.model;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Dashboard counts over top-level tasks, as of a day. The priority and due-date counts only include pending
+ * tasks; {@code overdue} counts the same tasks as the OVERDUE filter.
+ *
+ * @param dueNext7Days pending tasks due from {@code asOf} to six days later, {@code dueToday} included
+ */
+public record TodoSummary(LocalDate asOf, long pending, long completed, Map<Priority, Long> pendingByPriority,
+                          long overdue, long dueToday, long dueNext7Days) {
+}
@@ -0,0 +1,52 @@
+package com.example.todo.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A forest of todos assembled in memory from flat rows.
+ * Children are looked up by parent id, so rendering never touches the lazy subTasks collection.
+ */
+public class TodoTree {
+
+    private final List<Todo> roots;
+    private final Map<Long, List<Todo>> childrenByParentId;
+
+    private TodoTree(List<Todo> roots, Map<Long, List<Todo>> childrenByParentId) {
+        this.roots = roots;
+        this.childrenByParentId = childrenByParentId;
+    }
+
+    public static TodoTree empty() {
+        return new TodoTree(Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * Builds the tree in a single pass over the descendants.
+     * The descendants are expected to already be in sibling order (displayOrder ASC).
+     */
+    public static TodoTree of(List<Todo> roots, List<Todo> descendants) {
+        Map<Long, List<Todo>> childrenByParentId = new HashMap<>();
+        for (Todo todo : descendants) {
+            if (todo.getParent() != null) {
+                childrenByParentId.computeIfAbsent(todo.getParent().getId(), k -> new ArrayList<>()).add(todo);
+            }
+        }
+        return new TodoTree(roots, childrenByParentId);
+    }
+
+    public List<Todo> getRoots() {
+        return roots;
+    }
+
+    public List<Todo> childrenOf(long parentId) {
+        return childrenByParentId.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    public boolean hasChildren(long parentId) {
+        return childrenByParentId.containsKey(parentId);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.todo.model;
+
+import java.time.LocalDate;
+
+/**
+ * What the task list shows of one task: built from a projected row, so rendering a page hydrates no Todo entity.
+ * {@code parentTitle} is null for a top-level task.
+ */
+public record TodoView(long id, String title, boolean completed, LocalDate dueDate, Priority priority,
+                       Long parentId, String parentTitle) {
+
+    public boolean isOverdue(LocalDate today) {
+        return dueDate != null && !completed && today.isAfter(dueDate);
+    }
+}
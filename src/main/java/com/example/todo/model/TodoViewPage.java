@@ -0,0 +1,53 @@
+package com.example.todo.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of the task list as {@link TodoView}s: the top-level tasks with their subtasks, looked up by parent id
+ * like in {@link TodoTree}. {@code nextCursor} is null on the last page.
+ */
+public class TodoViewPage {
+
+    private final List<TodoView> roots;
+    private final Map<Long, List<TodoView>> childrenByParentId;
+    private final String nextCursor;
+
+    private TodoViewPage(List<TodoView> roots, Map<Long, List<TodoView>> childrenByParentId, String nextCursor) {
+        this.roots = roots;
+        this.childrenByParentId = childrenByParentId;
+        this.nextCursor = nextCursor;
+    }
+
+    /** The descendants are expected to already be in sibling order (displayOrder ASC). */
+    public static TodoViewPage of(List<TodoView> roots, List<TodoView> descendants, String nextCursor) {
+        Map<Long, List<TodoView>> childrenByParentId = new HashMap<>();
+        for (TodoView view : descendants) {
+            childrenByParentId.computeIfAbsent(view.parentId(), k -> new ArrayList<>()).add(view);
+        }
+        return new TodoViewPage(roots, childrenByParentId, nextCursor);
+    }
+
+    public List<TodoView> getRoots() {
+        return roots;
+    }
+
+    public List<TodoView> childrenOf(long parentId) {
+        return childrenByParentId.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    public boolean hasChildren(long parentId) {
+        return childrenByParentId.containsKey(parentId);
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
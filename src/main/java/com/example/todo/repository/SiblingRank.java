@@ -0,0 +1,7 @@
+package com.example.todo.repository;
+
+/**
+ * The columns a reorder needs, read without hydrating a Todo entity.
+ */
+public record SiblingRank(Long id, Long parentId, Long displayOrder) {
+}
@@ -0,0 +1,8 @@
+package com.example.todo.repository;
+
+/**
+ * A moved task's descendants, to be re-rooted: every path starting with {@code oldPrefix} gets {@code newPrefix}
+ * instead, and every depth shifts by {@code depthDelta}. See {@link TodoRepository#rebaseSubtree}.
+ */
+public record SubtreeRebase(String oldPrefix, String newPrefix, int depthDelta) {
+}
@@ -0,0 +1,35 @@
+package com.example.todo.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk writes that go straight to JDBC instead of through the persistence context.
+ */
+public interface TodoBatchOperations {
+
+    /**
+     * Writes the given displayOrder values (keyed by task id) as a single JDBC batch,
+     * and evicts what the second-level cache holds for them (see {@link TodoCacheEvictor}).
+     */
+    void updateDisplayOrders(Map<Long, Long> displayOrderById);
+
+    /**
+     * Marks every task under each of the given descendant path prefixes as completed, as a single JDBC batch.
+     * The descendants are not known here, so every cached task is evicted.
+     */
+    void markSubtreesCompleted(List<String> descendantPathPrefixes);
+
+    /**
+     * Applies the given rebases in order as a single JDBC batch. Every cached task is evicted.
+     */
+    void rebaseSubtrees(List<SubtreeRebase> rebases);
+
+    /**
+     * Deletes the given tasks with their whole subtrees, keyed by task id with the task's descendant path prefix as
+     * the value, in a constant number of statements and without loading any row: the parent foreign key cascades on
+     * delete, so it does not depend on the order the rows are deleted in. Returns the ids of the deleted rows.
+     * Every cached task is evicted.
+     */
+    List<Long> deleteSubtrees(Map<Long, String> descendantPathPrefixById);
+}
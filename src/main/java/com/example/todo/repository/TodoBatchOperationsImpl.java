@@ -0,0 +1,85 @@
+package com.example.todo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Picked up by Spring Data as the implementation of the TodoBatchOperations fragment of TodoRepository
+class TodoBatchOperationsImpl implements TodoBatchOperations {
+
+    // Subtrees whose ids are read by one query
+    private static final int ID_QUERY_CHUNK = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TodoCacheEvictor cacheEvictor;
+
+    @Autowired
+    TodoBatchOperationsImpl(JdbcTemplate jdbcTemplate, TodoCacheEvictor cacheEvictor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheEvictor = cacheEvictor;
+    }
+
+    @Override
+    public void updateDisplayOrders(Map<Long, Long> displayOrderById) {
+        if (displayOrderById.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(displayOrderById.size());
+        // In id order, so that two concurrent reorders of one list lock its rows in the same order instead of deadlocking
+        new TreeMap<>(displayOrderById).forEach((id, displayOrder) -> batchArgs.add(new Object[] {displayOrder, id}));
+        jdbcTemplate.batchUpdate("UPDATE todo SET display_order = ? WHERE id = ?", batchArgs);
+        cacheEvictor.evictRows(displayOrderById.keySet());
+    }
+
+    @Override
+    public void markSubtreesCompleted(List<String> descendantPathPrefixes) {
+        if (descendantPathPrefixes.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = descendantPathPrefixes.stream().map(prefix -> new Object[] {prefix + "%"}).toList();
+        jdbcTemplate.batchUpdate("UPDATE todo SET completed = TRUE WHERE path LIKE ? AND completed = FALSE", batchArgs);
+        cacheEvictor.evictAllRows();
+    }
+
+    @Override
+    public void rebaseSubtrees(List<SubtreeRebase> rebases) {
+        if (rebases.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = rebases.stream()
+                .map(rebase -> new Object[] {rebase.newPrefix(), rebase.oldPrefix().length() + 1, rebase.depthDelta(),
+                        rebase.oldPrefix() + "%"})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE todo SET path = CONCAT(?, SUBSTRING(path, ?)), depth = depth + ?"
+                + " WHERE path LIKE ?", batchArgs);
+        cacheEvictor.evictAllRows();
+    }
+
+    @Override
+    public List<Long> deleteSubtrees(Map<Long, String> descendantPathPrefixById) {
+        if (descendantPathPrefixById.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> patternArgs = descendantPathPrefixById.values().stream()
+                .map(prefix -> new Object[] {prefix + "%"})
+                .toList();
+        // A subtree nested in another one that is deleted too would report its rows twice
+        LinkedHashSet<Long> deleted = new LinkedHashSet<>(descendantPathPrefixById.keySet());
+        for (int from = 0; from < patternArgs.size(); from += ID_QUERY_CHUNK) {
+            List<Object[]> chunk = patternArgs.subList(from, Math.min(patternArgs.size(), from + ID_QUERY_CHUNK));
+            String sql = "SELECT id FROM todo WHERE " + String.join(" OR ", Collections.nCopies(chunk.size(), "path LIKE ?"));
+            deleted.addAll(jdbcTemplate.queryForList(sql, Long.class, chunk.stream().map(args -> args[0]).toArray()));
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM todo WHERE path LIKE ?", patternArgs);
+        jdbcTemplate.batchUpdate("DELETE FROM todo WHERE id = ?",
+                descendantPathPrefixById.keySet().stream().map(id -> new Object[] {id}).toList());
+        cacheEvictor.evictAllRows();
+        return new ArrayList<>(deleted);
+    }
+}
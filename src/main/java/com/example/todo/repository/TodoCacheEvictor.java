@@ -0,0 +1,99 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Todo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts second-level cache entries for the writes Hibernate does not invalidate by itself:
+ * <ul>
+ *   <li>a new displayOrder, which reorders the parent's cached subTasks (cached in {@code @OrderBy} order) without
+ *   modifying the collection;</li>
+ *   <li>{@link TodoBatchOperations} writes, which bypass Hibernate entirely.</li>
+ * </ul>
+ * Entries are evicted at once and again after the transaction completes, so a concurrent reader cannot put the
+ * old state back in between.
+ */
+@Component
+public class TodoCacheEvictor implements PostUpdateEventListener {
+  public static final String SUB_TASKS_ROLE = Todo.class.getName() + ".subTasks";
+
+  private final Cache cache;
+
+  @Autowired
+  public TodoCacheEvictor(EntityManagerFactory entityManagerFactory) {
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    this.cache = sessionFactory.getCache();
+    if (sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+      sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class)
+              .appendListeners(EventType.POST_UPDATE, this);
+    }
+  }
+
+  /** For rows written outside of Hibernate: drops them, every cached subTasks list and every cached query result. */
+  public void evictRows(Collection<Long> ids) {
+    List<Long> evicted = List.copyOf(ids);
+    evictNowAndAfterCompletion(() -> {
+      evicted.forEach(id -> cache.evictEntityData(Todo.class, id));
+      cache.evictCollectionData(SUB_TASKS_ROLE); // The parents are not known here
+      cache.evictQueryRegions();
+    });
+  }
+
+  /** For statements over rows that are not known by id, such as a whole subtree: drops every cached task. */
+  public void evictAllRows() {
+    evictNowAndAfterCompletion(() -> {
+      cache.evictEntityData(Todo.class);
+      cache.evictCollectionData(SUB_TASKS_ROLE);
+      cache.evictQueryRegions();
+    });
+  }
+
+  private void evictNowAndAfterCompletion(Runnable evict) {
+    evict.run();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          evict.run();
+        }
+      });
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    if (!(event.getEntity() instanceof Todo todo) || todo.getParent() == null) {
+      return; // Top-level tasks are not in any subTasks list
+    }
+    int[] dirty = event.getDirtyProperties();
+    int displayOrder = Arrays.asList(event.getPersister().getPropertyNames()).indexOf("displayOrder");
+    if (dirty != null && Arrays.stream(dirty).noneMatch(property -> property == displayOrder)) {
+      return;
+    }
+    long parentId = todo.getParent().getId(); // Read from the proxy without loading the parent
+    cache.evictCollectionData(SUB_TASKS_ROLE, parentId);
+    event.getSession().getActionQueue().registerProcess(
+            (AfterTransactionCompletionProcess) (success, session) -> cache.evictCollectionData(SUB_TASKS_ROLE, parentId));
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return false;
+  }
+}
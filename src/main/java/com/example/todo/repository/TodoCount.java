@@ -0,0 +1,11 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Priority;
+
+import java.time.LocalDate;
+
+/**
+ * The number of tasks sharing a status, priority and due date.
+ */
+public record TodoCount(boolean completed, Priority priority, LocalDate dueDate, long count) {
+}
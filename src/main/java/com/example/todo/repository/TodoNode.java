@@ -0,0 +1,20 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Every column of a task row, with the parent as its id, read without hydrating a Todo entity.
+ * Immutable; a changed row is a new node.
+ */
+public record TodoNode(long id, String title, boolean completed, LocalDate dueDate, Priority priority, Long parentId,
+                       LocalDateTime creationDate, Long displayOrder, String path, int depth) {
+
+    /** Path prefix shared by every descendant of this task, as {@link Todo#getDescendantPathPrefix}. */
+    public String descendantPathPrefix() {
+        return (path != null ? path : Todo.ROOT_PATH) + id + "/";
+    }
+}
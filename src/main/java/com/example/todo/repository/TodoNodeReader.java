@@ -0,0 +1,93 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Priority;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads committed rows back for TodoReadModel, on a connection of its own rather than one from the application pool.
+ * <p>
+ * The read model reloads from an afterCommit callback, where the committing transaction still holds its pooled
+ * connection and further transactional work must run in a new transaction. Taking that from the application pool
+ * would let committing writers hold every connection while each waits for another. Reloads are serialized, so
+ * a single connection serves them all.
+ */
+@Component
+public class TodoNodeReader {
+
+    // Rows read back per IN query
+    private static final int ID_CHUNK = 1000;
+    // Subtrees read back per OR'ed path query
+    private static final int SUBTREE_CHUNK = 100;
+
+    // Same columns as TodoRepository.SELECT_NODES
+    private static final String SELECT_NODES = "SELECT id, title, completed, due_date, priority, parent_id,"
+            + " creation_date, display_order, path, depth FROM todo";
+
+    private static final RowMapper<TodoNode> NODE = (rs, rowNum) -> {
+        String priority = rs.getString("priority");
+        return new TodoNode(rs.getLong("id"), rs.getString("title"), rs.getBoolean("completed"),
+                rs.getObject("due_date", LocalDate.class), priority == null ? null : Priority.valueOf(priority),
+                rs.getObject("parent_id", Long.class), rs.getObject("creation_date", LocalDateTime.class),
+                rs.getObject("display_order", Long.class), rs.getString("path"), rs.getInt("depth"));
+    };
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+
+    @Autowired
+    public TodoNodeReader(DataSourceProperties dataSourceProperties) {
+        // Connects on first use: nothing is opened while the read model is off
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("todo-node-reader");
+        this.dataSource.setMaximumPoolSize(1);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * The rows with the given ids and every row under the given descendant path prefixes, read in one new
+     * read-only transaction. A row matched both ways is returned twice.
+     */
+    public List<TodoNode> findNodes(List<Long> ids, List<String> descendantPathPrefixes) {
+        List<TodoNode> rows = readTransaction.execute(status -> {
+            List<TodoNode> read = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += ID_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + ID_CHUNK));
+                read.addAll(jdbcTemplate.query(SELECT_NODES + " WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", NODE, chunk.toArray()));
+            }
+            for (int from = 0; from < descendantPathPrefixes.size(); from += SUBTREE_CHUNK) {
+                List<String> chunk = descendantPathPrefixes.subList(from,
+                        Math.min(descendantPathPrefixes.size(), from + SUBTREE_CHUNK));
+                read.addAll(jdbcTemplate.query(SELECT_NODES + " WHERE "
+                                + String.join(" OR ", Collections.nCopies(chunk.size(), "path LIKE ?")), NODE,
+                        chunk.stream().map(prefix -> prefix + "%").toArray()));
+            }
+            return read;
+        });
+        return rows == null ? List.of() : rows;
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+}
@@ -1,22 +1,136 @@
 package com.example.todo.repository;
 
 import com.example.todo.model.Todo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, Long>, JpaSpecificationExecutor<Todo> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, JpaSpecificationExecutor<Todo>, TodoBatchOperations, TodoSliceQueries {
+    int STREAM_FETCH_SIZE = 1000;
+
     List<Todo> findByParentIsNull(Sort sort);
 
-    @Query("SELECT MAX(t.displayOrder) FROM Todo t WHERE t.parent IS NULL")
-    Integer findMaxDisplayOrderByParentIsNull();
+    // The list query when TodoReadModel cannot answer; like findSlice, results stay in the query cache until
+    // the todo table is written to
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Todo> findAll(Specification<Todo> spec, Sort sort);
+
+    // Row locks keep a move and a rebalance of the same sibling list from overwriting each other.
+    // Rows are locked in sibling order so that concurrent lockers cannot deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Todo t WHERE t.id IN :ids ORDER BY t.displayOrder, t.id")
+    List<Todo> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Todo t WHERE t.parent IS NULL ORDER BY t.displayOrder, t.id")
+    List<Todo> findTopLevelForUpdate();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Todo t WHERE t.parent.id = :parentId ORDER BY t.displayOrder, t.id")
+    List<Todo> findChildrenForUpdate(@Param("parentId") Long parentId);
+
+    // The siblings right after a given rank, locked like the other neighbour lookups; page it to a row or two
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Todo t WHERE ((:parentId IS NULL AND t.parent IS NULL) OR t.parent.id = :parentId)"
+            + " AND t.displayOrder > :displayOrder ORDER BY t.displayOrder, t.id")
+    List<Todo> findSiblingsAfterForUpdate(@Param("parentId") Long parentId, @Param("displayOrder") Long displayOrder,
+                                          Pageable pageable);
+
+    // One IN query for a whole reorder; reads the parent's id from the FK column, so nothing else is loaded
+    @Query("SELECT new com.example.todo.repository.SiblingRank(t.id, t.parent.id, t.displayOrder) FROM Todo t WHERE t.id IN :ids")
+    List<SiblingRank> findSiblingRanks(@Param("ids") Collection<Long> ids);
+
+    // Only used once per process to seed DisplayOrderAllocator
+    @Query("SELECT MAX(t.displayOrder) FROM Todo t")
+    Long findMaxDisplayOrder();
+
+    // All descendants of the given roots in one round trip, shallowest level first and in sibling order
+    @Query(value = "WITH RECURSIVE subtree(id, depth) AS ("
+            + " SELECT t.id, 1 FROM todo t WHERE t.parent_id IN (:rootIds)"
+            + " UNION ALL"
+            + " SELECT c.id, s.depth + 1 FROM todo c JOIN subtree s ON c.parent_id = s.id"
+            + ") SELECT t.* FROM todo t JOIN subtree s ON t.id = s.id"
+            + " ORDER BY s.depth, t.display_order, t.id",
+            nativeQuery = true)
+    List<Todo> findDescendantsOf(@Param("rootIds") Collection<Long> rootIds);
+
+    // The ids of findDescendantsOf, to be read as TodoNodes; in no particular order
+    @Query(value = "WITH RECURSIVE subtree(id) AS ("
+            + " SELECT t.id FROM todo t WHERE t.parent_id IN (:rootIds)"
+            + " UNION ALL"
+            + " SELECT c.id FROM todo c JOIN subtree s ON c.parent_id = s.id"
+            + ") SELECT s.id FROM subtree s",
+            nativeQuery = true)
+    List<Long> findDescendantIdsOf(@Param("rootIds") Collection<Long> rootIds);
+
+    // Subtree queries over the materialized path; callers pass Todo.getDescendantPathPrefix() + "%"
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT t FROM Todo t WHERE t.path LIKE :pathPattern ORDER BY t.depth, t.displayOrder, t.id")
+    List<Todo> findByPathLike(@Param("pathPattern") String pathPattern);
+
+    // Forward-only cursor over every task, parents before children. Read-only: Hibernate keeps no
+    // dirty-checking snapshots, nor puts the rows into the second-level cache.
+    // The caller must consume it inside a transaction and close it.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + TodoRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "GET")
+    })
+    @Query("SELECT t FROM Todo t ORDER BY t.depth, t.displayOrder, t.id")
+    Stream<Todo> streamAllForExport();
+
+    // Every title, for building the search index at startup; same streaming rules as streamAllForExport
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + TodoRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT new com.example.todo.repository.TodoTitle(t.id, t.title) FROM Todo t")
+    Stream<TodoTitle> streamTitles();
+
+    // Rows for TodoReadModel; the parent's id is read from the FK column
+    String SELECT_NODES = "SELECT new com.example.todo.repository.TodoNode(t.id, t.title, t.completed, t.dueDate,"
+            + " t.priority, t.parent.id, t.creationDate, t.displayOrder, t.path, t.depth) FROM Todo t";
+
+    // Every row, for loading and checking the read model; same streaming rules as streamAllForExport
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + TodoRepository.STREAM_FETCH_SIZE))
+    @Query(SELECT_NODES)
+    Stream<TodoNode> streamNodes();
+
+    @Query(SELECT_NODES + " WHERE t.id IN :ids")
+    List<TodoNode> findNodesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Top-level tasks per status, priority and due date, for the dashboard summary when TodoReadModel is off
+    @Query("SELECT new com.example.todo.repository.TodoCount(t.completed, t.priority, t.dueDate, COUNT(t)) FROM Todo t"
+            + " WHERE t.parent IS NULL GROUP BY t.completed, t.priority, t.dueDate")
+    List<TodoCount> countTopLevelByStatusPriorityAndDueDate();
+
+    @Query("SELECT COUNT(t) FROM Todo t WHERE t.path LIKE :pathPattern")
+    long countByPathLike(@Param("pathPattern") String pathPattern);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Todo t SET t.completed = true WHERE t.path LIKE :pathPattern AND t.completed = false")
+    int markCompletedByPathLike(@Param("pathPattern") String pathPattern);
 
-    @Query("SELECT MAX(t.displayOrder) FROM Todo t WHERE t.parent = :parent")
-    Integer findMaxDisplayOrderByParent(@Param("parent") Todo parent);
+    // Re-roots a whole subtree: swaps the old path prefix for the new one and shifts depth
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Todo t SET t.path = CONCAT(:newPrefix, SUBSTRING(t.path, :keepFrom)), t.depth = t.depth + :depthDelta"
+            + " WHERE t.path LIKE :pathPattern")
+    int rebaseSubtree(@Param("pathPattern") String pathPattern,
+                      @Param("newPrefix") String newPrefix,
+                      @Param("keepFrom") int keepFrom,
+                      @Param("depthDelta") int depthDelta);
 }
@@ -0,0 +1,19 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Todo;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Limited reads that JpaSpecificationExecutor cannot express without an extra count query.
+ */
+public interface TodoSliceQueries {
+
+    /** The first {@code limit} tasks matching {@code spec} in {@code sort} order, as a single LIMIT query. */
+    List<Todo> findSlice(Specification<Todo> spec, Sort sort, int limit);
+
+    /** Like {@link #findSlice}, as TodoNode projections: no entity is hydrated or tracked by the persistence context. */
+    List<TodoNode> findNodeSlice(Specification<Todo> spec, Sort sort, int limit);
+}
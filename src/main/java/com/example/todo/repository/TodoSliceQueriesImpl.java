@@ -0,0 +1,61 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Todo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+// Picked up by Spring Data as the implementation of the TodoSliceQueries fragment of TodoRepository
+class TodoSliceQueriesImpl implements TodoSliceQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Todo> findSlice(Specification<Todo> spec, Sort sort, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Todo> query = criteriaBuilder.createQuery(Todo.class);
+        Root<Todo> root = query.from(Todo.class);
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(query).setMaxResults(limit)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    @Override
+    public List<TodoNode> findNodeSlice(Specification<Todo> spec, Sort sort, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TodoNode> query = criteriaBuilder.createQuery(TodoNode.class);
+        Root<Todo> root = query.from(Todo.class);
+        query.select(nodeOf(root, criteriaBuilder));
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(query).setMaxResults(limit)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    // Same columns as TodoRepository.SELECT_NODES; the parent's id is read from the FK column
+    private static CompoundSelection<TodoNode> nodeOf(Root<Todo> root, CriteriaBuilder criteriaBuilder) {
+        return criteriaBuilder.construct(TodoNode.class, root.get("id"), root.get("title"), root.get("completed"),
+                root.get("dueDate"), root.get("priority"), root.get("parent").get("id"), root.get("creationDate"),
+                root.get("displayOrder"), root.get("path"), root.get("depth"));
+    }
+}
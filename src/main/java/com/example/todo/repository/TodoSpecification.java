@@ -2,10 +2,13 @@ package com.example.todo.repository;
 
 import com.example.todo.model.Priority;
 import com.example.todo.model.Todo;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class TodoSpecification {
@@ -14,8 +17,10 @@ public class TodoSpecification {
         return (root, query, criteriaBuilder) -> criteriaBuilder.conjunction();
     }
 
+    // depth = 0 rather than parent IS NULL: an equality on a NOT NULL column can lead the
+    // idx_todo_root_* indexes, and H2 costs it from real selectivity instead of one row per null
     public static Specification<Todo> isTopLevelTask() {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get("parent"));
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("depth"), 0);
     }
 
     public static Specification<Todo> hasStatus(Boolean completed) {
@@ -65,12 +70,43 @@ public class TodoSpecification {
             );
     }
 
-    public static Specification<Todo> titleContains(String searchTerm) {
-        if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return alwaysTrue();
+    // Search results: TodoSearchIndex resolves the search term to ids. No ids matches nothing
+    public static Specification<Todo> hasIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return (root, query, criteriaBuilder) -> criteriaBuilder.disjunction();
         }
-        return (root, query, criteriaBuilder) ->
-                criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), "%" + searchTerm.toLowerCase() + "%");
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Keyset ("seek") predicate: tasks that come strictly after the given row under
+     * ORDER BY sortField, displayOrder ASC, id ASC, with nulls sorting after all values
+     * (last when ascending, first when descending). The displayOrder key is skipped when it is the sort field.
+     */
+    public static Specification<Todo> isAfter(String sortField, boolean descending, Comparable<?> sortValue,
+                                              Long displayOrder, long id) {
+        return (root, query, criteriaBuilder) -> {
+            Predicate tieBreak = criteriaBuilder.greaterThan(root.get("id"), id);
+            if ("displayOrder".equals(sortField)) {
+                return isAfter(criteriaBuilder, root.get("displayOrder"), descending, displayOrder, tieBreak);
+            }
+            tieBreak = isAfter(criteriaBuilder, root.get("displayOrder"), false, displayOrder, tieBreak);
+            return isAfter(criteriaBuilder, root.get(sortField), descending, sortValue, tieBreak);
+        };
+    }
+
+    // (key sorts after value) OR (key equals value AND tieBreak)
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Predicate isAfter(CriteriaBuilder criteriaBuilder, Expression key, boolean descending,
+                                     Comparable value, Predicate tieBreak) {
+        if (value == null) {
+            Predicate sameNull = criteriaBuilder.and(criteriaBuilder.isNull(key), tieBreak);
+            return descending ? criteriaBuilder.or(criteriaBuilder.isNotNull(key), sameNull) : sameNull;
+        }
+        Predicate strictlyAfter = descending
+                ? criteriaBuilder.lessThan(key, value)
+                : criteriaBuilder.or(criteriaBuilder.greaterThan(key, value), criteriaBuilder.isNull(key));
+        return criteriaBuilder.or(strictlyAfter, criteriaBuilder.and(criteriaBuilder.equal(key, value), tieBreak));
     }
 
     // Helper to combine specifications, typically used in a service
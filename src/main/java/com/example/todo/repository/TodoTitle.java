@@ -0,0 +1,7 @@
+package com.example.todo.repository;
+
+/**
+ * A task's id and title, read without hydrating a Todo entity.
+ */
+public record TodoTitle(long id, String title) {
+}
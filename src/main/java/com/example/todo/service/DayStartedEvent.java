@@ -0,0 +1,9 @@
+package com.example.todo.service;
+
+import java.time.LocalDate;
+
+/**
+ * Published by {@link TodoCalendar} once {@code today} has become the current day.
+ */
+public record DayStartedEvent(LocalDate today) {
+}
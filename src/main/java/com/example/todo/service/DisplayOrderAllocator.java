@@ -0,0 +1,53 @@
+package com.example.todo.service;
+
+import com.example.todo.repository.TodoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out sparse displayOrder ranks.
+ * <p>
+ * Appended tasks take the next value of a process-wide counter that always stays above every rank
+ * written so far, so a new task lands after its siblings without a per-insert MAX query. Ranks are
+ * {@link #GAP} apart, which leaves room to drop a moved task between two neighbours by writing one row.
+ */
+@Component
+public class DisplayOrderAllocator {
+
+    public static final long GAP = 1L << 16;
+
+    private final TodoRepository todoRepository;
+    private final AtomicLong highestRank = new AtomicLong();
+    private volatile boolean seeded;
+
+    @Autowired
+    public DisplayOrderAllocator(TodoRepository todoRepository) {
+        this.todoRepository = todoRepository;
+    }
+
+    /** Rank for a task appended to the end of any sibling list. */
+    public long nextAppendRank() {
+        ensureSeeded();
+        return highestRank.addAndGet(GAP);
+    }
+
+    /** Keeps later appends above a rank that was written outside {@link #nextAppendRank()}. */
+    public void observe(long rank) {
+        ensureSeeded();
+        highestRank.accumulateAndGet(rank, Math::max);
+    }
+
+    private void ensureSeeded() {
+        if (!seeded) {
+            synchronized (this) {
+                if (!seeded) {
+                    Long max = todoRepository.findMaxDisplayOrder();
+                    highestRank.accumulateAndGet(max == null ? 0 : max, Math::max);
+                    seeded = true;
+                }
+            }
+        }
+    }
+}
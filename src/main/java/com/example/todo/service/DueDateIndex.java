@@ -0,0 +1,85 @@
+package com.example.todo.service;
+
+import com.example.todo.repository.TodoNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Top-level tasks with a due date, bucketed by the epoch day they are due on, so that a due-date filter
+ * reads the buckets of its days instead of testing every task. Pending and completed tasks are kept apart:
+ * OVERDUE reads every pending bucket before today, which completed tasks would otherwise fill up over time.
+ * <p>
+ * The buckets hold absolute days, so nothing changes at midnight; the filter's days move instead.
+ * Not thread-safe; {@link TodoReadModel} only touches it under its lock.
+ */
+final class DueDateIndex {
+
+  private final NavigableMap<Long, Set<Long>> pendingByDay = new TreeMap<>();
+  private final NavigableMap<Long, Set<Long>> completedByDay = new TreeMap<>();
+
+  void add(TodoNode node) {
+    if (indexed(node)) {
+      buckets(node).computeIfAbsent(node.dueDate().toEpochDay(), day -> new HashSet<>()).add(node.id());
+    }
+  }
+
+  void remove(TodoNode node) {
+    if (!indexed(node)) {
+      return;
+    }
+    NavigableMap<Long, Set<Long>> buckets = buckets(node);
+    long day = node.dueDate().toEpochDay();
+    Set<Long> ids = buckets.get(day);
+    if (ids != null && ids.remove(node.id()) && ids.isEmpty()) {
+      buckets.remove(day);
+    }
+  }
+
+  void clear() {
+    pendingByDay.clear();
+    completedByDay.clear();
+  }
+
+  /** The ids of the top-level tasks due on the days the filter selects; null when it selects no due date. */
+  List<Long> rootIds(TodoFilter filter) {
+    List<Long> ids = new ArrayList<>();
+    if (filter.overdueAsOf() != null) {
+      if (Boolean.TRUE.equals(filter.completed())) {
+        return ids; // Only pending tasks are overdue
+      }
+      addAll(pendingByDay.headMap(filter.overdueAsOf().toEpochDay(), false), ids);
+      return ids;
+    }
+    if (filter.dueFrom() == null) {
+      return null;
+    }
+    long from = filter.dueFrom().toEpochDay();
+    long to = filter.dueTo().toEpochDay();
+    if (!Boolean.TRUE.equals(filter.completed())) {
+      addAll(pendingByDay.subMap(from, true, to, true), ids);
+    }
+    if (!Boolean.FALSE.equals(filter.completed())) {
+      addAll(completedByDay.subMap(from, true, to, true), ids);
+    }
+    return ids;
+  }
+
+  private static void addAll(Map<Long, Set<Long>> buckets, Collection<Long> ids) {
+    buckets.values().forEach(ids::addAll);
+  }
+
+  private static boolean indexed(TodoNode node) {
+    return node.parentId() == null && node.dueDate() != null;
+  }
+
+  private NavigableMap<Long, Set<Long>> buckets(TodoNode node) {
+    return node.completed() ? completedByDay : pendingByDay;
+  }
+}
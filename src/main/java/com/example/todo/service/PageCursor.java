@@ -0,0 +1,93 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.repository.TodoNode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position after the last task of a page: the sort it was produced under and that task's sort-key values.
+ * Clients only ever see the {@link #encode() encoded} form and pass it back unchanged.
+ */
+record PageCursor(String sortField, boolean descending, Comparable<?> sortValue, Long displayOrder, long id) {
+  private static final String VERSION = "1";
+  private static final String NULL_TOKEN = "~"; // Not in the URL-safe Base64 alphabet
+
+  static PageCursor after(TodoNode last, String sortField, boolean descending) {
+    return new PageCursor(sortField, descending, sortValueOf(last, sortField), last.displayOrder(), last.id());
+  }
+
+  // Relevance pages are positioned in the search ranking, not in a column
+  static PageCursor after(TodoSearchIndex.Hit last) {
+    return new PageCursor(TodoService.RELEVANCE, false, last.score(), null, last.id());
+  }
+
+  boolean matches(String sortField, boolean descending) {
+    return this.sortField.equals(sortField) && this.descending == descending;
+  }
+
+  String encode() {
+    String value = sortValue == null ? null : sortValue.toString();
+    return String.join(".", VERSION, token(sortField), descending ? "D" : "A", token(value),
+            token(displayOrder == null ? null : displayOrder.toString()), Long.toString(id));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+   */
+  static PageCursor decode(String cursor) {
+    String[] parts = cursor.split("\\.", -1);
+    if (parts.length != 6 || !VERSION.equals(parts[0]) || !(parts[2].equals("A") || parts[2].equals("D"))) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+    try {
+      String sortField = untoken(parts[1]);
+      String displayOrder = untoken(parts[4]);
+      return new PageCursor(sortField, parts[2].equals("D"), parseSortValue(sortField, untoken(parts[3])),
+              displayOrder == null ? null : Long.valueOf(displayOrder), Long.parseLong(parts[5]));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+  private static Comparable<?> sortValueOf(TodoNode node, String sortField) {
+    return switch (sortField) {
+      case "dueDate" -> node.dueDate();
+      case "priority" -> node.priority();
+      case "title" -> node.title();
+      case "creationDate" -> node.creationDate();
+      default -> null; // displayOrder: the value travels in the displayOrder slot
+    };
+  }
+
+  private static Comparable<?> parseSortValue(String sortField, String value) {
+    if (value == null) {
+      return null;
+    }
+    return switch (sortField) {
+      case "dueDate" -> LocalDate.parse(value);
+      case "priority" -> Priority.valueOf(value);
+      case "title" -> value;
+      case "creationDate" -> LocalDateTime.parse(value);
+      case TodoService.RELEVANCE -> Double.valueOf(value);
+      default -> throw new IllegalArgumentException("Unexpected sort value for " + sortField);
+    };
+  }
+
+  private static String token(String value) {
+    if (value == null) {
+      return NULL_TOKEN;
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String untoken(String token) {
+    if (NULL_TOKEN.equals(token)) {
+      return null;
+    }
+    return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+  }
+}
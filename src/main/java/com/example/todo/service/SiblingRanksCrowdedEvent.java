@@ -0,0 +1,8 @@
+package com.example.todo.service;
+
+/**
+ * Published when a move leaves too little room between two sibling ranks.
+ * {@code parentId} is null for the top-level list.
+ */
+public record SiblingRanksCrowdedEvent(Long parentId) {
+}
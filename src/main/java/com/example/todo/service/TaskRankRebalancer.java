@@ -0,0 +1,65 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads the ranks of one sibling list back out to {@link DisplayOrderAllocator#GAP} spacing,
+ * keeping the current order. Runs in the background once a move reports crowded ranks, and inline
+ * when a move finds no room at all.
+ */
+@Component
+public class TaskRankRebalancer {
+
+    private final TodoRepository todoRepository;
+    private final DisplayOrderAllocator displayOrderAllocator;
+
+    @Autowired
+    public TaskRankRebalancer(TodoRepository todoRepository, DisplayOrderAllocator displayOrderAllocator) {
+        this.todoRepository = todoRepository;
+        this.displayOrderAllocator = displayOrderAllocator;
+    }
+
+    /** Respaces the children of {@code parentId} (top-level tasks when null). Returns the number of rows rewritten. */
+    @Transactional
+    public int rebalance(Long parentId) {
+        return respace(parentId);
+    }
+
+    @Async
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSiblingRanksCrowded(SiblingRanksCrowdedEvent event) {
+        respace(event.parentId());
+    }
+
+    private int respace(Long parentId) {
+        List<Todo> siblings = parentId == null
+                ? todoRepository.findTopLevelForUpdate()
+                : todoRepository.findChildrenForUpdate(parentId);
+
+        List<Todo> changed = new ArrayList<>();
+        long rank = 0;
+        for (Todo sibling : siblings) {
+            rank += DisplayOrderAllocator.GAP;
+            if (sibling.getDisplayOrder() == null || sibling.getDisplayOrder() != rank) {
+                sibling.setDisplayOrder(rank);
+                changed.add(sibling);
+            }
+        }
+        if (!changed.isEmpty()) {
+            displayOrderAllocator.observe(rank);
+            todoRepository.saveAll(changed);
+        }
+        return changed.size();
+    }
+}
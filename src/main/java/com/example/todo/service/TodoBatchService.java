@@ -0,0 +1,298 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.SubtreeRebase;
+import com.example.todo.repository.TodoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a list of {@link TodoOperation}s in one transaction, in order, each seeing the ones before it. Either the
+ * whole batch commits or, if the database refuses it, none of it; an operation that cannot be applied (a missing
+ * task, a missing title) only gets its own error result.
+ * <p>
+ * Built for thousands of operations: every task the batch names is loaded up front, {@value #LOAD_CHUNK} per query;
+ * entity writes go out in Hibernate's JDBC batches when the transaction flushes; and the statements over whole
+ * subtrees are sent after that, one JDBC batch per kind: completions, then rebases of moved subtrees (in operation
+ * order), then deletes. Only where that order would give another result does the batch send what it has so far
+ * first: before a task is created or moved into or out of a subtree with a pending completion, and before a subtree
+ * is completed that a pending rebase moves tasks into or out of.
+ * <p>
+ * Subscribers of {@link TodoChangeFeed} get the batch's changes through {@link TodoChangeFeed#publishAll}, as a
+ * single resync when there are many.
+ * <p>
+ * A moved task's subtasks only get their new paths at the end of the batch, so a later operation on a task below a
+ * task moved earlier in the same batch is refused with 409 Conflict. Operations on a task deleted earlier in the
+ * batch, or below one, get 404.
+ */
+@Service
+public class TodoBatchService {
+  public static final int MAX_OPERATIONS = 10_000;
+
+  private static final int LOAD_CHUNK = 1000;
+
+  private final TodoRepository todoRepository;
+  private final DisplayOrderAllocator displayOrderAllocator;
+  private final TodoReadModel readModel;
+  private final TodoChangeFeed changeFeed;
+  private final TodoSearchIndexer searchIndexer;
+
+  @Autowired
+  public TodoBatchService(TodoRepository todoRepository,
+                          DisplayOrderAllocator displayOrderAllocator,
+                          TodoReadModel readModel,
+                          TodoChangeFeed changeFeed,
+                          TodoSearchIndexer searchIndexer) {
+    this.todoRepository = todoRepository;
+    this.displayOrderAllocator = displayOrderAllocator;
+    this.readModel = readModel;
+    this.changeFeed = changeFeed;
+    this.searchIndexer = searchIndexer;
+  }
+
+  /**
+   * @return one result per operation, in the same order
+   * @throws IllegalArgumentException if there are more than {@value #MAX_OPERATIONS} operations
+   */
+  @Transactional
+  public List<TodoOperationResult> apply(List<TodoOperation> operations) {
+    if (operations.size() > MAX_OPERATIONS) {
+      throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations per batch");
+    }
+    Batch batch = new Batch(load(operations));
+    List<TodoOperationResult> results = new ArrayList<>(operations.size());
+    for (int i = 0; i < operations.size(); i++) {
+      results.add(batch.apply(i, operations.get(i)));
+    }
+    batch.finish();
+    changeFeed.publishAll(batch.changes);
+    return results;
+  }
+
+  // Every task an operation names, as the target or as the new parent
+  private Map<Long, Todo> load(List<TodoOperation> operations) {
+    Set<Long> ids = new HashSet<>();
+    for (TodoOperation operation : operations) {
+      if (operation != null) {
+        ids.add(operation.id());
+        ids.add(operation.parentId());
+      }
+    }
+    ids.remove(null);
+    List<Long> idList = new ArrayList<>(ids);
+    Map<Long, Todo> tasks = new HashMap<>();
+    for (int from = 0; from < idList.size(); from += LOAD_CHUNK) {
+      todoRepository.findAllById(idList.subList(from, Math.min(idList.size(), from + LOAD_CHUNK)))
+              .forEach(task -> tasks.put(task.getId(), task));
+    }
+    return tasks;
+  }
+
+  // The state of one batch as it is applied
+  private final class Batch {
+    final Map<Long, Todo> tasks;
+    final Set<Long> deleted = new HashSet<>();
+    final Set<Long> moved = new HashSet<>();
+    final List<TodoChange> changes = new ArrayList<>();
+    // Subtree statements not sent yet: descendant path prefixes to complete, rebases in operation order, and
+    // deletes keyed by task id
+    final List<String> completions = new ArrayList<>();
+    final List<SubtreeRebase> rebases = new ArrayList<>();
+    final Map<Long, String> deletes = new LinkedHashMap<>();
+    // Tasks whose subtree completion has not run yet: a task created or moved into or out of one of these subtrees
+    // must not be flushed to its new place before the statement has run
+    final Set<Long> completionsPending = new HashSet<>();
+    // Every task on the old or new path of a pending rebase: completing one of their subtrees must wait for it
+    final Set<Long> rebasesPending = new HashSet<>();
+
+    Batch(Map<Long, Todo> tasks) {
+      this.tasks = tasks;
+    }
+
+    TodoOperationResult apply(int index, TodoOperation operation) {
+      if (operation == null || operation.op() == null) {
+        return TodoOperationResult.failed(index, HttpStatus.BAD_REQUEST, null, "Missing op");
+      }
+      if (operation.op() == TodoOperation.Type.CREATE) {
+        return create(index, operation);
+      }
+      if (operation.id() == null) {
+        return TodoOperationResult.failed(index, HttpStatus.BAD_REQUEST, null, "Missing id");
+      }
+      Todo task = tasks.get(operation.id());
+      TodoOperationResult unusable = checkUsable(index, operation.id(), task);
+      if (unusable != null) {
+        return unusable;
+      }
+      return switch (operation.op()) {
+        case UPDATE -> update(index, task, operation);
+        case COMPLETE -> complete(index, task, operation.subtree());
+        case DELETE -> delete(index, task);
+        case MOVE -> move(index, task, operation.parentId());
+        case CREATE -> throw new IllegalStateException(); // Handled above
+      };
+    }
+
+    private TodoOperationResult create(int index, TodoOperation operation) {
+      if (operation.title() == null || operation.title().isBlank()) {
+        return TodoOperationResult.failed(index, HttpStatus.BAD_REQUEST, null, "Missing title");
+      }
+      Todo parent = null;
+      if (operation.parentId() != null) {
+        parent = tasks.get(operation.parentId());
+        TodoOperationResult unusable = checkUsable(index, operation.parentId(), parent);
+        if (unusable != null) {
+          return unusable;
+        }
+        runCompletionsFirst(parent, true);
+      }
+      Todo todo = new Todo(); // Default priority (MEDIUM) is set by the constructor
+      todo.setTitle(operation.title());
+      todo.setDueDate(operation.dueDate());
+      if (operation.priority() != null) {
+        todo.setPriority(operation.priority());
+      }
+      todo.setParent(parent);
+      todo.setDisplayOrder(displayOrderAllocator.nextAppendRank());
+      Todo saved = todoRepository.save(todo); // Persisted with its id; the INSERT waits for the flush
+      tasks.put(saved.getId(), saved);
+      changes.add(TodoChange.created(saved.getId(), operation.parentId()));
+      return TodoOperationResult.ok(index, HttpStatus.CREATED, saved.getId());
+    }
+
+    private TodoOperationResult update(int index, Todo task, TodoOperation operation) {
+      if (operation.title() == null || operation.title().isBlank()) {
+        return TodoOperationResult.failed(index, HttpStatus.BAD_REQUEST, task.getId(), "Missing title");
+      }
+      task.setTitle(operation.title());
+      task.setDueDate(operation.dueDate());
+      if (operation.priority() != null) {
+        task.setPriority(operation.priority());
+      }
+      changes.add(TodoChange.updated(task.getId()));
+      return TodoOperationResult.ok(index, HttpStatus.OK, task.getId());
+    }
+
+    private TodoOperationResult complete(int index, Todo task, boolean subtree) {
+      task.setCompleted(true);
+      if (subtree) {
+        if (rebasesPending.contains(task.getId())) {
+          runSubtreeStatements();
+        }
+        completions.add(task.getDescendantPathPrefix());
+        readModel.subtreeChanged(task.getDescendantPathPrefix());
+        completionsPending.add(task.getId());
+      }
+      changes.add(TodoChange.completed(task.getId()));
+      return TodoOperationResult.ok(index, HttpStatus.NO_CONTENT, task.getId());
+    }
+
+    private TodoOperationResult delete(int index, Todo task) {
+      deletes.put(task.getId(), task.getDescendantPathPrefix());
+      readModel.changed(task.getId()); // Its subtasks leave the model with it
+      deleted.add(task.getId());
+      changes.add(TodoChange.deleted(task.getId()));
+      return TodoOperationResult.ok(index, HttpStatus.NO_CONTENT, task.getId());
+    }
+
+    private TodoOperationResult move(int index, Todo task, Long newParentId) {
+      Todo newParent = null;
+      if (newParentId != null) {
+        newParent = tasks.get(newParentId);
+        TodoOperationResult unusable = checkUsable(index, newParentId, newParent);
+        if (unusable != null) {
+          return unusable;
+        }
+        if (newParent.getId() == task.getId() || newParent.getPath().startsWith(task.getDescendantPathPrefix())) {
+          return TodoOperationResult.failed(index, HttpStatus.BAD_REQUEST, task.getId(),
+                  "Task " + task.getId() + " cannot be moved under itself or one of its subtasks");
+        }
+      }
+      runCompletionsFirst(task, false);
+      if (newParent != null) {
+        runCompletionsFirst(newParent, true);
+      }
+      String oldDescendantPrefix = task.getDescendantPathPrefix();
+      int oldDepth = task.getDepth();
+      task.setParent(newParent);
+      task.placeUnder(newParent);
+      task.setDisplayOrder(displayOrderAllocator.nextAppendRank());
+      rebases.add(new SubtreeRebase(oldDescendantPrefix, task.getDescendantPathPrefix(), task.getDepth() - oldDepth));
+      for (long id : ancestorIds(oldDescendantPrefix)) {
+        rebasesPending.add(id);
+      }
+      for (long id : ancestorIds(task.getDescendantPathPrefix())) {
+        rebasesPending.add(id);
+      }
+      readModel.subtreeChanged(task.getDescendantPathPrefix());
+      moved.add(task.getId());
+      changes.add(TodoChange.reordered(task.getId(), newParentId, null, null)); // Appended
+      return TodoOperationResult.ok(index, HttpStatus.OK, task.getId());
+    }
+
+    // Null if the operation can go ahead on the task (or parent) with the given id
+    private TodoOperationResult checkUsable(int index, long id, Todo task) {
+      if (task == null || deleted.contains(id)) {
+        return TodoOperationResult.failed(index, HttpStatus.NOT_FOUND, null, "No task " + id);
+      }
+      for (long ancestorId : ancestorIds(task.getPath())) {
+        if (deleted.contains(ancestorId)) {
+          return TodoOperationResult.failed(index, HttpStatus.NOT_FOUND, null, "No task " + id);
+        }
+        if (moved.contains(ancestorId)) {
+          return TodoOperationResult.failed(index, HttpStatus.CONFLICT, id,
+                  "Task " + id + " is below task " + ancestorId + ", which this batch moved");
+        }
+      }
+      return null;
+    }
+
+    // Before a task lands in, or leaves, a subtree whose completion is pending
+    private void runCompletionsFirst(Todo task, boolean includingItself) {
+      if (completionsPending.isEmpty()) {
+        return;
+      }
+      boolean affected = includingItself && completionsPending.contains(task.getId());
+      for (long ancestorId : ancestorIds(task.getPath())) {
+        affected |= completionsPending.contains(ancestorId);
+      }
+      if (affected) {
+        runSubtreeStatements();
+      }
+    }
+
+    private static long[] ancestorIds(String path) {
+      return Arrays.stream(path.split("/")).filter(id -> !id.isEmpty()).mapToLong(Long::parseLong).toArray();
+    }
+
+    void finish() {
+      runSubtreeStatements();
+    }
+
+    // Entity writes first, so that the subtree statements see the batch's new and moved tasks
+    private void runSubtreeStatements() {
+      todoRepository.flush();
+      todoRepository.markSubtreesCompleted(completions);
+      todoRepository.rebaseSubtrees(rebases);
+      if (!deletes.isEmpty()) {
+        searchIndexer.deleted(todoRepository.deleteSubtrees(deletes));
+      }
+      completions.clear();
+      rebases.clear();
+      deletes.clear();
+      completionsPending.clear();
+      rebasesPending.clear();
+    }
+  }
+}
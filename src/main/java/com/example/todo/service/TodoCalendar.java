@@ -0,0 +1,55 @@
+package com.example.todo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The current day in the server's time zone, which the relative due-date filters (OVERDUE, TODAY, NEXT_7_DAYS)
+ * and the overdue marks in the list are computed against. Read from the clock once per call rather than once per
+ * task. {@link #advance()} runs at local midnight and publishes a {@link DayStartedEvent} for the day-relative
+ * state kept elsewhere; {@link #today()} advances too when it sees the clock on another day, so a tick that fires
+ * early or not at all does not leave the old day in place until the next midnight.
+ */
+@Component
+public class TodoCalendar {
+
+  private final Clock clock;
+  private final ApplicationEventPublisher eventPublisher;
+  private final AtomicReference<LocalDate> today;
+
+  @Autowired
+  public TodoCalendar(ApplicationEventPublisher eventPublisher) {
+    this(Clock.systemDefaultZone(), eventPublisher);
+  }
+
+  TodoCalendar(Clock clock, ApplicationEventPublisher eventPublisher) {
+    this.clock = clock;
+    this.eventPublisher = eventPublisher;
+    this.today = new AtomicReference<>(LocalDate.now(clock));
+  }
+
+  public LocalDate today() {
+    return advance(LocalDate.now(clock));
+  }
+
+  /** Moves to the clock's current day, if that is another day. */
+  @Scheduled(cron = "0 0 0 * * *")
+  public void advance() {
+    advance(LocalDate.now(clock));
+  }
+
+  // Not under a lock: listeners take their own, and today() is read while those are held
+  private LocalDate advance(LocalDate now) {
+    LocalDate current = today.get();
+    if (!now.equals(current) && today.compareAndSet(current, now)) {
+      eventPublisher.publishEvent(new DayStartedEvent(now));
+    }
+    return now;
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.todo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Locale;
+
+/**
+ * One committed change, as pushed by {@link TodoChangeFeed}. {@code parentId} is set for created and reordered
+ * tasks that are not top-level; {@code previousId} and {@code nextId} are the siblings a reordered task now sits
+ * between, null at either end of the list.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TodoChange(Type type, long id, Long parentId, Long previousId, Long nextId) {
+
+  public enum Type {
+    CREATED, UPDATED, COMPLETED, DELETED, REORDERED;
+
+    /** The SSE event name. */
+    public String eventName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  static TodoChange created(long id, Long parentId) {
+    return new TodoChange(Type.CREATED, id, parentId, null, null);
+  }
+
+  static TodoChange updated(long id) {
+    return new TodoChange(Type.UPDATED, id, null, null, null);
+  }
+
+  // For a whole subtree too: clients re-read the task with its subtasks
+  static TodoChange completed(long id) {
+    return new TodoChange(Type.COMPLETED, id, null, null, null);
+  }
+
+  static TodoChange deleted(long id) {
+    return new TodoChange(Type.DELETED, id, null, null, null);
+  }
+
+  static TodoChange reordered(long id, Long parentId, Long previousId, Long nextId) {
+    return new TodoChange(Type.REORDERED, id, parentId, previousId, nextId);
+  }
+}
@@ -0,0 +1,321 @@
+package com.example.todo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes {@link TodoChange}s to Server-Sent Events subscribers once the transaction that made them has committed.
+ * <p>
+ * An idle subscriber costs an asynchronous request and an empty queue: no thread waits on it. Events are written by a
+ * few sender threads, never by the committing one, with non-blocking servlet output: a sender writes what the
+ * connection takes and moves on, and the container calls back once a slow client has taken the rest, so stalled
+ * clients cannot hold up the others. Each subscriber buffers at most {@code todo.change-feed.buffer} events; one that
+ * falls further behind is dropped, and its browser reconnects with Last-Event-ID. The last
+ * {@code todo.change-feed.history} events are replayed on such a reconnect; a client that missed more, or whose id
+ * is from before a restart, gets a {@value #RESYNC} event instead.
+ */
+@Component
+public class TodoChangeFeed {
+  public static final String RESYNC = "resync";
+
+  // An event as queued for every subscriber: its text/event-stream frame, written once
+  private record Event(byte[] frame) {
+
+    static Event of(String id, String name, String json) {
+      return new Event(("id:" + id + "\nevent:" + name + "\ndata:" + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  // A comment: keeps proxies from closing idle streams and finds the connections that are gone
+  private static final Event HEARTBEAT = new Event(":heartbeat\n\n".getBytes(StandardCharsets.UTF_8));
+
+  private final ObjectMapper objectMapper;
+  private final int bufferSize;
+  private final int historySize;
+  private final long timeoutMillis;
+  private final Executor senders;
+  // Event ids are "<instance>-<sequence>", so that ids from before a restart are recognized
+  private final String instance = Long.toString(System.currentTimeMillis(), 36);
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final ArrayDeque<Event> history = new ArrayDeque<>(); // Also guards sequence and the order of offers
+  private long sequence;
+
+  @Autowired
+  public TodoChangeFeed(ObjectMapper objectMapper,
+                        @Value("${todo.change-feed.buffer:256}") int bufferSize,
+                        @Value("${todo.change-feed.history:1000}") int historySize,
+                        @Value("${todo.change-feed.timeout-millis:1800000}") long timeoutMillis,
+                        @Value("${todo.change-feed.sender-threads:2}") int senderThreads) {
+    this(objectMapper, bufferSize, historySize, timeoutMillis, Executors.newFixedThreadPool(senderThreads, runnable -> {
+      Thread thread = new Thread(runnable, "todo-change-feed");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  TodoChangeFeed(ObjectMapper objectMapper, int bufferSize, int historySize, long timeoutMillis, Executor senders) {
+    this.objectMapper = objectMapper;
+    this.bufferSize = bufferSize;
+    this.historySize = historySize;
+    this.timeoutMillis = timeoutMillis;
+    this.senders = senders;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (senders instanceof ExecutorService executorService) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /** The id of the last event; a page rendered now passes it to {@link #subscribe} to miss nothing in between. */
+  public String lastEventId() {
+    synchronized (history) {
+      return instance + "-" + sequence;
+    }
+  }
+
+  /**
+   * A new subscriber, writing to {@code out} of the started {@code async} request. Events after {@code lastEventId}
+   * are replayed first; null starts from the next event. The request completes when the subscriber is dropped or
+   * after {@code todo.change-feed.timeout-millis}, and the browser reconnects with Last-Event-ID.
+   */
+  public void subscribe(String lastEventId, AsyncContext async, ServletOutputStream out) {
+    Subscriber subscriber = new Subscriber(async, out);
+    async.setTimeout(timeoutMillis);
+    async.addListener(subscriber);
+    synchronized (history) {
+      long after = sequenceOf(lastEventId);
+      if (after != sequence) {
+        if (after < 0 || after > sequence || sequence - after > Math.min(history.size(), bufferSize)) {
+          subscriber.offer(Event.of(instance + "-" + sequence, RESYNC, "{}"));
+        } else {
+          history.stream().skip(history.size() - (sequence - after)).forEach(subscriber::offer);
+        }
+      }
+      subscribers.add(subscriber);
+    }
+    out.setWriteListener(subscriber); // Nothing is written before the container's first call
+  }
+
+  /** Sends the change to every subscriber once the current transaction commits, or now outside of one. */
+  public void publish(TodoChange change) {
+    afterCommit(() -> broadcast(change));
+  }
+
+  /**
+   * Like {@link #publish} for each change, but more changes than half a subscriber's buffer go out as one
+   * {@value #RESYNC} event instead: sent one by one they would drop every subscriber that is not idle.
+   */
+  public void publishAll(List<TodoChange> changes) {
+    if (changes.size() <= bufferSize / 2) {
+      changes.forEach(this::publish);
+    } else {
+      afterCommit(() -> broadcast(RESYNC, "{}"));
+    }
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  @Scheduled(fixedDelayString = "${todo.change-feed.heartbeat-millis:30000}")
+  void heartbeat() {
+    synchronized (history) {
+      subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+  }
+
+  int subscriberCount() {
+    return subscribers.size();
+  }
+
+  private void broadcast(TodoChange change) {
+    try {
+      broadcast(change.type().eventName(), objectMapper.writeValueAsString(change));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Kept in the history like any change, so that a client replaying past it resyncs too
+  private void broadcast(String name, String json) {
+    synchronized (history) {
+      Event event = Event.of(instance + "-" + ++sequence, name, json);
+      history.addLast(event);
+      if (history.size() > historySize) {
+        history.removeFirst();
+      }
+      subscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+  }
+
+  // The current sequence for null (nothing to replay), -1 for malformed ids and another instance's
+  private long sequenceOf(String eventId) {
+    if (eventId == null || !eventId.startsWith(instance + "-")) {
+      return eventId == null ? sequence : -1;
+    }
+    try {
+      return Long.parseLong(eventId.substring(instance.length() + 1));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private final class Subscriber implements WriteListener, AsyncListener {
+    final AsyncContext async;
+    final ServletOutputStream out;
+    final BlockingQueue<Event> buffer = new LinkedBlockingQueue<>(bufferSize);
+    final AtomicBoolean sending = new AtomicBoolean();
+    // Guarded by this: the container has called onWritePossible; something is written since the last flush (the
+    // headers, at first: the browser's EventSource opens on them); completed
+    private boolean writable;
+    private boolean unflushed = true;
+    private boolean closed;
+
+    Subscriber(AsyncContext async, ServletOutputStream out) {
+      this.async = async;
+      this.out = out;
+    }
+
+    void offer(Event event) {
+      if (!buffer.offer(event)) {
+        drop(); // Too slow: the buffer is full
+      } else if (sending.compareAndSet(false, true)) {
+        senders.execute(this::send);
+      }
+    }
+
+    // One sender per subscriber at a time, so events go out in order. When the output is full the rest waits for
+    // onWritePossible instead of another sender
+    void send() {
+      boolean drained;
+      try {
+        drained = write();
+      } catch (IOException | IllegalStateException e) {
+        close(); // Gone; sending stays set, so nothing more is scheduled
+        return;
+      }
+      sending.set(false);
+      if (drained && !buffer.isEmpty() && sending.compareAndSet(false, true)) {
+        senders.execute(this::send);
+      }
+    }
+
+    // Writes buffered events, then flushes, for as long as the output takes them without blocking. False when the
+    // output filled up, or before the container's first onWritePossible
+    synchronized boolean write() throws IOException {
+      if (!writable || closed) {
+        return false;
+      }
+      while (out.isReady()) {
+        Event event = buffer.poll();
+        if (event != null) {
+          out.write(event.frame());
+          unflushed = true;
+        } else if (unflushed) {
+          unflushed = false;
+          out.flush();
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void onWritePossible() {
+      synchronized (this) {
+        writable = true;
+      }
+      try {
+        write();
+      } catch (IOException | IllegalStateException e) {
+        close(); // Not thrown on to the container, which would dispatch the request to the error page
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      close();
+    }
+
+    // Completing does not block either; a write in progress finishes first
+    void drop() {
+      if (subscribers.remove(this)) {
+        buffer.clear();
+        close();
+      }
+    }
+
+    // Also on every error callback, even if already closed: a write that failed on a sender thread puts the request
+    // in an error state that a complete() from before does not end, and unless a listener completes it there, the
+    // container dispatches it to the error page, which cannot render onto an event stream
+    synchronized void close() {
+      subscribers.remove(this);
+      closed = true;
+      try {
+        async.complete();
+      } catch (IllegalStateException e) {
+        // Completed by the container in the meantime
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      synchronized (this) {
+        closed = true;
+      }
+      subscribers.remove(this);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      close(); // The browser reconnects with Last-Event-ID
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.repository.TodoNode;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The counts behind {@link TodoSummary}, kept up to date one row at a time: {@link #add} a row as it appears
+ * and again with a negative count as it goes, and the summary is read without looking at any row.
+ * <p>
+ * The due-date counts are relative to {@link #today()}. Pending tasks are also counted per due date, so
+ * {@link #rollOver} moves the counts to a new day without a scan: one day forward moves the tasks due on the old
+ * day to overdue, and shifts the seven-day window by one date.
+ * <p>
+ * Not thread-safe; {@link TodoReadModel} only touches it under its lock.
+ */
+final class TodoCounters {
+  static final int NEXT_DAYS = 7;
+
+  private LocalDate today;
+  private long pending;
+  private long completed;
+  private final long[] pendingByPriority = new long[Priority.values().length];
+  private final Map<LocalDate, Long> pendingByDueDate = new HashMap<>();
+  private long overdue;
+  private long dueToday;
+  private long dueNextDays;
+
+  TodoCounters(LocalDate today) {
+    this.today = today;
+  }
+
+  LocalDate today() {
+    return today;
+  }
+
+  /** Counts a row once more ({@code count} 1) or once less (-1). Subtasks are not counted. */
+  void add(TodoNode node, long count) {
+    if (node.parentId() == null) {
+      add(node.completed(), node.priority(), node.dueDate(), count);
+    }
+  }
+
+  void add(boolean isCompleted, Priority priority, LocalDate dueDate, long count) {
+    if (isCompleted) {
+      completed += count;
+      return;
+    }
+    pending += count;
+    if (priority != null) {
+      pendingByPriority[priority.ordinal()] += count;
+    }
+    if (dueDate != null) {
+      pendingByDueDate.compute(dueDate, (date, due) -> {
+        long sum = (due == null ? 0 : due) + count;
+        return sum == 0 ? null : sum;
+      });
+      bucket(dueDate, count);
+    }
+  }
+
+  /** Moves the due-date counts to another day; a jump back in time, or over many days, recounts them instead. */
+  void rollOver(LocalDate newToday) {
+    long days = ChronoUnit.DAYS.between(today, newToday);
+    if (days < 0 || days > pendingByDueDate.size()) {
+      today = newToday;
+      overdue = dueToday = dueNextDays = 0;
+      pendingByDueDate.forEach(this::bucket);
+      return;
+    }
+    for (; days > 0; days--) {
+      long leaving = dueOn(today);
+      overdue += leaving;
+      dueToday = dueOn(today.plusDays(1));
+      dueNextDays += dueOn(today.plusDays(NEXT_DAYS)) - leaving;
+      today = today.plusDays(1);
+    }
+  }
+
+  /** Forgets every row. */
+  void clear(LocalDate newToday) {
+    today = newToday;
+    pending = completed = overdue = dueToday = dueNextDays = 0;
+    Arrays.fill(pendingByPriority, 0);
+    pendingByDueDate.clear();
+  }
+
+  TodoSummary summary() {
+    Map<Priority, Long> byPriority = new EnumMap<>(Priority.class);
+    for (Priority priority : Priority.values()) {
+      byPriority.put(priority, pendingByPriority[priority.ordinal()]);
+    }
+    return new TodoSummary(today, pending, completed, byPriority, overdue, dueToday, dueNextDays);
+  }
+
+  private long dueOn(LocalDate date) {
+    return pendingByDueDate.getOrDefault(date, 0L);
+  }
+
+  private void bucket(LocalDate dueDate, long count) {
+    if (dueDate.isBefore(today)) {
+      overdue += count;
+      return;
+    }
+    if (dueDate.equals(today)) {
+      dueToday += count;
+    }
+    if (dueDate.isBefore(today.plusDays(NEXT_DAYS))) {
+      dueNextDays += count;
+    }
+  }
+}
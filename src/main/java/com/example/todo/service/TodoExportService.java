@@ -0,0 +1,157 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every task as NDJSON or CSV while it is read from a forward-only cursor.
+ * <p>
+ * Rows come out parents first with {@code ref} set to the task id and {@code parentRef} to its parent's id,
+ * so an export can be fed back into {@link TodoImportService} unchanged.
+ * The persistence context is cleared every {@link TodoRepository#STREAM_FETCH_SIZE} rows, so heap use
+ * does not grow with the number of tasks.
+ */
+@Service
+public class TodoExportService {
+  static final String[] CSV_COLUMNS = {"ref", "parentRef", "title", "dueDate", "priority", "completed"};
+
+  private final TodoRepository todoRepository;
+  private final ObjectMapper objectMapper;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  public TodoExportService(TodoRepository todoRepository, ObjectMapper objectMapper) {
+    this.todoRepository = todoRepository;
+    this.objectMapper = objectMapper;
+  }
+
+  /** Returns the number of rows written. The writer is flushed but not closed. */
+  @Transactional(readOnly = true)
+  public long exportTodos(Writer out, TransferFormat format) throws IOException {
+    RowWriter rowWriter = format == TransferFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+    long rows = 0;
+    try (Stream<Todo> todos = todoRepository.streamAllForExport()) {
+      Iterator<Todo> iterator = todos.iterator();
+      while (iterator.hasNext()) {
+        rowWriter.write(iterator.next());
+        if (++rows % TodoRepository.STREAM_FETCH_SIZE == 0) {
+          // Rows already written are not needed again; drop them (and any parent proxies) from the session
+          entityManager.clear();
+          out.flush();
+        }
+      }
+    }
+    rowWriter.finish();
+    out.flush();
+    return rows;
+  }
+
+  private static String parentRef(Todo todo) {
+    // getId() on the lazy parent proxy reads the foreign key; the parent row is not loaded
+    return todo.getParent() == null ? null : String.valueOf(todo.getParent().getId());
+  }
+
+  private interface RowWriter {
+    void write(Todo todo) throws IOException;
+
+    void finish() throws IOException;
+  }
+
+  private final class NdjsonRowWriter implements RowWriter {
+    private final Writer out;
+    private final JsonGenerator json;
+
+    NdjsonRowWriter(Writer out) throws IOException {
+      this.out = out;
+      this.json = objectMapper.getFactory().createGenerator(out);
+      this.json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      this.json.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false); // Only exportTodos flushes the response
+      this.json.setRootValueSeparator(null); // Lines are separated by '\n' below, not by Jackson's default space
+    }
+
+    @Override
+    public void write(Todo todo) throws IOException {
+      json.writeStartObject();
+      json.writeStringField("ref", String.valueOf(todo.getId()));
+      String parentRef = parentRef(todo);
+      if (parentRef != null) {
+        json.writeStringField("parentRef", parentRef);
+      }
+      json.writeStringField("title", todo.getTitle());
+      if (todo.getDueDate() != null) {
+        json.writeStringField("dueDate", todo.getDueDate().toString());
+      }
+      if (todo.getPriority() != null) {
+        json.writeStringField("priority", todo.getPriority().name());
+      }
+      json.writeBooleanField("completed", todo.isCompleted());
+      json.writeEndObject();
+      json.flush();
+      out.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+      json.close();
+    }
+  }
+
+  private static final class CsvRowWriter implements RowWriter {
+    private final Writer out;
+
+    CsvRowWriter(Writer out) throws IOException {
+      this.out = out;
+      out.write(String.join(",", CSV_COLUMNS));
+      out.write('\n');
+    }
+
+    @Override
+    public void write(Todo todo) throws IOException {
+      out.write(String.valueOf(todo.getId()));
+      out.write(',');
+      out.write(nullToEmpty(parentRef(todo)));
+      out.write(',');
+      out.write(quote(todo.getTitle()));
+      out.write(',');
+      out.write(todo.getDueDate() == null ? "" : todo.getDueDate().toString());
+      out.write(',');
+      out.write(todo.getPriority() == null ? "" : todo.getPriority().name());
+      out.write(',');
+      out.write(String.valueOf(todo.isCompleted()));
+      out.write('\n');
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    private static String nullToEmpty(String value) {
+      return value == null ? "" : value;
+    }
+
+    // Same quoting rules TodoImportService.splitCsvLine reads back
+    private static String quote(String value) {
+      if (value == null) {
+        return "";
+      }
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+}
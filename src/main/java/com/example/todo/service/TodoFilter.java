@@ -0,0 +1,104 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoNode;
+import com.example.todo.repository.TodoSpecification;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The list filters of {@link TodoService}, parsed once. Applied as a Specification when the list is read from
+ * the database and as a predicate when {@link TodoReadModel} answers it; both forms select the same top-level tasks.
+ *
+ * @param dueFrom first due date that matches, inclusive; null for any due date
+ * @param dueTo last due date that matches, inclusive
+ * @param overdueAsOf when set, only pending tasks due before this day match
+ * @param ids search matches, or null without a search
+ */
+record TodoFilter(Boolean completed, Priority priority, LocalDate dueFrom, LocalDate dueTo, LocalDate overdueAsOf,
+                  Set<Long> ids) {
+
+  static TodoFilter of(String filterByStatus, Priority filterByPriority, String filterByDueDate,
+                       Collection<Long> ids, LocalDate today) {
+    // Status Filter
+    Boolean completed = null;
+    if ("COMPLETED".equalsIgnoreCase(filterByStatus)) {
+        completed = true;
+    } else if ("PENDING".equalsIgnoreCase(filterByStatus)) {
+        completed = false;
+    }
+
+    // Due Date Filter
+    LocalDate dueFrom = null;
+    LocalDate dueTo = null;
+    LocalDate overdueAsOf = null;
+    if (filterByDueDate != null && !filterByDueDate.trim().isEmpty() && !"ALL".equalsIgnoreCase(filterByDueDate)) {
+        try {
+            // Try to parse as a specific date first
+            dueFrom = dueTo = LocalDate.parse(filterByDueDate); // Expects YYYY-MM-DD
+        } catch (DateTimeParseException e) {
+            // If not a specific date, check for keywords
+            if ("OVERDUE".equalsIgnoreCase(filterByDueDate)) {
+                overdueAsOf = today;
+            } else if ("TODAY".equalsIgnoreCase(filterByDueDate)) {
+                dueFrom = dueTo = today;
+            } else if ("NEXT_7_DAYS".equalsIgnoreCase(filterByDueDate)) {
+                dueFrom = today;
+                dueTo = today.plusDays(6); // Inclusive of today
+            }
+            // else: unknown keyword, ignore or log warning
+        }
+    }
+    return new TodoFilter(completed, filterByPriority, dueFrom, dueTo, overdueAsOf,
+            ids == null ? null : new HashSet<>(ids));
+  }
+
+  Specification<Todo> toSpecification() {
+    Specification<Todo> spec = Specification.where(TodoSpecification.isTopLevelTask());
+    if (completed != null) {
+        spec = spec.and(TodoSpecification.hasStatus(completed));
+    }
+    if (priority != null) {
+        spec = spec.and(TodoSpecification.hasPriority(priority));
+    }
+    if (overdueAsOf != null) {
+        spec = spec.and(TodoSpecification.isOverdue(overdueAsOf));
+    } else if (dueFrom != null && dueFrom.equals(dueTo)) {
+        spec = spec.and(TodoSpecification.hasDueDate(dueFrom));
+    } else if (dueFrom != null) {
+        spec = spec.and(TodoSpecification.dueNextDays(dueFrom, (int) ChronoUnit.DAYS.between(dueFrom, dueTo) + 1));
+    }
+    if (ids != null) {
+        spec = spec.and(TodoSpecification.hasIdIn(ids));
+    }
+    return spec;
+  }
+
+  boolean test(TodoNode node) {
+    if (node.depth() != 0) {
+      return false;
+    }
+    if (completed != null && node.completed() != completed) {
+      return false;
+    }
+    if (priority != null && node.priority() != priority) {
+      return false;
+    }
+    LocalDate due = node.dueDate();
+    if (overdueAsOf != null) {
+      if (due == null || !due.isBefore(overdueAsOf) || node.completed()) {
+        return false;
+      }
+    } else if (dueFrom != null && (due == null || due.isBefore(dueFrom) || due.isAfter(dueTo))) {
+      return false;
+    }
+    return ids == null || ids.contains(node.id());
+  }
+}
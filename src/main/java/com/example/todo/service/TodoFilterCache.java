@@ -0,0 +1,152 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The ordered top-level task ids of recent {@link TodoService#getTodos} calls, keyed by their parameters in
+ * canonical form ({@link Key}), so that equivalent requests share an entry.
+ * <p>
+ * An entry is served only while {@link TodoReadModel#version()} is the one it was computed under: any committed
+ * write makes every entry stale. Entries for OVERDUE, TODAY and NEXT_7_DAYS also expire when
+ * {@link TodoCalendar} moves to the next day.
+ * The cache holds at most {@code todo.filter-cache.max-ids} ids in total and drops the least recently used
+ * entries to make room.
+ */
+@Component
+public class TodoFilterCache {
+
+  /**
+   * getTodos parameters as the service interprets them: case and blank or ALL values do not matter,
+   * unknown due-date keywords are dropped, and the sort is the one actually applied.
+   *
+   * @param dueDate OVERDUE, TODAY, NEXT_7_DAYS, an ISO date or null
+   * @param search the search term folded like the search indexes fold titles, or null
+   */
+  public record Key(Boolean completed, Priority priority, String dueDate, String search,
+                    String sortField, boolean descending) {
+
+    static Key of(String filterByStatus, Priority filterByPriority, String filterByDueDate,
+                  String searchTerm, String sortBy, String sortDir) {
+      Boolean completed = null;
+      if ("COMPLETED".equalsIgnoreCase(filterByStatus)) {
+        completed = true;
+      } else if ("PENDING".equalsIgnoreCase(filterByStatus)) {
+        completed = false;
+      }
+      String search = searchTerm == null || searchTerm.isBlank() ? null : TodoSearchIndex.fold(searchTerm.strip());
+      String sortField = TodoService.sortFieldFor(sortBy, search != null);
+      boolean descending = !TodoService.RELEVANCE.equals(sortField) && "DESC".equalsIgnoreCase(sortDir);
+      return new Key(completed, filterByPriority, dueDate(filterByDueDate), search, sortField, descending);
+    }
+
+    private static String dueDate(String filterByDueDate) {
+      if (filterByDueDate == null || filterByDueDate.isBlank()) {
+        return null;
+      }
+      String dueDate = filterByDueDate.trim().toUpperCase(Locale.ROOT);
+      try {
+        return LocalDate.parse(dueDate).toString();
+      } catch (DateTimeParseException e) {
+        return List.of("OVERDUE", "TODAY", "NEXT_7_DAYS").contains(dueDate) ? dueDate : null;
+      }
+    }
+
+    /** Whether the result depends on the current date. */
+    boolean isRelative() {
+      return dueDate != null && Character.isLetter(dueDate.charAt(0));
+    }
+
+    /** Whether getTodos results for this due-date filter depend on the current date. */
+    static boolean isRelative(String filterByDueDate) {
+      String dueDate = dueDate(filterByDueDate);
+      return dueDate != null && Character.isLetter(dueDate.charAt(0));
+    }
+
+    String status() {
+      return completed == null ? null : completed ? "COMPLETED" : "PENDING";
+    }
+  }
+
+  private record Entry(long version, LocalDate validOn, long[] ids) {
+  }
+
+  private final long maxIds;
+  private final LongSupplier currentVersion;
+  private final Supplier<LocalDate> today;
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedIds;
+
+  @Autowired
+  public TodoFilterCache(@Value("${todo.filter-cache.max-ids:1000000}") long maxIds, TodoReadModel readModel,
+                         TodoCalendar calendar) {
+    this(maxIds, readModel::version, calendar::today);
+  }
+
+  TodoFilterCache(long maxIds, LongSupplier currentVersion, Supplier<LocalDate> today) {
+    this.maxIds = maxIds;
+    this.currentVersion = currentVersion;
+    this.today = today;
+  }
+
+  /** The version to pass to {@link #put}; read it before computing the result. */
+  long version() {
+    return currentVersion.getAsLong();
+  }
+
+  /** The cached ids for the key, if there is a current entry. */
+  synchronized Optional<List<Long>> get(Key key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    if (entry.version() != currentVersion.getAsLong()
+            || (entry.validOn() != null && !entry.validOn().equals(today.get()))) {
+      remove(key);
+      return Optional.empty();
+    }
+    return Optional.of(Arrays.stream(entry.ids()).boxed().toList());
+  }
+
+  /** Caches a result computed under {@code version}, unless a write has been applied since. */
+  synchronized void put(Key key, long version, List<Long> ids) {
+    if (version != currentVersion.getAsLong() || ids.size() > maxIds) {
+      return;
+    }
+    remove(key);
+    entries.put(key, new Entry(version, key.isRelative() ? today.get() : null,
+            ids.stream().mapToLong(Long::longValue).toArray()));
+    cachedIds += ids.size();
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (cachedIds > maxIds) {
+      cachedIds -= eldest.next().ids().length;
+      eldest.remove();
+    }
+  }
+
+  /** Number of cached results. */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private void remove(Key key) {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      cachedIds -= removed.ids().length;
+    }
+  }
+}
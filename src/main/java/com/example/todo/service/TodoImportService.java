@@ -0,0 +1,357 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams tasks from NDJSON or CSV into the database, one line at a time.
+ * <p>
+ * Rows are inserted in transactions of {@link #BATCH_SIZE}; the persistence context is cleared after
+ * every batch, so memory does not grow with the size of the input. The only state kept across batches
+ * is the id assigned to each row that declares a {@code ref}, so later rows can name it as {@code parentRef}.
+ * <p>
+ * Columns / fields: {@code ref}, {@code parentRef} (a ref from an earlier row), {@code parentId} (an existing task),
+ * {@code title} (required, at most {@link Todo#MAX_TITLE_LENGTH} characters), {@code dueDate} (ISO date), {@code priority} (HIGH, MEDIUM, LOW), {@code completed}.
+ * CSV input needs a header line naming the columns. A quoted field may span lines, as exported titles with line
+ * breaks do; each break reads back as {@code \n}. A record that is still open after {@link #MAX_RECORD_LENGTH}
+ * characters or at the end of the input is taken for a stray quote: its first line is reported and reading goes on
+ * from the line after it.
+ */
+@Service
+public class TodoImportService {
+  static final int BATCH_SIZE = 10 * Todo.ID_ALLOCATION_SIZE;
+  static final String ROW_REJECTED = "Rejected by the database";
+  static final String UNTERMINATED_QUOTE = "Unterminated quoted field";
+  // Far more than any valid record needs, and little enough to hold while looking for a closing quote
+  static final int MAX_RECORD_LENGTH = 16 * 1024;
+
+  private static final Logger log = LoggerFactory.getLogger(TodoImportService.class);
+
+  /** Running totals, reported after each full batch commits and returned at the end. */
+  public record Progress(long rowsRead, long imported, long failed) {
+  }
+
+  /** Receives results while the import runs, so nothing has to be collected in memory. */
+  public interface Listener {
+    void onRowError(long lineNumber, String message);
+
+    void onProgress(Progress progress);
+  }
+
+  private record ImportRow(long lineNumber, String ref, String parentRef, Long parentId,
+                           String title, LocalDate dueDate, Priority priority, boolean completed) {
+  }
+
+  private final TodoRepository todoRepository;
+  private final TodoService todoService;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  public TodoImportService(TodoRepository todoRepository, TodoService todoService,
+                           PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+    this.todoRepository = todoRepository;
+    this.todoService = todoService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+  }
+
+  public Progress importTodos(Reader input, TransferFormat format, Listener listener) throws IOException {
+    BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+    Map<String, Long> idsByRef = new HashMap<>();
+    List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+    long rowsRead = 0;
+    long imported = 0;
+    long failed = 0;
+
+    String[] csvHeader = null;
+    // Lines read past a stray quote, to be read again; never more than MAX_RECORD_LENGTH characters
+    Deque<String> unread = new ArrayDeque<>();
+    long lineNumber = 0;
+    String line;
+    while ((line = readLine(reader, unread)) != null) {
+      lineNumber++;
+      if (line.isBlank()) {
+        continue;
+      }
+      long firstLineNumber = lineNumber;
+      if (format == TransferFormat.CSV && hasOddQuotes(line)) {
+        // Inside a quoted field: the record goes on to the line with its closing quote
+        List<String> continuation = new ArrayList<>();
+        int length = line.length();
+        boolean open = true;
+        String next;
+        while (open && length <= MAX_RECORD_LENGTH && (next = readLine(reader, unread)) != null) {
+          continuation.add(next);
+          length += 1 + next.length();
+          open = !hasOddQuotes(next);
+        }
+        if (open || length > MAX_RECORD_LENGTH) {
+          for (int i = continuation.size() - 1; i >= 0; i--) {
+            unread.addFirst(continuation.get(i));
+          }
+          if (csvHeader != null) {
+            rowsRead++;
+            failed++;
+          }
+          listener.onRowError(firstLineNumber, UNTERMINATED_QUOTE);
+          continue;
+        }
+        lineNumber += continuation.size();
+        line = line + "\n" + String.join("\n", continuation);
+      }
+      if (format == TransferFormat.CSV && csvHeader == null) {
+        csvHeader = splitCsvLine(line).stream().map(c -> c.trim().toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        continue;
+      }
+      rowsRead++;
+      try {
+        batch.add(format == TransferFormat.CSV
+                ? parseCsv(firstLineNumber, line, csvHeader)
+                : parseNdjson(firstLineNumber, line));
+      } catch (IllegalArgumentException e) {
+        failed++;
+        listener.onRowError(firstLineNumber, e.getMessage());
+      }
+      if (batch.size() == BATCH_SIZE) {
+        long saved = importBatch(batch, idsByRef, listener);
+        imported += saved;
+        failed += batch.size() - saved;
+        batch.clear();
+        listener.onProgress(new Progress(rowsRead, imported, failed));
+      }
+    }
+    if (!batch.isEmpty()) {
+      long saved = importBatch(batch, idsByRef, listener);
+      imported += saved;
+      failed += batch.size() - saved;
+    }
+    return new Progress(rowsRead, imported, failed);
+  }
+
+  // Inserts one batch in its own transaction and returns how many rows were saved. A batch the database refuses is
+  // inserted again one row at a time, so only the rows it refuses fail
+  private long importBatch(List<ImportRow> batch, Map<String, Long> idsByRef, Listener listener) {
+    Map<String, Long> newRefs = new HashMap<>();
+    List<ImportRow> rejected = new ArrayList<>();
+    Long saved;
+    try {
+      saved = transactionTemplate.execute(status -> {
+        Map<Long, Todo> existingParents = loadExistingParents(batch, idsByRef);
+        Map<String, Todo> batchTodosByRef = new HashMap<>();
+        List<Todo> todos = new ArrayList<>(batch.size());
+        List<ImportRow> accepted = new ArrayList<>(batch.size());
+
+        for (ImportRow row : batch) {
+          Todo parent = null;
+          if (row.parentRef() != null) {
+            parent = batchTodosByRef.get(row.parentRef());
+            Long committedId = idsByRef.get(row.parentRef());
+            if (parent == null && committedId != null) {
+              parent = existingParents.get(committedId);
+            }
+          } else if (row.parentId() != null) {
+            parent = existingParents.get(row.parentId());
+          }
+          if (parent == null && (row.parentRef() != null || row.parentId() != null)) {
+            rejected.add(row);
+            continue;
+          }
+          Todo todo = new Todo();
+          todo.setTitle(row.title());
+          todo.setDueDate(row.dueDate());
+          todo.setCompleted(row.completed());
+          if (row.priority() != null) {
+            todo.setPriority(row.priority());
+          }
+          todo.setParent(parent);
+          if (row.ref() != null) {
+            batchTodosByRef.put(row.ref(), todo);
+          }
+          todos.add(todo);
+          accepted.add(row);
+        }
+
+        todoService.addTodos(todos);
+        entityManager.flush();
+        for (int i = 0; i < accepted.size(); i++) {
+          if (accepted.get(i).ref() != null) {
+            newRefs.put(accepted.get(i).ref(), todos.get(i).getId());
+          }
+        }
+        // Drop everything this batch loaded; the next batch starts with an empty persistence context
+        entityManager.clear();
+        return (long) todos.size();
+      });
+    } catch (RuntimeException e) {
+      if (batch.size() > 1) {
+        long savedOneByOne = 0;
+        for (ImportRow row : batch) {
+          savedOneByOne += importBatch(List.of(row), idsByRef, listener);
+        }
+        return savedOneByOne;
+      }
+      // The cause stays in the log: it can name tables, columns and values the client has no business seeing
+      log.warn("Import of line {} was rolled back", batch.get(0).lineNumber(), e);
+      listener.onRowError(batch.get(0).lineNumber(), ROW_REJECTED);
+      return 0;
+    }
+    // Refs only become visible to later rows once their batch has committed
+    idsByRef.putAll(newRefs);
+    for (ImportRow row : rejected) {
+      listener.onRowError(row.lineNumber(), row.parentRef() != null
+              ? "Unknown parentRef: " + row.parentRef()
+              : "Parent task not found: " + row.parentId());
+    }
+    return saved == null ? 0 : saved;
+  }
+
+  private Map<Long, Todo> loadExistingParents(List<ImportRow> batch, Map<String, Long> idsByRef) {
+    Set<Long> parentIds = new HashSet<>();
+    for (ImportRow row : batch) {
+      if (row.parentRef() != null) {
+        Long id = idsByRef.get(row.parentRef());
+        if (id != null) {
+          parentIds.add(id);
+        }
+      } else if (row.parentId() != null) {
+        parentIds.add(row.parentId());
+      }
+    }
+    if (parentIds.isEmpty()) {
+      return Map.of();
+    }
+    return todoRepository.findAllById(parentIds).stream()
+            .collect(Collectors.toMap(Todo::getId, Function.identity()));
+  }
+
+  private ImportRow parseNdjson(long lineNumber, String line) {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(line);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+    }
+    if (node == null || !node.isObject()) {
+      throw new IllegalArgumentException("Expected a JSON object");
+    }
+    Function<String, String> field = name -> {
+      JsonNode value = node.get(name);
+      return value == null || value.isNull() ? null : value.asText();
+    };
+    return toRow(lineNumber, field);
+  }
+
+  private ImportRow parseCsv(long lineNumber, String line, String[] header) {
+    List<String> values = splitCsvLine(line);
+    Map<String, String> byColumn = new HashMap<>();
+    for (int i = 0; i < header.length && i < values.size(); i++) {
+      byColumn.put(header[i], values.get(i));
+    }
+    return toRow(lineNumber, name -> byColumn.get(name.toLowerCase(Locale.ROOT)));
+  }
+
+  private ImportRow toRow(long lineNumber, Function<String, String> field) {
+    String title = blankToNull(field.apply("title"));
+    if (title == null) {
+      throw new IllegalArgumentException("Missing title");
+    }
+    title = title.trim();
+    if (title.length() > Todo.MAX_TITLE_LENGTH) {
+      throw new IllegalArgumentException("Title is longer than " + Todo.MAX_TITLE_LENGTH + " characters");
+    }
+    String dueDate = blankToNull(field.apply("dueDate"));
+    String priority = blankToNull(field.apply("priority"));
+    String parentId = blankToNull(field.apply("parentId"));
+    try {
+      return new ImportRow(lineNumber,
+              blankToNull(field.apply("ref")),
+              blankToNull(field.apply("parentRef")),
+              parentId == null ? null : Long.valueOf(parentId),
+              title,
+              dueDate == null ? null : LocalDate.parse(dueDate),
+              priority == null ? null : Priority.valueOf(priority.trim().toUpperCase(Locale.ROOT)),
+              Boolean.parseBoolean(field.apply("completed")));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid dueDate: " + dueDate);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid parentId: " + parentId);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid priority: " + priority);
+    }
+  }
+
+  private static String blankToNull(String value) {
+    return value == null || value.isBlank() ? null : value;
+  }
+
+  private static String readLine(BufferedReader reader, Deque<String> unread) throws IOException {
+    return unread.isEmpty() ? reader.readLine() : unread.poll();
+  }
+
+  // An escaped quote counts twice, so an odd count leaves a quoted field open
+  private static boolean hasOddQuotes(String text) {
+    return text.chars().filter(c -> c == '"').count() % 2 == 1;
+  }
+
+  // RFC 4180 style: commas separate fields, double quotes wrap fields and "" escapes a quote
+  static List<String> splitCsvLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          current.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          current.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(current.toString());
+        current.setLength(0);
+      } else {
+        current.append(c);
+      }
+    }
+    fields.add(current.toString());
+    return fields;
+  }
+}
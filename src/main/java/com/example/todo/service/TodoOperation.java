@@ -0,0 +1,30 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * One operation of a {@link TodoBatchService} batch. Which fields are read depends on {@code op}:
+ * <ul>
+ *   <li>{@code create}: title, dueDate, priority, parentId (null for a top-level task);</li>
+ *   <li>{@code update}: id, title, dueDate, priority (kept when null);</li>
+ *   <li>{@code complete}: id, subtree (also completes every task below it);</li>
+ *   <li>{@code delete}: id, with its subtasks;</li>
+ *   <li>{@code move}: id, parentId (null for the top level); appended to its new siblings.</li>
+ * </ul>
+ */
+public record TodoOperation(Type op, Long id, String title, LocalDate dueDate, Priority priority, Long parentId,
+                            boolean subtree) {
+
+  public enum Type {
+    CREATE, UPDATE, COMPLETE, DELETE, MOVE;
+
+    @JsonCreator
+    public static Type of(String name) {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+  }
+}
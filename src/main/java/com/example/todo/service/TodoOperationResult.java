@@ -0,0 +1,21 @@
+package com.example.todo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.HttpStatus;
+
+/**
+ * What became of one {@link TodoOperation}, by its position in the batch. {@code status} is the HTTP status the
+ * single-task endpoint would have answered with; {@code id} is the task's, set unless the task was not found;
+ * {@code error} is set for a 4xx status.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TodoOperationResult(int index, int status, Long id, String error) {
+
+  static TodoOperationResult ok(int index, HttpStatus status, long id) {
+    return new TodoOperationResult(index, status.value(), id, null);
+  }
+
+  static TodoOperationResult failed(int index, HttpStatus status, Long id, String error) {
+    return new TodoOperationResult(index, status.value(), id, error);
+  }
+}
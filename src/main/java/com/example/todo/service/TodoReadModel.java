@@ -0,0 +1,636 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.model.TodoTree;
+import com.example.todo.repository.TodoNode;
+import com.example.todo.repository.TodoNodeReader;
+import com.example.todo.repository.TodoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the task list: every row of the todo table held in memory as an immutable {@link TodoNode},
+ * so that {@link TodoService} answers list reads without a query or entity hydration.
+ * <p>
+ * Loaded at startup. Each transaction's writes are collected and the rows they touched are read back once it has
+ * committed: entity inserts, updates and deletes (including cascades) through Hibernate's flush events, bulk
+ * statements through {@link #changed} and {@link #subtreeChanged}. A rolled-back transaction changes nothing.
+ * Read-write transactions always read from the database, so they see their own writes; everyone else reads the
+ * last applied state.
+ * {@link #check()} compares the model with the database; {@link #version()} counts the commits applied.
+ * The dashboard counts ({@link #summary()}) and a {@link DueDateIndex} are updated with each row, from its old
+ * and new state.
+ * <p>
+ * Disabled with {@code todo.read-model.enabled=false}; reads then always go to the database, and commits are
+ * still counted.
+ */
+@Component
+public class TodoReadModel implements SmartInitializingSingleton,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+  private static final Comparator<TodoNode> SIBLING_ORDER = Comparator
+          .comparing(TodoNode::displayOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+          .thenComparingLong(TodoNode::id);
+
+  /** Differences found by {@link #check()}, as task ids. */
+  public record Drift(long rows, List<Long> missing, List<Long> unexpected, List<Long> stale) {
+
+    public boolean isEmpty() {
+      return missing.isEmpty() && unexpected.isEmpty() && stale.isEmpty();
+    }
+  }
+
+  private final boolean enabled;
+  private final TodoRepository todoRepository;
+  private final TransactionTemplate readTransaction;
+  // Reloads after a commit: on a connection of its own, as the committing transaction still holds a pooled one
+  private final TodoNodeReader nodeReader;
+
+  private final Map<Long, TodoNode> nodesById = new HashMap<>();
+  private final Set<Long> rootIds = new HashSet<>();
+  private final Map<Long, Set<Long>> childIdsByParentId = new HashMap<>();
+  // Top-level nodes per sort, built on first use; dropped whenever a top-level task changes
+  private final Map<String, TodoNode[]> sortedRoots = new ConcurrentHashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Held from reading a commit's rows until they are applied: a read that started before another commit's reload
+  // could otherwise be applied after it and put older rows back
+  private final Lock reloadLock = new ReentrantLock();
+  private final TodoCalendar calendar;
+  private final DueDateIndex dueDates = new DueDateIndex();
+  private final TodoCounters counters;
+  private volatile boolean loaded;
+  private final AtomicLong version = new AtomicLong();
+
+  @Autowired
+  public TodoReadModel(@Value("${todo.read-model.enabled:true}") boolean enabled, TodoRepository todoRepository,
+                       TodoNodeReader nodeReader, PlatformTransactionManager transactionManager,
+                       EntityManagerFactory entityManagerFactory, TodoCalendar calendar) {
+    this.enabled = enabled;
+    this.todoRepository = todoRepository;
+    this.nodeReader = nodeReader;
+    this.calendar = calendar;
+    this.counters = new TodoCounters(calendar.today());
+    this.readTransaction = new TransactionTemplate(transactionManager);
+    this.readTransaction.setReadOnly(true);
+
+    EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+    listeners.appendListeners(EventType.POST_INSERT, this);
+    listeners.appendListeners(EventType.POST_UPDATE, this);
+    listeners.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  // Runs before the web server starts taking requests
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (enabled) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Whether reads on this thread can come from memory. Not inside a read-write transaction: its own writes
+   * only show up in the model once it has committed.
+   */
+  public boolean canServe() {
+    return enabled && loaded && !inReadWriteTransaction();
+  }
+
+  /**
+   * Goes up once a committed write has been applied to the model, and on every {@link #rebuild()}. Anything
+   * computed from the task table while the version stayed the same is still current.
+   */
+  public long version() {
+    return version.get();
+  }
+
+  static boolean inReadWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  /** Replaces the model with every row currently in the database. Returns the number of rows read. */
+  public long rebuild() {
+    reloadLock.lock(); // Always before the write lock
+    lock.writeLock().lock();
+    try {
+      nodesById.clear();
+      rootIds.clear();
+      childIdsByParentId.clear();
+      sortedRoots.clear();
+      dueDates.clear();
+      counters.clear(calendar.today());
+      Long count = readTransaction.execute(status -> {
+        long read = 0;
+        try (Stream<TodoNode> nodes = todoRepository.streamNodes()) {
+          for (TodoNode node : (Iterable<TodoNode>) nodes::iterator) {
+            put(node);
+            read++;
+          }
+        }
+        return read;
+      });
+      loaded = true;
+      version.incrementAndGet();
+      return count == null ? 0 : count;
+    } finally {
+      lock.writeLock().unlock();
+      reloadLock.unlock();
+    }
+  }
+
+  /**
+   * Compares every row of the database with the model. Writes committed while it runs can show up as
+   * differences; a second check tells those apart from real drift.
+   */
+  public Drift check() {
+    Map<Long, TodoNode> expected;
+    lock.readLock().lock();
+    try {
+      expected = new HashMap<>(nodesById);
+    } finally {
+      lock.readLock().unlock();
+    }
+    List<Long> missing = new ArrayList<>();
+    List<Long> stale = new ArrayList<>();
+    Long rows = readTransaction.execute(status -> {
+      long read = 0;
+      try (Stream<TodoNode> nodes = todoRepository.streamNodes()) {
+        for (TodoNode row : (Iterable<TodoNode>) nodes::iterator) {
+          TodoNode node = expected.remove(row.id());
+          if (node == null) {
+            missing.add(row.id());
+          } else if (!node.equals(row)) {
+            stale.add(row.id());
+          }
+          read++;
+        }
+      }
+      return read;
+    });
+    List<Long> unexpected = new ArrayList<>(expected.keySet());
+    missing.sort(null);
+    stale.sort(null);
+    unexpected.sort(null);
+    return new Drift(rows == null ? 0 : rows, missing, unexpected, stale);
+  }
+
+  /** Reports a row written outside of Hibernate's entity events, e.g. by a bulk statement. */
+  public void changed(long id) {
+    PendingChanges pending = pendingChanges();
+    if (pending == null) {
+      apply(Set.of(id), Set.of());
+    } else {
+      pending.ids.add(id);
+    }
+  }
+
+  /** Reports a bulk statement over every task whose path starts with the given prefix. */
+  public void subtreeChanged(String descendantPathPrefix) {
+    PendingChanges pending = pendingChanges();
+    if (pending == null) {
+      apply(Set.of(), Set.of(descendantPathPrefix));
+    } else {
+      pending.pathPrefixes.add(descendantPathPrefix);
+    }
+  }
+
+  /** The dashboard counts as of today. */
+  TodoSummary summary() {
+    LocalDate today = calendar.today();
+    lock.readLock().lock();
+    try {
+      if (counters.today().equals(today)) {
+        return counters.summary();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return rollOver(today); // The day has started and the event has not been handled yet
+  }
+
+  @EventListener
+  public void onDayStarted(DayStartedEvent event) {
+    rollOver(event.today());
+  }
+
+  private TodoSummary rollOver(LocalDate today) {
+    lock.writeLock().lock();
+    try {
+      if (!counters.today().equals(today)) {
+        counters.rollOver(today);
+      }
+      return counters.summary();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The first {@code limit} top-level tasks after {@code after} (null for the start) that pass the filter.
+   * A due-date filter only looks at the tasks due on its days.
+   */
+  List<Todo> findRoots(TodoFilter filter, String sortField, boolean descending, PageCursor after, int limit) {
+    return toTodos(findRootNodes(filter, sortField, descending, after, limit));
+  }
+
+  List<TodoNode> findRootNodes(TodoFilter filter, String sortField, boolean descending, PageCursor after, int limit) {
+    Comparator<TodoNode> order = order(sortField, descending);
+    lock.readLock().lock();
+    try {
+      List<Long> dueIds = dueDates.rootIds(filter);
+      TodoNode[] roots;
+      if (dueIds != null) {
+        roots = dueIds.stream().map(nodesById::get).toArray(TodoNode[]::new);
+        Arrays.sort(roots, order);
+      } else {
+        roots = sortedRoots.computeIfAbsent(sortField + (descending ? " DESC" : " ASC"), key -> {
+          TodoNode[] sorted = rootIds.stream().map(nodesById::get).toArray(TodoNode[]::new);
+          Arrays.sort(sorted, order);
+          return sorted;
+        });
+      }
+      List<TodoNode> page = new ArrayList<>();
+      for (int i = after == null ? 0 : firstAfter(roots, probe(after), order); i < roots.length && page.size() < limit; i++) {
+        if (filter.test(roots[i])) {
+          page.add(roots[i]);
+        }
+      }
+      return page;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The top-level tasks among {@code ids} that pass the filter, in the order of {@code ids}. */
+  List<Todo> findRoots(TodoFilter filter, Collection<Long> ids) {
+    return toTodos(findRootNodes(filter, ids));
+  }
+
+  List<TodoNode> findRootNodes(TodoFilter filter, Collection<Long> ids) {
+    lock.readLock().lock();
+    try {
+      List<TodoNode> roots = new ArrayList<>();
+      for (Long id : ids) {
+        TodoNode node = nodesById.get(id);
+        if (node != null && filter.test(node)) {
+          roots.add(node);
+        }
+      }
+      return roots;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The tasks with these ids, at any depth, in the order of {@code ids}; missing ids are skipped. */
+  List<TodoNode> findNodes(Collection<Long> ids) {
+    lock.readLock().lock();
+    try {
+      return ids.stream().map(nodesById::get).filter(Objects::nonNull).toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Every descendant of the given tasks, shallowest level first and in sibling order. */
+  List<TodoNode> findDescendantNodes(Collection<Long> rootIds) {
+    lock.readLock().lock();
+    try {
+      List<TodoNode> descendants = new ArrayList<>();
+      List<Long> level = List.copyOf(rootIds);
+      while (!level.isEmpty()) {
+        List<Long> nextLevel = new ArrayList<>();
+        for (Long parentId : level) {
+          Set<Long> childIds = childIdsByParentId.get(parentId);
+          if (childIds == null) {
+            continue;
+          }
+          TodoNode[] children = childIds.stream().map(nodesById::get).toArray(TodoNode[]::new);
+          Arrays.sort(children, SIBLING_ORDER);
+          for (TodoNode child : children) {
+            descendants.add(child);
+            nextLevel.add(child.id());
+          }
+        }
+        level = nextLevel;
+      }
+      return descendants;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The given top-level tasks with all their descendants; each subtask's parent is the copy in the tree. */
+  TodoTree treeOf(List<Todo> roots) {
+    if (roots.isEmpty()) {
+      return TodoTree.empty();
+    }
+    return treeOf(roots, findDescendantNodes(roots.stream().map(Todo::getId).toList()));
+  }
+
+  /**
+   * A tree of detached copies. The descendants must come parents first, as from {@link #findDescendantNodes};
+   * a descendant whose parent is not in the tree is left out.
+   */
+  static TodoTree treeOf(List<Todo> roots, List<TodoNode> descendants) {
+    Map<Long, Todo> byId = new HashMap<>();
+    roots.forEach(root -> byId.put(root.getId(), root));
+    List<Todo> copies = new ArrayList<>(descendants.size());
+    for (TodoNode node : descendants) {
+      Todo parent = byId.get(node.parentId());
+      if (parent != null) {
+        Todo copy = toTodo(node, parent);
+        byId.put(node.id(), copy);
+        copies.add(copy);
+      }
+    }
+    return TodoTree.of(roots, copies);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    if (event.getEntity() instanceof Todo) {
+      changed((Long) event.getId());
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    if (event.getEntity() instanceof Todo) {
+      changed((Long) event.getId());
+    }
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    if (event.getEntity() instanceof Todo) {
+      changed((Long) event.getId());
+    }
+  }
+
+  // Flush-time events; the rows are read back after commit, not on the event itself
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return false;
+  }
+
+  // Ids and subtrees written by the current transaction, read back after it commits
+  private final class PendingChanges implements TransactionSynchronization {
+    final Set<Long> ids = new HashSet<>();
+    final Set<String> pathPrefixes = new HashSet<>();
+
+    @Override
+    public void afterCommit() {
+      apply(ids, pathPrefixes);
+    }
+
+    // Ahead of TodoChangeFeed, so that a client reacting to a change event reads the new state
+    @Override
+    public int getOrder() {
+      return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResource(TodoReadModel.this);
+    }
+  }
+
+  // Null outside of a transaction
+  private PendingChanges pendingChanges() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      pending = new PendingChanges();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    return pending;
+  }
+
+  // The version goes up only once the model shows the write
+  private void apply(Set<Long> ids, Set<String> pathPrefixes) {
+    if (enabled) {
+      reload(ids, pathPrefixes);
+    }
+    version.incrementAndGet();
+  }
+
+  // Reads the committed rows rather than applying entity state. Reloads are serialized, read and apply together,
+  // so each one reads rows at least as new as those the previous one applied
+  private void reload(Set<Long> ids, Set<String> pathPrefixes) {
+    reloadLock.lock();
+    try {
+      reloadLocked(ids, pathPrefixes);
+    } finally {
+      reloadLock.unlock();
+    }
+  }
+
+  private void reloadLocked(Set<Long> ids, Set<String> pathPrefixes) {
+    List<TodoNode> rows = nodeReader.findNodes(new ArrayList<>(ids), outermost(pathPrefixes));
+    lock.writeLock().lock();
+    try {
+      Set<Long> found = new HashSet<>();
+      for (TodoNode row : rows) {
+        put(row);
+        found.add(row.id());
+      }
+      for (Long id : ids) {
+        if (!found.contains(id)) {
+          removeSubtree(id); // Deleted; its subtasks cannot outlive it
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Drops the prefixes that another one covers; in sorted order a prefix comes right before the ones it covers
+  private static List<String> outermost(Set<String> pathPrefixes) {
+    List<String> outermost = new ArrayList<>();
+    for (String prefix : new TreeSet<>(pathPrefixes)) {
+      if (outermost.isEmpty() || !prefix.startsWith(outermost.get(outermost.size() - 1))) {
+        outermost.add(prefix);
+      }
+    }
+    return outermost;
+  }
+
+  private void put(TodoNode node) {
+    TodoNode previous = nodesById.put(node.id(), node);
+    if (previous != null) {
+      counters.add(previous, -1);
+      dueDates.remove(previous);
+    }
+    counters.add(node, 1);
+    dueDates.add(node);
+    boolean moved = previous == null || !Objects.equals(previous.parentId(), node.parentId());
+    if (previous != null && moved) {
+      unlink(previous);
+    }
+    if (moved) {
+      link(node);
+    }
+    if (node.parentId() == null || (previous != null && previous.parentId() == null)) {
+      sortedRoots.clear();
+    }
+  }
+
+  private void removeSubtree(long id) {
+    Deque<Long> toRemove = new ArrayDeque<>();
+    toRemove.push(id);
+    while (!toRemove.isEmpty()) {
+      TodoNode node = nodesById.remove(toRemove.pop());
+      if (node == null) {
+        continue;
+      }
+      unlink(node);
+      counters.add(node, -1);
+      dueDates.remove(node);
+      if (node.parentId() == null) {
+        sortedRoots.clear();
+      }
+      Set<Long> childIds = childIdsByParentId.remove(node.id());
+      if (childIds != null) {
+        childIds.forEach(toRemove::push);
+      }
+    }
+  }
+
+  private void link(TodoNode node) {
+    if (node.parentId() == null) {
+      rootIds.add(node.id());
+    } else {
+      childIdsByParentId.computeIfAbsent(node.parentId(), parentId -> new HashSet<>()).add(node.id());
+    }
+  }
+
+  private void unlink(TodoNode node) {
+    if (node.parentId() == null) {
+      rootIds.remove(node.id());
+      return;
+    }
+    Set<Long> siblings = childIdsByParentId.get(node.parentId());
+    if (siblings != null) {
+      siblings.remove(node.id());
+      if (siblings.isEmpty()) {
+        childIdsByParentId.remove(node.parentId());
+      }
+    }
+  }
+
+  /**
+   * The order the database sorts top-level tasks in for TodoService: the sort field with nulls high,
+   * then displayOrder ascending (nulls high), then id. Priorities compare by name, as stored.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Comparator<TodoNode> order(String sortField, boolean descending) {
+    Function<TodoNode, Comparable> key = switch (sortField) {
+      case "dueDate" -> TodoNode::dueDate;
+      case "priority" -> node -> node.priority() == null ? null : node.priority().name();
+      case "title" -> TodoNode::title;
+      case "creationDate" -> TodoNode::creationDate;
+      default -> TodoNode::displayOrder;
+    };
+    Comparator<TodoNode> order = Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+    if (descending) {
+      order = order.reversed();
+    }
+    if (!"displayOrder".equals(sortField)) {
+      order = order.thenComparing(TodoNode::displayOrder, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+    return order.thenComparingLong(TodoNode::id);
+  }
+
+  // A node carrying just the cursor's sort-key values
+  private static TodoNode probe(PageCursor after) {
+    Object value = after.sortValue();
+    return new TodoNode(after.id(),
+            "title".equals(after.sortField()) ? (String) value : null, false,
+            "dueDate".equals(after.sortField()) ? (LocalDate) value : null,
+            "priority".equals(after.sortField()) ? (Priority) value : null, null,
+            "creationDate".equals(after.sortField()) ? (LocalDateTime) value : null,
+            after.displayOrder(), null, 0);
+  }
+
+  // Index of the first node that sorts strictly after the probe
+  private static int firstAfter(TodoNode[] sorted, TodoNode probe, Comparator<TodoNode> order) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (order.compare(sorted[middle], probe) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  static List<Todo> toTodos(List<TodoNode> nodes) {
+    List<Todo> todos = new ArrayList<>(nodes.size());
+    nodes.forEach(node -> todos.add(toTodo(node, null)));
+    return todos;
+  }
+
+  // Detached copy for the view; changing it changes nothing
+  static Todo toTodo(TodoNode node, Todo parent) {
+    Todo todo = new Todo(node.id(), node.title(), node.completed(), node.dueDate(), node.priority());
+    todo.setPriority(node.priority()); // The constructor would turn a null into MEDIUM
+    todo.setParent(parent);
+    todo.setCreationDate(node.creationDate());
+    todo.setDisplayOrder(node.displayOrder());
+    todo.setPath(node.path());
+    todo.setDepth(node.depth());
+    return todo;
+  }
+}
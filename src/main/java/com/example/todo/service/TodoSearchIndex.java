@@ -0,0 +1,371 @@
+package com.example.todo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over task titles, behind the search box.
+ * <p>
+ * Titles are split into terms at anything that is not a letter or digit, lower-cased and stripped of accents.
+ * A task matches a query when every query term is a prefix of some term of its title, so "gro mil" finds
+ * "Buy groceries: milk". Hits are scored with BM25 over the title terms; a prefix match counts
+ * {@link #PREFIX_WEIGHT} of an exact one.
+ * <p>
+ * Kept up to date by {@link TodoSearchIndexer}. Reads share a lock; writes are exclusive.
+ */
+@Component
+public class TodoSearchIndex {
+  static final double PREFIX_WEIGHT = 0.5;
+  // BM25 term-frequency saturation and length normalization
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+  private static final String[] NO_TERMS = new String[0];
+
+  /** Best first; equal scores keep the older task first. */
+  public static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+          .thenComparingLong(Hit::id);
+
+  public record Hit(long id, double score) {
+  }
+
+  // term -> the tasks whose title contains it. Sorted, so a prefix is one subMap
+  private final NavigableMap<String, Postings> postingsByTerm = new TreeMap<>();
+  // id -> that task's title terms, in title order; used to unindex
+  private final Map<Long, String[]> termsById = new HashMap<>();
+  private long totalTerms;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Indexes a task's title, replacing whatever was indexed for it before. */
+  public void put(long id, String title) {
+    String[] terms = terms(title).toArray(NO_TERMS);
+    lock.writeLock().lock();
+    try {
+      String[] previous = termsById.get(id);
+      if (previous != null && Arrays.equals(previous, terms)) {
+        return;
+      }
+      unindex(id, previous);
+      if (terms.length == 0) {
+        return;
+      }
+      for (int i = 0; i < terms.length; i++) {
+        Postings postings = postingsByTerm.get(terms[i]);
+        if (postings == null) {
+          postings = new Postings();
+          postingsByTerm.put(terms[i], postings);
+        } else {
+          terms[i] = postingsByTerm.ceilingKey(terms[i]); // Share the key instance instead of keeping a copy per task
+        }
+        postings.add(id, terms.length, occurrences(terms, i));
+      }
+      termsById.put(id, terms);
+      totalTerms += terms.length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      unindex(id, termsById.get(id));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postingsByTerm.clear();
+      termsById.clear();
+      totalTerms = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Number of indexed tasks. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return termsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The best {@code limit} tasks matching every term of {@code query}, in {@link #RANKING} order.
+   * A query without terms matches nothing.
+   */
+  public List<Hit> search(String query, int limit) {
+    List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(terms(query)));
+    if (queryTerms.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      int taskCount = termsById.size();
+      Run[] runs = new Run[queryTerms.size()];
+      for (int q = 0; q < runs.length; q++) {
+        String queryTerm = queryTerms.get(q);
+        runs[q] = Run.of(queryTerm, postingsByTerm.subMap(queryTerm, queryTerm + Character.MAX_VALUE));
+        if (runs[q].size == 0) {
+          return List.of();
+        }
+        runs[q].idf = Math.log(1 + (taskCount - runs[q].size + 0.5) / (runs[q].size + 0.5));
+      }
+
+      // Walk the shortest run and seek each of its ids in the others. Ids come in ascending order, so once
+      // the top list is full a candidate must score strictly higher than its worst hit to get in
+      Arrays.sort(runs, Comparator.comparingInt(run -> run.size));
+      double averageLength = (double) totalTerms / taskCount;
+      int[] at = new int[runs.length];
+      PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+      candidates:
+      for (int c = 0; c < runs[0].size; c++) {
+        long id = runs[0].ids[c];
+        double score = runs[0].score(c, averageLength);
+        for (int r = 1; r < runs.length; r++) {
+          at[r] = runs[r].seek(at[r], id);
+          if (at[r] == runs[r].size) {
+            break candidates;
+          }
+          if (runs[r].ids[at[r]] != id) {
+            continue candidates;
+          }
+          score += runs[r].score(at[r], averageLength);
+        }
+        if (best.size() < limit) {
+          best.add(new Hit(id, score));
+        } else if (score > best.peek().score()) {
+          best.poll();
+          best.add(new Hit(id, score));
+        }
+      }
+      List<Hit> hits = new ArrayList<>(best);
+      hits.sort(RANKING);
+      return hits;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Splits text into index terms: letter/digit runs, lower-cased, without accents. */
+  static List<String> terms(String text) {
+    if (text == null || text.isBlank()) {
+      return List.of();
+    }
+    List<String> terms = new ArrayList<>();
+    for (String term : SEPARATORS.split(fold(text))) {
+      if (!term.isEmpty()) {
+        terms.add(term);
+      }
+    }
+    return terms;
+  }
+
+  /** Lower-cases text and strips its accents, so "Crème" and "CREME" compare equal. */
+  static String fold(String text) {
+    return COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  // How often terms[i] occurs in terms, counted at its first occurrence; 0 at the repeats
+  private static int occurrences(String[] terms, int i) {
+    for (int j = 0; j < i; j++) {
+      if (terms[j].equals(terms[i])) {
+        return 0;
+      }
+    }
+    int count = 1;
+    for (int j = i + 1; j < terms.length; j++) {
+      if (terms[j].equals(terms[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void unindex(long id, String[] terms) {
+    if (terms == null) {
+      return;
+    }
+    for (String term : terms) {
+      Postings postings = postingsByTerm.get(term);
+      if (postings != null && postings.remove(id) && postings.size == 0) {
+        postingsByTerm.remove(term);
+      }
+    }
+    termsById.remove(id);
+    totalTerms -= terms.length;
+  }
+
+  /**
+   * Sorted, duplicate-free ids in growable primitive arrays, with each task's title length and how often the term
+   * occurs in its title. New tasks have the highest ids, so adds are appends.
+   */
+  private static final class Postings {
+    long[] ids = new long[2];
+    int[] lengths = new int[2];
+    int[] occurrences = new int[2];
+    int size;
+
+    void add(long id, int length, int count) {
+      if (count == 0) {
+        return;
+      }
+      int at = size;
+      if (size > 0 && ids[size - 1] >= id) {
+        at = Arrays.binarySearch(ids, 0, size, id);
+        if (at >= 0) {
+          return;
+        }
+        at = -at - 1;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        lengths = Arrays.copyOf(lengths, size * 2);
+        occurrences = Arrays.copyOf(occurrences, size * 2);
+      }
+      System.arraycopy(ids, at, ids, at + 1, size - at);
+      System.arraycopy(lengths, at, lengths, at + 1, size - at);
+      System.arraycopy(occurrences, at, occurrences, at + 1, size - at);
+      ids[at] = id;
+      lengths[at] = length;
+      occurrences[at] = count;
+      size++;
+    }
+
+    boolean remove(long id) {
+      int at = Arrays.binarySearch(ids, 0, size, id);
+      if (at < 0) {
+        return false;
+      }
+      System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+      System.arraycopy(lengths, at + 1, lengths, at, size - at - 1);
+      System.arraycopy(occurrences, at + 1, occurrences, at, size - at - 1);
+      size--;
+      return true;
+    }
+  }
+
+  /**
+   * The tasks matching one query term: the postings of every term it is a prefix of, merged into ascending id order,
+   * with each task's weighted term frequency summed over those terms.
+   */
+  private static final class Run {
+    final long[] ids;
+    final double[] frequencies;
+    final int[] lengths;
+    int size;
+    double idf;
+
+    private Run(int capacity) {
+      ids = new long[capacity];
+      frequencies = new double[capacity];
+      lengths = new int[capacity];
+    }
+
+    static Run of(String queryTerm, SortedMap<String, Postings> matches) {
+      List<Run> runs = new ArrayList<>(matches.size());
+      for (Map.Entry<String, Postings> match : matches.entrySet()) {
+        runs.add(of(match.getValue(), match.getKey().equals(queryTerm) ? 1 : PREFIX_WEIGHT));
+      }
+      if (runs.isEmpty()) {
+        return new Run(0);
+      }
+      // Merge in pairs: each round halves the runs and copies every entry once, in sequential array passes
+      while (runs.size() > 1) {
+        List<Run> merged = new ArrayList<>((runs.size() + 1) / 2);
+        for (int i = 0; i + 1 < runs.size(); i += 2) {
+          merged.add(merge(runs.get(i), runs.get(i + 1)));
+        }
+        if (runs.size() % 2 == 1) {
+          merged.add(runs.get(runs.size() - 1));
+        }
+        runs = merged;
+      }
+      return runs.get(0);
+    }
+
+    private static Run of(Postings postings, double weight) {
+      Run run = new Run(postings.size);
+      System.arraycopy(postings.ids, 0, run.ids, 0, postings.size);
+      System.arraycopy(postings.lengths, 0, run.lengths, 0, postings.size);
+      for (int p = 0; p < postings.size; p++) {
+        run.frequencies[p] = weight * postings.occurrences[p];
+      }
+      run.size = postings.size;
+      return run;
+    }
+
+    // A task in both runs has several terms under the query term; its frequencies add up
+    private static Run merge(Run left, Run right) {
+      Run run = new Run(left.size + right.size);
+      int l = 0;
+      int r = 0;
+      while (l < left.size || r < right.size) {
+        Run from;
+        int at;
+        if (r == right.size || (l < left.size && left.ids[l] < right.ids[r])) {
+          from = left;
+          at = l++;
+        } else if (l == left.size || right.ids[r] < left.ids[l]) {
+          from = right;
+          at = r++;
+        } else {
+          run.add(left.ids[l], left.frequencies[l] + right.frequencies[r], left.lengths[l]);
+          l++;
+          r++;
+          continue;
+        }
+        run.add(from.ids[at], from.frequencies[at], from.lengths[at]);
+      }
+      return run;
+    }
+
+    private void add(long id, double frequency, int length) {
+      ids[size] = id;
+      frequencies[size] = frequency;
+      lengths[size] = length;
+      size++;
+    }
+
+    double score(int at, double averageLength) {
+      double lengthNorm = K1 * (1 - B + B * lengths[at] / averageLength);
+      return idf * frequencies[at] * (K1 + 1) / (frequencies[at] + lengthNorm);
+    }
+
+    // Position of the first id >= target, searching from position from: gallop ahead, then binary search
+    int seek(int from, long target) {
+      int low = from;
+      int step = 1;
+      while (low + step < size && ids[low + step] < target) {
+        low += step;
+        step *= 2;
+      }
+      int found = Arrays.binarySearch(ids, low, Math.min(low + step, size), target);
+      return found >= 0 ? found : -found - 1;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.repository.TodoTitle;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps {@link TodoSearchIndex} and {@link TodoTrigramIndex} in step with the todo table.
+ * <p>
+ * Loads every title once at startup, then follows each Todo insert, update and delete through Hibernate's
+ * post-commit listeners. Rolled-back writes never reach the index, and all writes are covered whether
+ * they go through TodoService or straight through the repository, including cascaded subtask deletes.
+ * Bulk JPQL and JDBC statements bypass these listeners. None of them change titles; the ones that delete rows
+ * report them through {@link #deleted}.
+ */
+@Component
+public class TodoSearchIndexer implements SmartInitializingSingleton,
+        PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+  private final TodoSearchIndex searchIndex;
+  private final TodoTrigramIndex trigramIndex;
+  private final TodoRepository todoRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public TodoSearchIndexer(TodoSearchIndex searchIndex, TodoTrigramIndex trigramIndex, TodoRepository todoRepository,
+                           PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+    this.searchIndex = searchIndex;
+    this.trigramIndex = trigramIndex;
+    this.todoRepository = todoRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+
+    EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+    listeners.appendListeners(EventType.POST_COMMIT_INSERT, this);
+    listeners.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    listeners.appendListeners(EventType.POST_COMMIT_DELETE, this);
+  }
+
+  // Runs before the web server starts taking requests
+  @Override
+  public void afterSingletonsInstantiated() {
+    rebuild();
+  }
+
+  /** Replaces the indexes' contents with every title currently in the database. Returns the number of tasks read. */
+  public long rebuild() {
+    searchIndex.clear();
+    trigramIndex.clear();
+    Long count = transactionTemplate.execute(status -> {
+      long read = 0;
+      try (Stream<TodoTitle> titles = todoRepository.streamTitles()) {
+        for (TodoTitle title : (Iterable<TodoTitle>) titles::iterator) {
+          searchIndex.put(title.id(), title.title());
+          trigramIndex.put(title.id(), title.title());
+          read++;
+        }
+      }
+      return read;
+    });
+    return count == null ? 0 : count;
+  }
+
+  /** Reports rows deleted by a bulk statement: they leave the indexes once the transaction commits. */
+  public void deleted(Collection<Long> ids) {
+    List<Long> removed = List.copyOf(ids);
+    Runnable remove = () -> removed.forEach(id -> {
+      searchIndex.remove(id);
+      trigramIndex.remove(id);
+    });
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      remove.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        remove.run();
+      }
+    });
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    if (event.getEntity() instanceof Todo todo) {
+      searchIndex.put(todo.getId(), todo.getTitle());
+      trigramIndex.put(todo.getId(), todo.getTitle());
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    if (event.getEntity() instanceof Todo todo) {
+      searchIndex.put(todo.getId(), todo.getTitle()); // No-op unless the title's terms changed
+      trigramIndex.put(todo.getId(), todo.getTitle());
+    }
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    if (event.getEntity() instanceof Todo) {
+      searchIndex.remove((Long) event.getId());
+      trigramIndex.remove((Long) event.getId());
+    }
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return persister.getMappedClass() == Todo.class;
+  }
+
+  // A failed commit changed nothing, so there is nothing to undo
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+  }
+}
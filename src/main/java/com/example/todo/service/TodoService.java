@@ -2,78 +2,442 @@ package com.example.todo.service;
 
 import com.example.todo.model.Priority;
 import com.example.todo.model.Todo;
+import com.example.todo.model.TodoPage;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.model.TodoTree;
+import com.example.todo.model.TodoView;
+import com.example.todo.model.TodoViewPage;
+import com.example.todo.repository.SiblingRank;
+import com.example.todo.repository.TodoNode;
 import com.example.todo.repository.TodoRepository;
 import com.example.todo.repository.TodoSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true) // Default to read-only for GET methods
 public class TodoService {
+  // A move that leaves less room than this next to the moved task schedules a background rebalance
+  static final long CROWDED_GAP = 16;
+  public static final int DEFAULT_PAGE_SIZE = 50;
+  public static final int MAX_PAGE_SIZE = 200;
+  // A search lists at most this many matches, the most relevant ones, under any sort
+  public static final int MAX_SEARCH_HITS = 1000;
+  // Sort by search ranking, best first; only applies together with a search term
+  public static final String RELEVANCE = "relevance";
+  private static final Logger log = LoggerFactory.getLogger(TodoService.class);
+
   private final TodoRepository todoRepository;
+  private final DisplayOrderAllocator displayOrderAllocator;
+  private final TaskRankRebalancer taskRankRebalancer;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TodoSearchIndex searchIndex;
+  private final TodoTrigramIndex trigramIndex;
+  private final TodoReadModel readModel;
+  private final TodoFilterCache filterCache;
+  private final TodoCalendar calendar;
+  private final TodoChangeFeed changeFeed;
+  private final TodoSearchIndexer searchIndexer;
+  // TodoReadModel.version() restarts with the process; list tags must not
+  private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
 
   @Autowired
-  public TodoService(TodoRepository todoRepository) {
+  public TodoService(TodoRepository todoRepository,
+                     DisplayOrderAllocator displayOrderAllocator,
+                     TaskRankRebalancer taskRankRebalancer,
+                     ApplicationEventPublisher eventPublisher,
+                     TodoSearchIndex searchIndex,
+                     TodoTrigramIndex trigramIndex,
+                     TodoReadModel readModel,
+                     TodoFilterCache filterCache,
+                     TodoCalendar calendar,
+                     TodoChangeFeed changeFeed,
+                     TodoSearchIndexer searchIndexer) {
     this.todoRepository = todoRepository;
+    this.displayOrderAllocator = displayOrderAllocator;
+    this.taskRankRebalancer = taskRankRebalancer;
+    this.eventPublisher = eventPublisher;
+    this.searchIndex = searchIndex;
+    this.trigramIndex = trigramIndex;
+    this.readModel = readModel;
+    this.filterCache = filterCache;
+    this.calendar = calendar;
+    this.changeFeed = changeFeed;
+    this.searchIndexer = searchIndexer;
   }
 
+  // The list reads join a caller's transaction but open none: TodoReadModel answers them without a connection
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
   public List<Todo> getTodos(
             String filterByStatus, // "ALL", "COMPLETED", "PENDING"
             Priority filterByPriority,
             String filterByDueDate, // "ALL", "OVERDUE", "TODAY", "NEXT_7_DAYS", or YYYY-MM-DD
-            String searchTerm,
-            String sortBy, // "creationDate", "dueDate", "priority", "title"
+            String searchTerm, // Every word starts a title word (TodoSearchIndex), or the title contains it (TodoTrigramIndex)
+            String sortBy, // "displayOrder", "creationDate", "dueDate", "priority", "title", "relevance"
             String sortDir  // "ASC", "DESC"
   ) {
-    Specification<Todo> spec = Specification.where(TodoSpecification.isTopLevelTask());
-
-    // Status Filter
-    if ("COMPLETED".equalsIgnoreCase(filterByStatus)) {
-        spec = spec.and(TodoSpecification.hasStatus(true));
-    } else if ("PENDING".equalsIgnoreCase(filterByStatus)) {
-        spec = spec.and(TodoSpecification.hasStatus(false));
-    }
-
-    // Priority Filter
-    if (filterByPriority != null) {
-        spec = spec.and(TodoSpecification.hasPriority(filterByPriority));
-    }
-
-    // Due Date Filter
-    LocalDate today = LocalDate.now();
-    if (filterByDueDate != null && !filterByDueDate.trim().isEmpty() && !"ALL".equalsIgnoreCase(filterByDueDate)) {
-        try {
-            // Try to parse as a specific date first
-            LocalDate specificDueDate = LocalDate.parse(filterByDueDate); // Expects YYYY-MM-DD
-            spec = spec.and(TodoSpecification.hasDueDate(specificDueDate));
-        } catch (DateTimeParseException e) {
-            // If not a specific date, check for keywords
-            if ("OVERDUE".equalsIgnoreCase(filterByDueDate)) {
-                spec = spec.and(TodoSpecification.isOverdue(today));
-            } else if ("TODAY".equalsIgnoreCase(filterByDueDate)) {
-                spec = spec.and(TodoSpecification.dueToday(today));
-            } else if ("NEXT_7_DAYS".equalsIgnoreCase(filterByDueDate)) {
-                spec = spec.and(TodoSpecification.dueNextDays(today, 7));
-            }
-            // else: unknown keyword, ignore or log warning
+    TodoFilterCache.Key key = TodoFilterCache.Key.of(filterByStatus, filterByPriority, filterByDueDate,
+            searchTerm, sortBy, sortDir);
+    boolean fromReadModel = readModel.canServe();
+    // A read-write transaction must see its own writes, which no cached result has
+    boolean cacheable = !TodoReadModel.inReadWriteTransaction();
+    Optional<List<Long>> cachedIds = cacheable ? filterCache.get(key) : Optional.empty();
+    if (cachedIds.isPresent()) {
+      return rootsByIds(cachedIds.get(), fromReadModel);
+    }
+    long version = filterCache.version();
+    List<Todo> todos = findRoots(key, fromReadModel);
+    if (cacheable) {
+      filterCache.put(key, version, todos.stream().map(Todo::getId).toList());
+    }
+    return todos;
+  }
+
+  /**
+   * A strong entity tag for anything read from the task table, and for the lists with this due-date filter (null
+   * for none): it changes with every committed write, on every restart, and at midnight for OVERDUE, TODAY and
+   * NEXT_7_DAYS. Comparing it with a client's copy reads no rows. Take it before reading, so that a write committed
+   * in between can only make the tag older than the result, never newer.
+   */
+  public String getEntityTag(String filterByDueDate) {
+    long version = readModel.version();
+    String tag = instanceTag + "-" + version;
+    if (TodoFilterCache.Key.isRelative(filterByDueDate)) {
+      tag += "-" + calendar.today();
+    }
+    return "\"" + tag + "\"";
+  }
+
+  // Kept up to date by TodoReadModel; without it, one grouped count over the top-level tasks
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public TodoSummary getSummary() {
+    if (readModel.canServe()) {
+      return readModel.summary();
+    }
+    TodoCounters counters = new TodoCounters(calendar.today());
+    todoRepository.countTopLevelByStatusPriorityAndDueDate()
+            .forEach(count -> counters.add(count.completed(), count.priority(), count.dueDate(), count.count()));
+    return counters.summary();
+  }
+
+  private List<Todo> findRoots(TodoFilterCache.Key key, boolean fromReadModel) {
+    List<TodoSearchIndex.Hit> hits = search(key.search(), filterFor(key.status(), key.priority(), key.dueDate(), null),
+            fromReadModel);
+    TodoFilter filter = filterFor(key.status(), key.priority(), key.dueDate(), hits);
+    boolean byRelevance = RELEVANCE.equals(key.sortField());
+    if (fromReadModel) {
+      return byRelevance
+              ? readModel.findRoots(filter, hits.stream().map(TodoSearchIndex.Hit::id).toList())
+              : readModel.findRoots(filter, key.sortField(), key.descending(), null, Integer.MAX_VALUE);
+    }
+    List<Todo> todos = todoRepository.findAll(filter.toSpecification(), sortFor(
+            byRelevance ? "displayOrder" : key.sortField(), key.descending()));
+    if (byRelevance) {
+      Map<Long, Integer> rankById = new HashMap<>();
+      for (int i = 0; i < hits.size(); i++) {
+        rankById.put(hits.get(i).id(), i);
+      }
+      todos = new ArrayList<>(todos);
+      todos.sort(Comparator.comparing(todo -> rankById.get(todo.getId())));
+    }
+    return todos;
+  }
+
+  // A cached result: the same tasks, current state, in the cached order
+  private List<Todo> rootsByIds(List<Long> ids, boolean fromReadModel) {
+    if (fromReadModel) {
+      return readModel.findRoots(TodoFilter.of(null, null, null, null, calendar.today()), ids);
+    }
+    Map<Long, Todo> found = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += MAX_SEARCH_HITS) {
+      todoRepository.findAllById(ids.subList(from, Math.min(ids.size(), from + MAX_SEARCH_HITS)))
+              .forEach(todo -> found.put(todo.getId(), todo));
+    }
+    return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+  }
+
+  /**
+   * One page of {@link #getTodoTree}: at most {@code pageSize} top-level tasks after {@code cursor}
+   * (null for the first page), with all their descendants.
+   * Pages are read with a keyset predicate instead of OFFSET, so every page costs the same.
+   * Sorted by {@link #RELEVANCE}, the cursor is a position in the search ranking instead.
+   * The tasks are detached copies.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort
+   */
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public TodoPage getTodoPage(
+            String filterByStatus,
+            Priority filterByPriority,
+            String filterByDueDate,
+            String searchTerm,
+            String sortBy,
+            String sortDir,
+            String cursor,
+            int pageSize
+  ) {
+    NodePage page = findNodePage(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir,
+            cursor, pageSize);
+    return new TodoPage(TodoReadModel.treeOf(TodoReadModel.toTodos(page.roots()), page.descendants()),
+            page.nextCursor());
+  }
+
+  /**
+   * {@link #getTodoPage} for rendering the list: each task is a {@link TodoView} made straight from its row.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort
+   */
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public TodoViewPage getTodoViewPage(
+            String filterByStatus,
+            Priority filterByPriority,
+            String filterByDueDate,
+            String searchTerm,
+            String sortBy,
+            String sortDir,
+            String cursor,
+            int pageSize
+  ) {
+    NodePage page = findNodePage(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir,
+            cursor, pageSize);
+    Map<Long, String> titles = new HashMap<>();
+    List<TodoView> roots = new ArrayList<>(page.roots().size());
+    for (TodoNode root : page.roots()) {
+      roots.add(viewOf(root, null));
+      titles.put(root.id(), root.title());
+    }
+    List<TodoView> descendants = new ArrayList<>(page.descendants().size());
+    for (TodoNode node : page.descendants()) {
+      descendants.add(viewOf(node, titles.get(node.parentId())));
+      titles.put(node.id(), node.title());
+    }
+    return TodoViewPage.of(roots, descendants, page.nextCursor());
+  }
+
+  /**
+   * One task with its whole subtree, as a {@link TodoViewPage} whose only root is that task: what re-rendering its
+   * list item after a change needs. Empty if there is no such task.
+   */
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public Optional<TodoViewPage> getTodoViewSubtree(long id) {
+    boolean fromReadModel = readModel.canServe();
+    Function<List<Long>, List<TodoNode>> findNodes = fromReadModel ? readModel::findNodes : todoRepository::findNodesByIdIn;
+    List<TodoNode> found = findNodes.apply(List.of(id));
+    if (found.isEmpty()) {
+      return Optional.empty();
+    }
+    TodoNode node = found.get(0);
+    String parentTitle = node.parentId() == null ? null
+            : findNodes.apply(List.of(node.parentId())).stream().map(TodoNode::title).findFirst().orElse(null);
+    List<TodoNode> subtree = fromReadModel ? readModel.findDescendantNodes(List.of(id)) : findDescendantNodes(List.of(id));
+    Map<Long, String> titles = new HashMap<>();
+    titles.put(node.id(), node.title());
+    List<TodoView> descendants = new ArrayList<>(subtree.size());
+    for (TodoNode descendant : subtree) {
+      descendants.add(viewOf(descendant, titles.get(descendant.parentId())));
+      titles.put(descendant.id(), descendant.title());
+    }
+    return Optional.of(TodoViewPage.of(List.of(viewOf(node, parentTitle)), descendants, null));
+  }
+
+  private static TodoView viewOf(TodoNode node, String parentTitle) {
+    return new TodoView(node.id(), node.title(), node.completed(), node.dueDate(), node.priority(),
+            node.parentId(), parentTitle);
+  }
+
+  // A page as rows: the top-level ones in page order, then their descendants parents first and in sibling order
+  private record NodePage(List<TodoNode> roots, List<TodoNode> descendants, String nextCursor) {
+  }
+
+  // Read from TodoReadModel, or from the database as projections: no entity is hydrated either way
+  private NodePage findNodePage(String filterByStatus, Priority filterByPriority, String filterByDueDate,
+                                String searchTerm, String sortBy, String sortDir, String cursor, int pageSize) {
+    boolean fromReadModel = readModel.canServe();
+    TodoFilter filters = filterFor(filterByStatus, filterByPriority, filterByDueDate, null);
+    List<TodoSearchIndex.Hit> hits = search(searchTerm, filters, fromReadModel);
+    String sortField = sortFieldFor(sortBy, hits != null);
+    boolean descending = !RELEVANCE.equals(sortField) && "DESC".equalsIgnoreCase(sortDir);
+    int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+    if (after != null && !after.matches(sortField, descending)) {
+      throw new IllegalArgumentException("Cursor was issued for a different sort");
+    }
+
+    NodePage page;
+    if (RELEVANCE.equals(sortField)) {
+      page = relevancePage(fromReadModel ? ids -> readModel.findRootNodes(filters, ids)
+              : ids -> todoRepository.findNodeSlice(filters.toSpecification().and(TodoSpecification.hasIdIn(ids)),
+                      Sort.unsorted(), ids.size()),
+              hits, after, limit);
+    } else {
+      TodoFilter filter = filterFor(filterByStatus, filterByPriority, filterByDueDate, hits);
+      List<TodoNode> roots;
+      // One extra row tells whether there is a next page without a count query
+      if (fromReadModel) {
+        roots = readModel.findRootNodes(filter, sortField, descending, after, limit + 1);
+      } else {
+        Specification<Todo> spec = filter.toSpecification();
+        if (after != null) {
+          spec = spec.and(TodoSpecification.isAfter(sortField, descending, after.sortValue(), after.displayOrder(), after.id()));
         }
+        roots = todoRepository.findNodeSlice(spec, sortFor(sortField, descending), limit + 1);
+      }
+      String nextCursor = null;
+      if (roots.size() > limit) {
+        roots = roots.subList(0, limit);
+        nextCursor = PageCursor.after(roots.get(limit - 1), sortField, descending).encode();
+      }
+      page = new NodePage(roots, List.of(), nextCursor);
     }
 
-    // Search Term Filter (titleContains already returns alwaysTrue if searchTerm is blank)
-    spec = spec.and(TodoSpecification.titleContains(searchTerm));
+    if (page.roots().isEmpty()) {
+      return page;
+    }
+    List<Long> rootIds = page.roots().stream().map(TodoNode::id).toList();
+    return new NodePage(page.roots(), fromReadModel ? readModel.findDescendantNodes(rootIds) : findDescendantNodes(rootIds),
+            page.nextCursor());
+  }
 
-    // Sorting
-    Direction direction = "DESC".equalsIgnoreCase(sortDir) ? Direction.DESC : Direction.ASC;
+  // Two round trips: the ids from the recursive query, then their rows
+  private List<TodoNode> findDescendantNodes(List<Long> rootIds) {
+    List<Long> ids = todoRepository.findDescendantIdsOf(rootIds);
+    List<TodoNode> descendants = new ArrayList<>(ids.size());
+    for (int from = 0; from < ids.size(); from += MAX_SEARCH_HITS) {
+      descendants.addAll(todoRepository.findNodesByIdIn(ids.subList(from, Math.min(ids.size(), from + MAX_SEARCH_HITS))));
+    }
+    descendants.sort(Comparator.comparingInt(TodoNode::depth)
+            .thenComparing(TodoNode::displayOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(TodoNode::id));
+    return descendants;
+  }
+
+  // Walks the ranking from the cursor and keeps the hits that pass the other filters, a page's worth of ids per query
+  // findRoots returns the tasks among the given ids that pass the other filters, in any order
+  private static NodePage relevancePage(Function<List<Long>, List<TodoNode>> findRoots, List<TodoSearchIndex.Hit> hits,
+                                        PageCursor after, int limit) {
+    int next = 0;
+    if (after != null) {
+      TodoSearchIndex.Hit last = new TodoSearchIndex.Hit(after.id(), (Double) after.sortValue());
+      while (next < hits.size() && TodoSearchIndex.RANKING.compare(hits.get(next), last) <= 0) {
+        next++;
+      }
+    }
+
+    List<TodoNode> roots = new ArrayList<>();
+    List<TodoSearchIndex.Hit> rootHits = new ArrayList<>();
+    while (roots.size() <= limit && next < hits.size()) {
+      List<TodoSearchIndex.Hit> chunk = hits.subList(next, Math.min(hits.size(), next + limit + 1));
+      next += chunk.size();
+      Map<Long, TodoNode> found = findRoots.apply(chunk.stream().map(TodoSearchIndex.Hit::id).toList()).stream()
+              .collect(Collectors.toMap(TodoNode::id, Function.identity()));
+      for (TodoSearchIndex.Hit hit : chunk) {
+        TodoNode node = found.get(hit.id());
+        if (node != null) {
+          roots.add(node);
+          rootHits.add(hit);
+        }
+      }
+    }
+
+    String nextCursor = null;
+    if (roots.size() > limit) {
+      roots = roots.subList(0, limit);
+      nextCursor = PageCursor.after(rootHits.get(limit - 1)).encode();
+    }
+    return new NodePage(roots, List.of(), nextCursor);
+  }
+
+  // Null when there is no search term, so "no search" and "no matches" stay distinct. Only top-level tasks that pass
+  // the other filters count towards MAX_SEARCH_HITS: the indexes are read four times further each round, until that
+  // many have passed or the matches run out
+  private List<TodoSearchIndex.Hit> search(String searchTerm, TodoFilter filters, boolean fromReadModel) {
+    if (searchTerm == null || searchTerm.isBlank()) {
+      return null;
+    }
+    int indexed = searchIndex.size();
+    List<TodoSearchIndex.Hit> passed = new ArrayList<>();
+    int checked = 0;
+    for (int limit = MAX_SEARCH_HITS; ; limit = (int) Math.min(indexed, 4L * limit)) {
+      List<TodoSearchIndex.Hit> hits = matches(searchTerm, limit); // The previous round's hits come first again
+      passed.addAll(passing(hits.subList(checked, hits.size()), filters, fromReadModel));
+      checked = hits.size();
+      if (passed.size() >= MAX_SEARCH_HITS || hits.size() < limit || limit >= indexed) {
+        return passed.size() > MAX_SEARCH_HITS ? passed.subList(0, MAX_SEARCH_HITS) : passed;
+      }
+    }
+  }
+
+  // The first limit matches at any depth: word matches, then titles containing the term mid-word, e.g. part of a
+  // ticket number. Score 0 ranks those after every word match, oldest first
+  private List<TodoSearchIndex.Hit> matches(String searchTerm, int limit) {
+    List<TodoSearchIndex.Hit> hits = searchIndex.search(searchTerm, limit);
+    if (hits.size() == limit) {
+      return hits;
+    }
+    Set<Long> matched = hits.stream().map(TodoSearchIndex.Hit::id).collect(Collectors.toSet());
+    List<TodoSearchIndex.Hit> all = new ArrayList<>(hits);
+    for (long id : trigramIndex.find(searchTerm, limit)) {
+      if (all.size() == limit) {
+        break;
+      }
+      if (!matched.contains(id)) {
+        all.add(new TodoSearchIndex.Hit(id, 0));
+      }
+    }
+    return all;
+  }
+
+  // The hits for top-level tasks that pass the filters, in hit order
+  private List<TodoSearchIndex.Hit> passing(List<TodoSearchIndex.Hit> hits, TodoFilter filters, boolean fromReadModel) {
+    List<Long> ids = hits.stream().map(TodoSearchIndex.Hit::id).toList();
+    Set<Long> passed = new HashSet<>();
+    if (fromReadModel) {
+      readModel.findRootNodes(filters, ids).forEach(node -> passed.add(node.id()));
+    } else {
+      for (int from = 0; from < ids.size(); from += MAX_SEARCH_HITS) {
+        List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_SEARCH_HITS));
+        todoRepository.findNodeSlice(filters.toSpecification().and(TodoSpecification.hasIdIn(chunk)), Sort.unsorted(),
+                chunk.size()).forEach(node -> passed.add(node.id()));
+      }
+    }
+    return hits.stream().filter(hit -> passed.contains(hit.id())).toList();
+  }
+
+  private TodoFilter filterFor(String filterByStatus, Priority filterByPriority,
+                               String filterByDueDate, List<TodoSearchIndex.Hit> searchHits) {
+    return TodoFilter.of(filterByStatus, filterByPriority, filterByDueDate,
+            searchHits == null ? null : searchHits.stream().map(TodoSearchIndex.Hit::id).toList(), calendar.today());
+  }
+
+  // Relevance only means something with a search term; without one it falls back to manual order
+  static String sortFieldFor(String sortBy, boolean searching) {
+    if (RELEVANCE.equalsIgnoreCase(sortBy)) {
+        return searching ? RELEVANCE : "displayOrder";
+    }
     String sortField = "displayOrder"; // New default sort field
 
     if (sortBy != null && !sortBy.trim().isEmpty() && !"manual".equalsIgnoreCase(sortBy) && !"displayOrder".equalsIgnoreCase(sortBy)) {
@@ -83,7 +447,12 @@ public class TodoService {
         else if ("creationDate".equalsIgnoreCase(sortBy)) sortField = "creationDate";
         // If sortBy is something else unrecognized, it defaults to displayOrder
     }
+    return sortField;
+  }
 
+  // Nulls sort high (last ascending, first descending); see spring.datasource.url and TodoSpecification.isAfter
+  private static Sort sortFor(String sortField, boolean descending) {
+    Direction direction = descending ? Direction.DESC : Direction.ASC;
     Sort sort;
     if (!"displayOrder".equals(sortField)) {
         // Add displayOrder as a secondary sort for stability if sorting by something else
@@ -91,8 +460,35 @@ public class TodoService {
     } else {
         sort = Sort.by(direction, sortField); // Primary sort by displayOrder
     }
+    return sort.and(Sort.by(Direction.ASC, "id")); // Final tiebreaker, e.g. for tasks that have no rank yet
+  }
 
-    return todoRepository.findAll(spec, sort);
+  /**
+   * Same filtering and sorting as {@link #getTodos}, plus every descendant of the matching
+   * top-level tasks. Costs two queries regardless of tree size or depth, or none when served from {@link TodoReadModel}.
+   */
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public TodoTree getTodoTree(
+            String filterByStatus,
+            Priority filterByPriority,
+            String filterByDueDate,
+            String searchTerm,
+            String sortBy,
+            String sortDir
+  ) {
+    boolean fromReadModel = readModel.canServe();
+    return treeOf(getTodos(filterByStatus, filterByPriority, filterByDueDate, searchTerm, sortBy, sortDir), fromReadModel);
+  }
+
+  private TodoTree treeOf(List<Todo> roots, boolean fromReadModel) {
+    if (fromReadModel) {
+      return readModel.treeOf(roots);
+    }
+    if (roots.isEmpty()) {
+      return TodoTree.empty();
+    }
+    List<Long> rootIds = roots.stream().map(Todo::getId).toList();
+    return TodoTree.of(roots, todoRepository.findDescendantsOf(rootIds));
   }
 
   @Transactional // Make it transactional as it modifies data
@@ -105,15 +501,45 @@ public class TodoService {
         todo.setPriority(priority);
     }
 
-    Integer maxOrder = todoRepository.findMaxDisplayOrderByParentIsNull();
-    todo.setDisplayOrder(maxOrder == null ? 0 : maxOrder + 1);
+    todo.setDisplayOrder(displayOrderAllocator.nextAppendRank());
 
-    return todoRepository.save(todo);
+    Todo saved = todoRepository.save(todo);
+    changeFeed.publish(TodoChange.created(saved.getId(), null));
+    return saved;
   }
 
+  /**
+   * Inserts many tasks in one transaction; ids come from the pooled sequence, so the
+   * inserts are sent in JDBC batches rather than one round trip per row.
+   * Subtasks must follow their parent in the list. Tasks without a displayOrder are appended.
+   */
+  @Transactional
+  public List<Todo> addTodos(List<Todo> todos) {
+    for (Todo todo : todos) {
+      if (todo.getDisplayOrder() == null) {
+        todo.setDisplayOrder(displayOrderAllocator.nextAppendRank());
+      }
+    }
+    List<Todo> saved = todoRepository.saveAll(todos);
+    saved.forEach(todo -> changeFeed.publish(TodoChange.created(todo.getId(), parentIdOf(todo))));
+    return saved;
+  }
+
+  /**
+   * Deletes a task with its whole subtree in a few set-based statements, without loading the subtree (see
+   * {@link TodoRepository#deleteSubtrees}). Deleting a missing task does nothing.
+   */
   @Transactional
   public void deleteTodo(long id) {
-    todoRepository.deleteById(id);
+    List<TodoNode> found = todoRepository.findNodesByIdIn(List.of(id));
+    if (found.isEmpty()) {
+      return;
+    }
+    todoRepository.flush(); // Pending entity writes must not land after the rows are gone
+    List<Long> deleted = todoRepository.deleteSubtrees(Map.of(id, found.get(0).descendantPathPrefix()));
+    readModel.changed(id); // Its subtasks leave the model with it
+    searchIndexer.deleted(deleted);
+    changeFeed.publish(TodoChange.deleted(id)); // Its subtasks go with it
   }
 
   @Transactional
@@ -122,9 +548,72 @@ public class TodoService {
     optionalTodo.ifPresent(todo -> {
       todo.setCompleted(true);
       todoRepository.save(todo);
+      changeFeed.publish(TodoChange.completed(id));
     });
   }
 
+  /**
+   * Marks a task and every task below it as completed.
+   * The descendants are updated with one statement over the path index, without loading them.
+   */
+  @Transactional
+  public void markSubtreeCompleted(long id) {
+    todoRepository.findById(id).ifPresent(todo -> {
+      todo.setCompleted(true);
+      todoRepository.save(todo);
+      todoRepository.markCompletedByPathLike(todo.getDescendantPathPrefix() + "%");
+      readModel.subtreeChanged(todo.getDescendantPathPrefix());
+      changeFeed.publish(TodoChange.completed(id));
+    });
+  }
+
+  public List<Todo> findDescendants(long id) {
+    return todoRepository.findById(id)
+            .map(todo -> todoRepository.findByPathLike(todo.getDescendantPathPrefix() + "%"))
+            .orElseGet(ArrayList::new);
+  }
+
+  /**
+   * Re-parents a task (null parent moves it to the top level) and appends it to its new siblings.
+   * Paths and depths of the whole subtree are rewritten with one bulk update.
+   *
+   * @throws IllegalArgumentException if the new parent is the task itself or one of its descendants
+   */
+  @Transactional
+  public Optional<Todo> moveTask(long id, Long newParentId) {
+    Optional<Todo> optionalTodo = todoRepository.findById(id);
+    if (optionalTodo.isEmpty()) {
+      return Optional.empty();
+    }
+    Todo todo = optionalTodo.get();
+
+    Todo newParent = null;
+    if (newParentId != null) {
+      Optional<Todo> optionalParent = todoRepository.findById(newParentId);
+      if (optionalParent.isEmpty()) {
+        return Optional.empty();
+      }
+      newParent = optionalParent.get();
+      if (newParent.getId() == todo.getId() || newParent.getPath().startsWith(todo.getDescendantPathPrefix())) {
+        throw new IllegalArgumentException("Task " + id + " cannot be moved under itself or one of its subtasks");
+      }
+    }
+
+    String oldDescendantPrefix = todo.getDescendantPathPrefix();
+    int oldDepth = todo.getDepth();
+
+    todo.setParent(newParent);
+    todo.placeUnder(newParent);
+    todo.setDisplayOrder(displayOrderAllocator.nextAppendRank());
+    Todo saved = todoRepository.save(todo);
+
+    todoRepository.rebaseSubtree(oldDescendantPrefix + "%", saved.getDescendantPathPrefix(),
+            oldDescendantPrefix.length() + 1, saved.getDepth() - oldDepth);
+    readModel.subtreeChanged(saved.getDescendantPathPrefix());
+    changeFeed.publish(TodoChange.reordered(id, newParentId, null, null)); // Appended
+    return Optional.of(saved);
+  }
+
   @Transactional
   public Optional<Todo> updateTodo(long id, String title, LocalDate dueDate, Priority priority) {
     Optional<Todo> optionalTodo = todoRepository.findById(id);
@@ -135,7 +624,9 @@ public class TodoService {
         todo.setPriority(priority);
       }
       // Note: displayOrder is not updated here, it's handled by updateTaskOrder
-      return todoRepository.save(todo);
+      Todo saved = todoRepository.save(todo);
+      changeFeed.publish(TodoChange.updated(id));
+      return saved;
     });
   }
 
@@ -157,46 +648,136 @@ public class TodoService {
       }
       subTask.setParent(parentTodo);
 
-      Integer maxOrder = todoRepository.findMaxDisplayOrderByParent(parentTodo);
-      subTask.setDisplayOrder(maxOrder == null ? 0 : maxOrder + 1);
+      subTask.setDisplayOrder(displayOrderAllocator.nextAppendRank());
 
       // parentTodo.addSubTask(subTask); // Optional: for in-memory consistency if parentTodo is further used
-      return Optional.of(todoRepository.save(subTask));
+      Todo saved = todoRepository.save(subTask);
+      changeFeed.publish(TodoChange.created(saved.getId(), parentId));
+      return Optional.of(saved);
     } else {
       return Optional.empty(); // Or throw new EntityNotFoundException("Parent task with id " + parentId + " not found");
     }
   }
 
+  /**
+   * Drops a task between two siblings; either neighbour may be null for the start or end of the list.
+   * If {@code parentId} differs from the task's current parent the task is re-parented first.
+   * Only the moved row is written unless its neighbours have no room left between them.
+   * The task and its neighbours are locked together, in the order a rebalance locks siblings, before any of them
+   * is read or written. Returns empty if the task or a given neighbour does not exist.
+   *
+   * @throws IllegalArgumentException if a neighbour is not a child of {@code parentId}
+   */
+  @Transactional
+  public Optional<Todo> repositionTask(long taskId, Long parentId, Long previousTaskId, Long nextTaskId) {
+    List<Long> lockedIds = new ArrayList<>();
+    lockedIds.add(taskId);
+    if (previousTaskId != null) lockedIds.add(previousTaskId);
+    if (nextTaskId != null) lockedIds.add(nextTaskId);
+    Map<Long, Todo> locked = todoRepository.findAllByIdForUpdate(lockedIds).stream()
+            .collect(Collectors.toMap(Todo::getId, Function.identity()));
+    if (!locked.keySet().containsAll(lockedIds)) {
+      return Optional.empty(); // Not placed anywhere the client did not ask for
+    }
+    for (Long neighbourId : lockedIds.subList(1, lockedIds.size())) {
+      if (!Objects.equals(parentIdOf(locked.get(neighbourId)), parentId)) {
+        throw new IllegalArgumentException("Task " + neighbourId + " is not a child of " + parentId);
+      }
+    }
+    Todo task = locked.get(taskId);
+    if (!Objects.equals(parentIdOf(task), parentId)) {
+      Optional<Todo> moved = moveTask(taskId, parentId);
+      if (moved.isEmpty()) {
+        return Optional.empty();
+      }
+      task = moved.get();
+    }
+
+    Todo previous = previousTaskId == null ? null : locked.get(previousTaskId);
+    Todo next = nextTaskId == null ? null : locked.get(nextTaskId);
+    if (next == null && previous != null && previous.getDisplayOrder() != null) {
+      // The client may only have the first pages of the list loaded: "last" means right after previous
+      // Two rows, in case the first one is the moved task itself
+      next = todoRepository.findSiblingsAfterForUpdate(parentId, previous.getDisplayOrder(), PageRequest.of(0, 2)).stream()
+              .filter(sibling -> sibling.getId() != taskId)
+              .findFirst().orElse(null);
+    }
+
+    if (next == null) {
+      task.setDisplayOrder(displayOrderAllocator.nextAppendRank());
+    } else if (previous == null) {
+      if (next.getDisplayOrder() == null) {
+        taskRankRebalancer.rebalance(parentId);
+      }
+      task.setDisplayOrder(next.getDisplayOrder() - DisplayOrderAllocator.GAP);
+    } else {
+      if (!hasRoomBetween(previous, next)) {
+        // Out of room: respace this list now, in the same transaction, rather than fail the move
+        taskRankRebalancer.rebalance(parentId);
+      }
+      long low = previous.getDisplayOrder();
+      long high = next.getDisplayOrder();
+      long rank = low + (high - low) / 2;
+      task.setDisplayOrder(rank);
+      if (rank - low < CROWDED_GAP || high - rank < CROWDED_GAP) {
+        eventPublisher.publishEvent(new SiblingRanksCrowdedEvent(parentId));
+      }
+    }
+    Todo saved = todoRepository.save(task);
+    changeFeed.publish(TodoChange.reordered(taskId, parentId, previous == null ? null : previous.getId(),
+            next == null ? null : next.getId()));
+    return Optional.of(saved);
+  }
+
+  private static boolean hasRoomBetween(Todo previous, Todo next) {
+    return previous.getDisplayOrder() != null && next.getDisplayOrder() != null
+            && next.getDisplayOrder() - previous.getDisplayOrder() >= 2;
+  }
+
+  private static Long parentIdOf(Todo todo) {
+    return todo.getParent() == null ? null : todo.getParent().getId();
+  }
+
+  /**
+   * Rewrites the order of a whole sibling list, as sent by older clients.
+   * Ids that are missing or belong to another parent are skipped without leaving a hole; a repeated id keeps
+   * its first position.
+   * All ids are resolved with one query and the changed ranks go out as one JDBC batch.
+   */
   @Transactional
   public void updateTaskOrder(List<Long> orderedTaskIds, Long nullableParentId) {
-      List<Todo> tasksToUpdate = new ArrayList<>();
-      for (int i = 0; i < orderedTaskIds.size(); i++) {
-          Long taskId = orderedTaskIds.get(i);
-          int newOrder = i; // The new displayOrder is the index in the list
-          Optional<Todo> optionalTodo = todoRepository.findById(taskId);
-          if (optionalTodo.isPresent()) {
-              Todo task = optionalTodo.get();
-
-              boolean parentMatch = (nullableParentId == null && task.getParent() == null) ||
-                                    (nullableParentId != null && task.getParent() != null && nullableParentId.equals(task.getParent().getId()));
-
-              if (parentMatch) {
-                  if (task.getDisplayOrder() == null || task.getDisplayOrder() != newOrder) {
-                    task.setDisplayOrder(newOrder);
-                    tasksToUpdate.add(task);
-                  }
-              } else {
-                  // Log error or throw exception if a task does not belong to the expected parent context
-                  // This indicates a potential issue with the data sent from the client
-                  System.err.println("Task " + taskId + " (current parent: " + (task.getParent() != null ? task.getParent().getId() : "null")
-                                     + ") does not match expected parent context: " + nullableParentId + ". Skipping order update for this task.");
-              }
+      List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderedTaskIds));
+      Map<Long, SiblingRank> currentRanks = todoRepository.findSiblingRanks(distinctIds).stream()
+              .collect(Collectors.toMap(SiblingRank::id, Function.identity()));
+
+      Map<Long, Long> ranksToUpdate = new LinkedHashMap<>();
+      List<Long> orderedIds = new ArrayList<>();
+      long newOrder = 0;
+      for (Long taskId : distinctIds) {
+          SiblingRank task = currentRanks.get(taskId);
+          if (task == null) {
+              log.warn("Task {} not found during order update, skipping it", taskId);
+          } else if (!Objects.equals(task.parentId(), nullableParentId)) {
+              // The client sent a list that does not match the data: a stale page or a concurrent move
+              log.warn("Task {} has parent {}, not {}, skipping its order update", taskId, task.parentId(),
+                      nullableParentId);
           } else {
-             System.err.println("Task with ID " + taskId + " not found during order update. Skipping.");
+              newOrder += DisplayOrderAllocator.GAP;
+              orderedIds.add(taskId);
+              if (task.displayOrder() == null || task.displayOrder() != newOrder) {
+                  ranksToUpdate.put(taskId, newOrder);
+              }
           }
       }
-      if (!tasksToUpdate.isEmpty()) {
-        todoRepository.saveAll(tasksToUpdate);
+      if (!ranksToUpdate.isEmpty()) {
+        displayOrderAllocator.observe(newOrder);
+        todoRepository.updateDisplayOrders(ranksToUpdate);
+        ranksToUpdate.keySet().forEach(readModel::changed);
+        // The whole list, front to back: applied in turn, the events reproduce the new order
+        for (int i = 0; i < orderedIds.size(); i++) {
+          changeFeed.publish(TodoChange.reordered(orderedIds.get(i), nullableParentId,
+                  i == 0 ? null : orderedIds.get(i - 1), i == orderedIds.size() - 1 ? null : orderedIds.get(i + 1)));
+        }
       }
   }
 }
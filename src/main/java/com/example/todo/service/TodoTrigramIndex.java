@@ -0,0 +1,192 @@
+package com.example.todo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over task titles, for fragments anywhere in a title: "c-12" finds "Ticket ABC-1234",
+ * which {@link TodoSearchIndex} cannot since the fragment starts mid-word.
+ * <p>
+ * Every three-character window of the folded title (see {@link TodoSearchIndex#fold}) has a posting list of task ids.
+ * A fragment's candidates are the intersection of its trigrams' lists; only those candidates are checked against the
+ * title itself. Fragments shorter than {@link #MIN_FRAGMENT} characters are not looked up.
+ * <p>
+ * Kept up to date by {@link TodoSearchIndexer}. Reads share a lock; writes are exclusive.
+ */
+@Component
+public class TodoTrigramIndex {
+  public static final int MIN_FRAGMENT = 3;
+
+  // trigram, three chars packed into a long -> ids of the tasks whose folded title contains it
+  private final Map<Long, Postings> postingsByTrigram = new HashMap<>();
+  // id -> folded title, to unindex and to verify candidates
+  private final Map<Long, String> titlesById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Indexes a task's title, replacing whatever was indexed for it before. */
+  public void put(long id, String title) {
+    String folded = title == null ? "" : TodoSearchIndex.fold(title);
+    lock.writeLock().lock();
+    try {
+      String previous = titlesById.get(id);
+      if (folded.equals(previous)) {
+        return;
+      }
+      unindex(id, previous);
+      if (folded.length() < MIN_FRAGMENT) {
+        return; // Has no trigrams; too short to hold a fragment worth looking up
+      }
+      for (int i = 0; i + MIN_FRAGMENT <= folded.length(); i++) {
+        postingsByTrigram.computeIfAbsent(trigram(folded, i), trigram -> new Postings()).add(id);
+      }
+      titlesById.put(id, folded);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      unindex(id, titlesById.get(id));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postingsByTrigram.clear();
+      titlesById.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Number of indexed tasks. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return titlesById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of the first {@code limit} tasks, oldest first, whose title contains {@code fragment} ignoring case and
+   * accents. Surrounding whitespace is ignored; fragments shorter than {@link #MIN_FRAGMENT} match nothing.
+   */
+  public List<Long> find(String fragment, int limit) {
+    String folded = fragment == null ? "" : TodoSearchIndex.fold(fragment.strip());
+    if (folded.length() < MIN_FRAGMENT || limit <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      List<Postings> lists = new ArrayList<>();
+      for (int i = 0; i + MIN_FRAGMENT <= folded.length(); i++) {
+        Postings postings = postingsByTrigram.get(trigram(folded, i));
+        if (postings == null) {
+          return List.of();
+        }
+        lists.add(postings);
+      }
+
+      // Intersect from the shortest list, so each step can only shrink the candidates
+      lists.sort(Comparator.comparingInt(postings -> postings.size));
+      long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+      int count = candidates.length;
+      for (int l = 1; l < lists.size() && count > 0; l++) {
+        count = lists.get(l).retainAll(candidates, count);
+      }
+
+      // Having every trigram does not make a match: "abcab" has the trigrams of "abcabc"
+      List<Long> ids = new ArrayList<>();
+      for (int c = 0; c < count && ids.size() < limit; c++) {
+        if (titlesById.get(candidates[c]).contains(folded)) {
+          ids.add(candidates[c]);
+        }
+      }
+      return ids;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static long trigram(String text, int at) {
+    return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+  }
+
+  private void unindex(long id, String folded) {
+    if (folded == null) {
+      return;
+    }
+    for (int i = 0; i + MIN_FRAGMENT <= folded.length(); i++) {
+      long trigram = trigram(folded, i);
+      Postings postings = postingsByTrigram.get(trigram);
+      if (postings != null && postings.remove(id) && postings.size == 0) {
+        postingsByTrigram.remove(trigram);
+      }
+    }
+    titlesById.remove(id);
+  }
+
+  /** Sorted, duplicate-free ids in a growable primitive array; new tasks have the highest ids, so adds are appends. */
+  private static final class Postings {
+    long[] ids = new long[2];
+    int size;
+
+    void add(long id) {
+      int at = size;
+      if (size > 0 && ids[size - 1] >= id) {
+        at = Arrays.binarySearch(ids, 0, size, id);
+        if (at >= 0) {
+          return; // The trigram occurs more than once in the title
+        }
+        at = -at - 1;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, at, ids, at + 1, size - at);
+      ids[at] = id;
+      size++;
+    }
+
+    boolean remove(long id) {
+      int at = Arrays.binarySearch(ids, 0, size, id);
+      if (at < 0) {
+        return false;
+      }
+      System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+      size--;
+      return true;
+    }
+
+    // Keeps the first count sorted candidates that are also in this list, in place; returns how many remain
+    int retainAll(long[] candidates, int count) {
+      int kept = 0;
+      int from = 0;
+      for (int c = 0; c < count && from < size; c++) {
+        int at = Arrays.binarySearch(ids, from, size, candidates[c]);
+        if (at >= 0) {
+          candidates[kept++] = candidates[c];
+          from = at + 1;
+        } else {
+          from = -at - 1;
+        }
+      }
+      return kept;
+    }
+  }
+}
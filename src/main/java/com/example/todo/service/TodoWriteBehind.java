@@ -0,0 +1,261 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoService#addTodo}, {@link TodoService#markCompleted} and {@link TodoService#updateTodo}, committed in
+ * groups when {@code todo.write-behind.enabled} is set.
+ * <p>
+ * Writes are queued (at most {@code todo.write-behind.queue-capacity}; a full queue rejects the write) and applied by
+ * one flusher thread in a single transaction per group: the group closes {@code todo.write-behind.window-millis}
+ * after its first write, or at {@code todo.write-behind.max-batch} writes. Within a group, the writes to one task are
+ * coalesced into one update. If the group's transaction fails, each of its writes is retried in a transaction of its
+ * own, so one bad write does not fail the others.
+ * <p>
+ * A returned future completes once its write has committed and {@link TodoReadModel} shows it, so a caller that
+ * waits for it reads its own write. Disabled, every method runs the service call directly and returns a completed
+ * future.
+ */
+@Component
+public class TodoWriteBehind {
+
+  private final TodoService todoService;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final int maxBatch;
+  private final long windowNanos;
+  private final BlockingQueue<Write> queue;
+  private volatile Thread flusher;
+
+  @Autowired
+  public TodoWriteBehind(TodoService todoService,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${todo.write-behind.enabled:false}") boolean enabled,
+                         @Value("${todo.write-behind.max-batch:100}") int maxBatch,
+                         @Value("${todo.write-behind.window-millis:5}") long windowMillis,
+                         @Value("${todo.write-behind.queue-capacity:10000}") int queueCapacity) {
+    this.todoService = todoService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.enabled = enabled;
+    this.maxBatch = Math.max(1, maxBatch);
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+  }
+
+  @PostConstruct
+  void start() {
+    if (enabled) {
+      flusher = new Thread(this::flushLoop, "todo-write-behind");
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+  }
+
+  // Writes still queued are committed before the context closes
+  @PreDestroy
+  void stop() throws InterruptedException {
+    Thread thread = flusher;
+    if (thread != null) {
+      flusher = null;
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+  }
+
+  public CompletableFuture<Todo> addTodo(String title, LocalDate dueDate, Priority priority) {
+    if (!enabled) {
+      return CompletableFuture.completedFuture(todoService.addTodo(title, dueDate, priority));
+    }
+    return submit(new Add(title, dueDate, priority, new CompletableFuture<>()));
+  }
+
+  public CompletableFuture<Void> markCompleted(long id) {
+    if (!enabled) {
+      todoService.markCompleted(id);
+      return CompletableFuture.completedFuture(null);
+    }
+    return submit(new Complete(id, new CompletableFuture<>()));
+  }
+
+  /** Empty if there is no such task. */
+  public CompletableFuture<Optional<Todo>> updateTodo(long id, String title, LocalDate dueDate, Priority priority) {
+    if (!enabled) {
+      return CompletableFuture.completedFuture(todoService.updateTodo(id, title, dueDate, priority));
+    }
+    return submit(new Update(id, title, dueDate, priority, new CompletableFuture<>()));
+  }
+
+  private <T> CompletableFuture<T> submit(Write write) {
+    @SuppressWarnings("unchecked")
+    CompletableFuture<T> result = (CompletableFuture<T>) write.result();
+    if (!queue.offer(write)) {
+      result.completeExceptionally(new RejectedExecutionException("Write-behind queue is full"));
+    }
+    return result;
+  }
+
+  private void flushLoop() {
+    List<Write> group = new ArrayList<>(maxBatch);
+    try {
+      while (flusher != null) {
+        Write first = queue.poll(100, TimeUnit.MILLISECONDS); // Wakes up now and then to see whether it should stop
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+        long closesAt = System.nanoTime() + windowNanos;
+        while (group.size() < maxBatch) {
+          Write next = queue.poll(closesAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+        }
+        flush(group);
+        group.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush(group);
+    flushQueued();
+  }
+
+  /** Commits whatever is queued now, in groups of at most max-batch writes. */
+  void flushQueued() {
+    List<Write> group = new ArrayList<>(maxBatch);
+    while (queue.drainTo(group, maxBatch) > 0) {
+      flush(group);
+      group.clear();
+    }
+  }
+
+  private void flush(List<Write> group) {
+    if (group.isEmpty()) {
+      return;
+    }
+    List<Pending> pending = new ArrayList<>();
+    Map<Long, TaskWrites> byTask = new LinkedHashMap<>();
+    for (Write write : group) {
+      if (write instanceof Add add) {
+        pending.add(add);
+      } else {
+        long id = write instanceof Complete complete ? complete.id() : ((Update) write).id();
+        byTask.computeIfAbsent(id, k -> {
+          TaskWrites writes = new TaskWrites(k);
+          pending.add(writes);
+          return writes;
+        }).merge(write);
+      }
+    }
+    List<Runnable> completions = new ArrayList<>(pending.size());
+    try {
+      transactionTemplate.executeWithoutResult(status -> pending.forEach(p -> completions.add(p.apply(todoService))));
+    } catch (RuntimeException groupFailure) {
+      for (Pending p : pending) {
+        try {
+          transactionTemplate.execute(status -> p.apply(todoService)).run();
+        } catch (RuntimeException e) {
+          p.fail(e);
+        }
+      }
+      return;
+    }
+    completions.forEach(Runnable::run);
+  }
+
+  // A write, or the coalesced writes to one task, as applied in a group's transaction
+  private interface Pending {
+    /** Applies the write; the returned action completes its futures once the transaction has committed. */
+    Runnable apply(TodoService todoService);
+
+    void fail(RuntimeException e);
+  }
+
+  private sealed interface Write permits Add, Complete, Update {
+    CompletableFuture<?> result();
+  }
+
+  private record Add(String title, LocalDate dueDate, Priority priority, CompletableFuture<Todo> result)
+          implements Write, Pending {
+    @Override
+    public Runnable apply(TodoService todoService) {
+      Todo created = todoService.addTodo(title, dueDate, priority);
+      return () -> result.complete(created);
+    }
+
+    @Override
+    public void fail(RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+  private record Complete(long id, CompletableFuture<Void> result) implements Write {
+  }
+
+  private record Update(long id, String title, LocalDate dueDate, Priority priority,
+                        CompletableFuture<Optional<Todo>> result) implements Write {
+  }
+
+  // The writes to one task in a group, as one: the last title and due date, the last priority given, and completed
+  // if any of them completes it. An update does not touch completed, so the order of the two does not matter
+  private static final class TaskWrites implements Pending {
+    final long id;
+    Update update;
+    Priority priority;
+    final List<CompletableFuture<Optional<Todo>>> updateResults = new ArrayList<>();
+    final List<CompletableFuture<Void>> completeResults = new ArrayList<>();
+
+    TaskWrites(long id) {
+      this.id = id;
+    }
+
+    void merge(Write write) {
+      if (write instanceof Update next) {
+        update = next;
+        priority = next.priority() != null ? next.priority() : priority;
+        updateResults.add(next.result());
+      } else {
+        completeResults.add(((Complete) write).result());
+      }
+    }
+
+    @Override
+    public Runnable apply(TodoService todoService) {
+      Optional<Todo> updated = update == null ? Optional.empty()
+              : todoService.updateTodo(id, update.title(), update.dueDate(), priority);
+      if (!completeResults.isEmpty()) {
+        todoService.markCompleted(id);
+      }
+      return () -> {
+        updateResults.forEach(result -> result.complete(updated));
+        completeResults.forEach(result -> result.complete(null));
+      };
+    }
+
+    @Override
+    public void fail(RuntimeException e) {
+      updateResults.forEach(result -> result.completeExceptionally(e));
+      completeResults.forEach(result -> result.completeExceptionally(e));
+    }
+  }
+}
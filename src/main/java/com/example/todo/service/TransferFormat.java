@@ -0,0 +1,19 @@
+package com.example.todo.service;
+
+/**
+ * Line-oriented formats used by bulk import and export.
+ */
+public enum TransferFormat {
+  NDJSON("application/x-ndjson"),
+  CSV("text/csv");
+
+  private final String mediaType;
+
+  TransferFormat(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+}
@@ -0,0 +1,35 @@
+-- Managed schema. Hibernate only validates it (spring.jpa.hibernate.ddl-auto=validate),
+-- so every index lives here, next to the query shape it serves.
+
+CREATE SEQUENCE IF NOT EXISTS todo_seq START WITH 1 INCREMENT BY 50; -- Todo.ID_ALLOCATION_SIZE
+
+CREATE TABLE IF NOT EXISTS todo (
+    id            BIGINT        NOT NULL PRIMARY KEY,
+    title         VARCHAR(255),
+    completed     BOOLEAN       NOT NULL,
+    due_date      DATE,
+    priority      VARCHAR(255)  CHECK (priority IN ('HIGH', 'MEDIUM', 'LOW')),
+    parent_id     BIGINT        REFERENCES todo (id) ON DELETE CASCADE, -- Subtree deletes in any row order
+    creation_date TIMESTAMP(6),
+    display_order BIGINT,
+    path          VARCHAR(1024),
+    depth         INTEGER       NOT NULL
+);
+
+-- Sibling lists (parent_id = ?): reorder, reposition locks and the recursive descendant query
+CREATE INDEX IF NOT EXISTS idx_todo_parent_order ON todo (parent_id, display_order, id);
+
+-- The index page lists top-level tasks (depth = 0, see TodoSpecification.isTopLevelTask), so depth
+-- leads the indexes for its filters. display_order, id trail where they match the sort tiebreakers.
+
+-- Manual order, unfiltered
+CREATE INDEX IF NOT EXISTS idx_todo_root_order ON todo (depth, display_order, id);
+-- Status filter, and "overdue" (pending with a due date before today)
+CREATE INDEX IF NOT EXISTS idx_todo_root_completed_due ON todo (depth, completed, due_date);
+-- "Today" and "next 7 days"
+CREATE INDEX IF NOT EXISTS idx_todo_root_due ON todo (depth, due_date, display_order, id);
+-- Priority filter
+CREATE INDEX IF NOT EXISTS idx_todo_root_priority ON todo (depth, priority, display_order, id);
+
+-- Subtree reads and writes: path LIKE '/1/5/%'
+CREATE INDEX IF NOT EXISTS idx_todo_path ON todo (path);
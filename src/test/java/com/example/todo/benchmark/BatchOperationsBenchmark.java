@@ -0,0 +1,113 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoBatchService;
+import com.example.todo.service.TodoOperation;
+import com.example.todo.service.TodoOperationResult;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Time to apply 100 / 1k / 10k mixed operations (update, complete, complete a subtree, create a subtask, move a
+ * subtask) over as many tasks with one subtask each: one TodoService call and transaction per operation, against
+ * one TodoBatchService batch.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest
+public class BatchOperationsBenchmark {
+
+    private static final int[] OPERATION_COUNTS = {100, 1_000, 10_000};
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoBatchService todoBatchService;
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void batchLatency() {
+        System.out.printf("%n%-12s %18s %15s%n", "operations", "one by one (ms)", "batch (ms)");
+        for (int count : OPERATION_COUNTS) {
+            List<TodoOperation> operations = operations(seed(count));
+            long start = System.nanoTime();
+            operations.forEach(this::applyAlone);
+            double oneByOne = (System.nanoTime() - start) / 1_000_000.0;
+            todoRepository.deleteAll();
+
+            operations = operations(seed(count));
+            start = System.nanoTime();
+            List<TodoOperationResult> results = todoBatchService.apply(operations);
+            double batch = (System.nanoTime() - start) / 1_000_000.0;
+            assertTrue(results.stream().allMatch(result -> result.status() < 300));
+            todoRepository.deleteAll();
+
+            System.out.printf("%-12d %18.2f %15.2f%n", count, oneByOne, batch);
+        }
+    }
+
+    // Pairs of a top-level task and its subtask
+    private List<Todo> seed(int count) {
+        List<Todo> tasks = new ArrayList<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            Todo parent = new Todo();
+            parent.setTitle("Task " + i);
+            Todo child = new Todo();
+            child.setTitle("Subtask " + i);
+            child.setParent(parent);
+            tasks.add(parent);
+            tasks.add(child);
+        }
+        return todoService.addTodos(tasks);
+    }
+
+    private static List<TodoOperation> operations(List<Todo> seeded) {
+        int count = seeded.size() / 2;
+        List<TodoOperation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = seeded.get(i * 2).getId();
+            long childId = seeded.get(i * 2 + 1).getId();
+            long nextId = seeded.get(((i + 1) % count) * 2).getId();
+            operations.add(switch (i % 5) {
+                case 0 -> new TodoOperation(TodoOperation.Type.UPDATE, id, "Renamed " + i, null, null, null, false);
+                case 1 -> new TodoOperation(TodoOperation.Type.COMPLETE, id, null, null, null, null, false);
+                case 2 -> new TodoOperation(TodoOperation.Type.COMPLETE, id, null, null, null, null, true);
+                case 3 -> new TodoOperation(TodoOperation.Type.CREATE, null, "Created " + i, null, null, id, false);
+                default -> new TodoOperation(TodoOperation.Type.MOVE, childId, null, null, null, nextId, false);
+            });
+        }
+        return operations;
+    }
+
+    private void applyAlone(TodoOperation operation) {
+        switch (operation.op()) {
+            case UPDATE -> todoService.updateTodo(operation.id(), operation.title(), null, null);
+            case COMPLETE -> {
+                if (operation.subtree()) {
+                    todoService.markSubtreeCompleted(operation.id());
+                } else {
+                    todoService.markCompleted(operation.id());
+                }
+            }
+            case CREATE -> todoService.addSubTask(operation.parentId(), operation.title(), null, null);
+            case MOVE -> todoService.moveTask(operation.id(), operation.parentId());
+            case DELETE -> todoService.deleteTodo(operation.id());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.repository.TodoSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Time to fetch the top-level tasks of page 1, 100 and 500 (50 each, sorted by title)
+ * with OFFSET versus the keyset predicate TodoService.getTodoPage uses.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+public class KeysetPagingBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int[] PAGES = {1, 100, 500};
+    private static final int ROUNDS = 7;
+    private static final Sort TITLE_ORDER = Sort.by("title", "displayOrder", "id");
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void pageLatency() {
+        int rows = PAGE_SIZE * PAGES[PAGES.length - 1];
+        List<Object[]> args = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            args.add(new Object[] {String.format("Task %06d", (i * 7919L) % rows), (long) (i + 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO todo (id, title, completed, priority, display_order, path, depth) "
+                + "VALUES (NEXT VALUE FOR todo_seq, ?, FALSE, 'MEDIUM', ?, '/', 0)", args);
+
+        System.out.printf("%n%-6s %14s %14s%n", "page", "offset (ms)", "keyset (ms)");
+        for (int page : PAGES) {
+            int offset = (page - 1) * PAGE_SIZE;
+            Specification<Todo> spec = TodoSpecification.isTopLevelTask();
+            if (page > 1) {
+                // The keyset predicate for this page is built from the last row of the page before it
+                Todo last = offsetPage(offset - 1, 1).get(0);
+                spec = spec.and(TodoSpecification.isAfter("title", false, last.getTitle(), last.getDisplayOrder(), last.getId()));
+            }
+            Specification<Todo> keyset = spec;
+            double offsetMillis = medianMillis(() -> offsetPage(offset, PAGE_SIZE));
+            double keysetMillis = medianMillis(() -> todoRepository.findSlice(keyset, TITLE_ORDER, PAGE_SIZE));
+            System.out.printf("%-6d %14.2f %14.2f%n", page, offsetMillis, keysetMillis);
+        }
+    }
+
+    // What an OFFSET based page of the same list would run (roots only, no count query)
+    private List<Todo> offsetPage(int offset, int limit) {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT t FROM Todo t WHERE t.parent IS NULL ORDER BY t.title, t.displayOrder, t.id", Todo.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    private static double medianMillis(Supplier<List<Todo>> fetch) {
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            fetch.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2] / 1_000_000.0;
+    }
+}
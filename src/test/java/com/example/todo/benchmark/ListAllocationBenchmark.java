@@ -0,0 +1,119 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.model.TodoTree;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.repository.TodoSpecification;
+import com.example.todo.service.TodoReadModel;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bytes allocated per index-page read over 10,000 tasks (5,000 top-level tasks with one subtask each):
+ * managed Todo entities as the list was read before, against TodoView projections from the database and
+ * from TodoReadModel. Allocation is counted on the calling thread, so the numbers include Hibernate's persistence
+ * context and the JDBC result sets, but not rendering.
+ * The query cache is off: a cached page would not be read at all.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+public class ListAllocationBenchmark {
+
+    private static final int ROOTS = 5_000;
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 15;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoReadModel readModel;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM todo WHERE parent_id IS NOT NULL");
+        jdbcTemplate.update("DELETE FROM todo");
+        readModel.rebuild();
+    }
+
+    @Test
+    void allocationPerPage() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        String[] priorities = {"LOW", "MEDIUM", "HIGH"};
+        List<Object[]> roots = new ArrayList<>();
+        List<Object[]> children = new ArrayList<>();
+        // Negative ids stay clear of the todo_seq range
+        for (int i = 1; i <= ROOTS; i++) {
+            roots.add(new Object[] {(long) -i, null, "Task " + random.nextInt(1_000_000), random.nextInt(4) == 0,
+                    today.plusDays(random.nextInt(60) - 20), priorities[random.nextInt(3)], (long) i, "/", 0});
+            children.add(new Object[] {(long) -(ROOTS + i), (long) -i, "Subtask of " + i, false, null, "MEDIUM",
+                    1L, "/" + -i + "/", 1});
+        }
+        String insert = "INSERT INTO todo (id, parent_id, title, completed, due_date, priority, display_order, path, depth)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(insert, roots);
+        jdbcTemplate.batchUpdate(insert, children);
+        jdbcTemplate.execute("ANALYZE");
+        readModel.rebuild();
+
+        System.out.printf("%n%-10s %20s %24s %24s%n", "page size", "entities (KB)", "projections, db (KB)",
+                "projections, memory (KB)");
+        for (int pageSize : new int[] {TodoService.DEFAULT_PAGE_SIZE, TodoService.MAX_PAGE_SIZE}) {
+            // Inside a read-write transaction the service reads the database, not the read model
+            double entities = medianKilobytes(() -> transactionTemplate.execute(status -> entityPage(pageSize)));
+            double databaseViews = medianKilobytes(() -> transactionTemplate.execute(status -> viewPage(pageSize)));
+            double memoryViews = medianKilobytes(() -> viewPage(pageSize));
+            System.out.printf("%-10d %20.1f %24.1f %24.1f%n", pageSize, entities, databaseViews, memoryViews);
+        }
+    }
+
+    // The first page as the list read it before projections: managed roots, then managed descendants
+    private TodoTree entityPage(int pageSize) {
+        List<Todo> pageRoots = todoRepository.findSlice(TodoSpecification.isTopLevelTask(),
+                Sort.by("displayOrder", "id"), pageSize + 1);
+        pageRoots = pageRoots.subList(0, Math.min(pageSize, pageRoots.size()));
+        return TodoTree.of(pageRoots, todoRepository.findDescendantsOf(pageRoots.stream().map(Todo::getId).toList()));
+    }
+
+    private Object viewPage(int pageSize) {
+        return todoService.getTodoViewPage("ALL", null, "ALL", null, "displayOrder", "ASC", null, pageSize);
+    }
+
+    private static double medianKilobytes(Runnable read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            read.run();
+        }
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            read.run();
+            samples[i] = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2] / 1024.0;
+    }
+}
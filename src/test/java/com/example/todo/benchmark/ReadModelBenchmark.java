@@ -0,0 +1,117 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.TodoPage;
+import com.example.todo.service.TodoReadModel;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Latency of TodoService.getTodoPage (first page and page 200, with subtasks) over 100,000 top-level tasks
+ * with two subtasks each, answered by the database versus by TodoReadModel.
+ * The database column runs inside a read-write transaction, where the service does not use the read model.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+public class ReadModelBenchmark {
+
+    private static final int ROOTS = 100_000;
+    private static final int CHILDREN_PER_ROOT = 2;
+    private static final int DEEP_PAGE = 200;
+    private static final int ROUNDS = 7;
+    private static final String[][] LISTS = {
+            {"ALL", "ALL", "displayOrder"},
+            {"PENDING", "ALL", "title"},
+            {"ALL", "NEXT_7_DAYS", "dueDate"},
+            {"PENDING", "ALL", "priority"},
+    };
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoReadModel readModel;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        while (jdbcTemplate.update("DELETE FROM todo FETCH FIRST 100000 ROWS ONLY") > 0) {
+        }
+        readModel.rebuild();
+    }
+
+    @Test
+    void listLatency() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        String[] priorities = {"LOW", "MEDIUM", "HIGH"};
+        List<Object[]> roots = new ArrayList<>();
+        List<Object[]> children = new ArrayList<>();
+        // Negative ids stay clear of the todo_seq range
+        for (int i = 1; i <= ROOTS; i++) {
+            roots.add(new Object[] {(long) -i, null, "Task " + random.nextInt(1_000_000), random.nextInt(4) == 0,
+                    today.plusDays(random.nextInt(60) - 20), priorities[random.nextInt(3)], (long) i, "/", 0});
+            for (int c = 1; c <= CHILDREN_PER_ROOT; c++) {
+                children.add(new Object[] {(long) -(ROOTS * c + i), (long) -i, "Subtask " + c, false, null, "MEDIUM",
+                        (long) c, "/" + -i + "/", 1});
+            }
+        }
+        String insert = "INSERT INTO todo (id, parent_id, title, completed, due_date, priority, display_order, path, depth)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(insert, roots);
+        jdbcTemplate.batchUpdate(insert, children);
+        jdbcTemplate.execute("ANALYZE");
+
+        long start = System.nanoTime();
+        long loaded = readModel.rebuild();
+        System.out.printf("%nLoaded %d rows in %.0f ms%n", loaded, (System.nanoTime() - start) / 1_000_000.0);
+
+        System.out.printf("%-30s %6s %14s %16s%n", "list", "page", "database (ms)", "read model (ms)");
+        for (String[] list : LISTS) {
+            String name = list[0] + "/" + list[1] + " by " + list[2];
+            String cursor = null;
+            for (int page = 1; page <= DEEP_PAGE; page++) {
+                if (page == 1 || page == DEEP_PAGE) {
+                    String at = cursor;
+                    Supplier<TodoPage> read = () -> todoService.getTodoPage(list[0], null, list[1], null, list[2], "ASC",
+                            at, TodoService.DEFAULT_PAGE_SIZE);
+                    double databaseMillis = medianMillis(() -> transactionTemplate.execute(status -> read.get()));
+                    double memoryMillis = medianMillis(read);
+                    System.out.printf("%-30s %6d %14.2f %16.2f%n", name, page, databaseMillis, memoryMillis);
+                }
+                cursor = todoService.getTodoPage(list[0], null, list[1], null, list[2], "ASC",
+                        cursor, TodoService.DEFAULT_PAGE_SIZE).nextCursor();
+                if (cursor == null) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static double medianMillis(Supplier<?> read) {
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            read.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2] / 1_000_000.0;
+    }
+}
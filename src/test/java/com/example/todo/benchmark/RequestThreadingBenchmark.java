@@ -0,0 +1,171 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.TodoApplication;
+import com.example.todo.model.Todo;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput and p99 latency of GET /, GET /api/todos/stream, POST /add and POST /todos/reorder over HTTP with 16, 256 and 1024 concurrent
+ * clients, with requests handled on Tomcat's platform-thread pool (200 threads) and on virtual threads
+ * (todo.threads.mode=virtual). The application is started once per mode on a random port, over 1,000 tasks.
+ * Virtual threads need Java 21; on an older JVM only the platform rows are measured. The virtual rows have not been
+ * measured yet: every recorded run was on Java 17.
+ * H2 runs in memory, so JDBC calls hardly block: against a networked database the platform rows fall further behind
+ * once the clients outnumber the threads.
+ * Run with: mvn -Pbenchmark test
+ */
+public class RequestThreadingBenchmark {
+
+    private static final int[] CLIENT_COUNTS = {16, 256, 1024};
+    private static final int TASKS = 1_000;
+    private static final int SUBTASKS = 20;
+    private static final Duration WARMUP = Duration.ofSeconds(2);
+    private static final Duration MEASURED = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Test
+    void requestThroughput() throws Exception {
+        System.out.printf("%n%-9s %-15s %8s %12s %10s %8s%n", "mode", "endpoint", "clients", "requests/s", "p99 (ms)",
+                "errors");
+        for (String mode : new String[] {"platform", "virtual"}) {
+            if (mode.equals("virtual") && Runtime.version().feature() < 21) {
+                System.out.printf("%-9s needs Java 21, running on %s%n", mode, Runtime.version());
+                continue;
+            }
+            try (ConfigurableApplicationContext context = start(mode)) {
+                String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                List<Long> subtaskIds = seed(context.getBean(TodoService.class));
+                long parentId = context.getBean(TodoService.class).findTodoById(subtaskIds.get(0)).get()
+                        .getParent().getId();
+
+                measure(mode, "GET /", client -> HttpRequest.newBuilder(URI.create(base + "/")).GET().build());
+                measure(mode, "GET stream", client -> HttpRequest.newBuilder(URI.create(base + "/api/todos/stream"))
+                        .GET().build());
+                measure(mode, "POST /add", client -> HttpRequest.newBuilder(URI.create(base + "/add"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("title=Load+" + client.nextInt(1_000_000)))
+                        .build());
+                measure(mode, "POST reorder", client -> {
+                    List<Long> order = new ArrayList<>(subtaskIds);
+                    Collections.shuffle(order, client);
+                    String body = "{\"parentId\":" + parentId + ",\"orderedTaskIds\":"
+                            + order.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]")) + "}";
+                    return HttpRequest.newBuilder(URI.create(base + "/todos/reorder"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+                });
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String mode) {
+        // Arguments, as they take precedence over application.properties
+        return new SpringApplicationBuilder(TodoApplication.class)
+                .run("--server.port=0",
+                        "--todo.threads.mode=" + mode,
+                        // A database per run, so the second does not see the first one's tasks
+                        "--spring.datasource.url=jdbc:h2:mem:threading-" + mode + ";DEFAULT_NULL_ORDERING=HIGH",
+                        "--spring.devtools.restart.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    // Top-level tasks for the list, plus one parent whose subtasks are reordered
+    private static List<Long> seed(TodoService todoService) {
+        List<Todo> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            Todo task = new Todo();
+            task.setTitle("Task " + i);
+            tasks.add(task);
+        }
+        todoService.addTodos(tasks);
+        Todo parent = todoService.addTodo("Reordered parent", null, null);
+        List<Long> subtaskIds = new ArrayList<>();
+        for (int i = 0; i < SUBTASKS; i++) {
+            subtaskIds.add(todoService.addSubTask(parent.getId(), "Subtask " + i, null, null).get().getId());
+        }
+        return subtaskIds;
+    }
+
+    private void measure(String mode, String endpoint, Function<Random, HttpRequest> requests) throws Exception {
+        for (int clients : CLIENT_COUNTS) {
+            run(clients, WARMUP, requests);
+            Result result = run(clients, MEASURED, requests);
+            System.out.printf("%-9s %-15s %8d %12.0f %10.2f %8d%n", mode, endpoint, clients,
+                    result.latencies.length / (MEASURED.toNanos() / 1e9), result.p99Millis(), result.errors);
+        }
+    }
+
+    // Each client sends its next request as soon as the previous response is read, until the time is up
+    private Result run(int clients, Duration duration, Function<Random, HttpRequest> requests) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        List<long[]> perClient = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            Thread client = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                try {
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = requests.apply(random);
+                        long start = System.nanoTime();
+                        try {
+                            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status >= 400) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                } finally {
+                    perClient.add(Arrays.copyOf(latencies, count));
+                    done.countDown();
+                }
+            });
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private record Result(long[] latencies, int errors) {
+        double p99Millis() {
+            return latencies.length == 0 ? Double.NaN
+                    : latencies[Math.min(latencies.length - 1, (int) (latencies.length * 0.99))] / 1_000_000.0;
+        }
+    }
+}
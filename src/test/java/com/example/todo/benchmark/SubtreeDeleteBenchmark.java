@@ -0,0 +1,87 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Time and heap allocated to delete a project of 1k / 20k tasks (100 tasks per parent, three levels): the old
+ * deleteById, which cascades through every subTasks list entity by entity, against the set-based statements now
+ * used by TodoService.deleteTodo.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest
+public class SubtreeDeleteBenchmark {
+
+    private static final int[] PROJECT_SIZES = {1_000, 20_000};
+    private static final int FAN_OUT = 100;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void deleteLatency() {
+        System.out.printf("%n%-8s %14s %16s %14s %16s%n", "tasks", "cascade (ms)", "cascade (MB)", "set (ms)",
+                "set (MB)");
+        for (int size : PROJECT_SIZES) {
+            double[] cascade = measure(size, id -> transactionTemplate.executeWithoutResult(
+                    status -> todoRepository.deleteById(id)));
+            double[] setBased = measure(size, todoService::deleteTodo);
+            System.out.printf("%-8d %14.2f %16.1f %14.2f %16.1f%n", size, cascade[0], cascade[1], setBased[0],
+                    setBased[1]);
+        }
+    }
+
+    // Milliseconds and megabytes allocated by this thread
+    private double[] measure(int size, LongConsumer delete) {
+        long rootId = seed(size);
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        delete.accept(rootId);
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        double megabytes = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / (1024.0 * 1024.0);
+        assertEquals(0, todoRepository.count());
+        return new double[] {millis, megabytes};
+    }
+
+    // Breadth first, so that every parent is inserted (and has its path) before its subtasks
+    private long seed(int size) {
+        List<Todo> tasks = new ArrayList<>(size);
+        Todo root = new Todo();
+        root.setTitle("Project");
+        tasks.add(root);
+        for (int i = 1; i < size; i++) {
+            Todo task = new Todo();
+            task.setTitle("Task " + i);
+            task.setParent(tasks.get((i - 1) / FAN_OUT));
+            tasks.add(task);
+        }
+        todoService.addTodos(tasks);
+        return root.getId();
+    }
+}
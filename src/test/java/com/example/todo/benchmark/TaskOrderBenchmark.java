@@ -0,0 +1,120 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.DisplayOrderAllocator;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reorder latency for 100 / 1k / 10k siblings: the old per-id findById + saveAll loop
+ * against the single projection query + JDBC batch now used by TodoService.updateTaskOrder.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest
+public class TaskOrderBenchmark {
+
+    private static final int[] SIBLING_COUNTS = {100, 1_000, 10_000};
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Random random = new Random(42);
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void reorderLatency() {
+        System.out.printf("%n%-10s %15s %15s%n", "siblings", "legacy (ms)", "batched (ms)");
+        for (int count : SIBLING_COUNTS) {
+            List<Long> ids = seedSiblings(count);
+            double legacy = medianMillis(ids, this::legacyUpdateTaskOrder);
+            double batched = medianMillis(ids, order -> todoService.updateTaskOrder(order, null));
+            System.out.printf("%-10d %15.2f %15.2f%n", count, legacy, batched);
+
+            List<Long> last = shuffled(ids);
+            todoService.updateTaskOrder(last, null);
+            assertEquals(last.get(0), todoRepository.findByParentIsNull(Sort.by("displayOrder")).get(0).getId());
+            todoRepository.deleteAll();
+        }
+    }
+
+    private List<Long> seedSiblings(int count) {
+        List<Todo> todos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Todo todo = new Todo();
+            todo.setTitle("Sibling " + i);
+            todo.setDisplayOrder((i + 1) * DisplayOrderAllocator.GAP);
+            todos.add(todo);
+        }
+        return todoRepository.saveAll(todos).stream().map(Todo::getId).toList();
+    }
+
+    private double medianMillis(List<Long> ids, Consumer<List<Long>> reorder) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            reorder.accept(shuffled(ids));
+        }
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            List<Long> order = shuffled(ids);
+            long start = System.nanoTime();
+            reorder.accept(order);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2] / 1_000_000.0;
+    }
+
+    private List<Long> shuffled(List<Long> ids) {
+        List<Long> order = new ArrayList<>(ids);
+        Collections.shuffle(order, random);
+        return order;
+    }
+
+    // The updateTaskOrder implementation before the batched lookup, kept here as the baseline
+    private void legacyUpdateTaskOrder(List<Long> orderedTaskIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Todo> tasksToUpdate = new ArrayList<>();
+            long newOrder = 0;
+            for (Long taskId : orderedTaskIds) {
+                Optional<Todo> optionalTask = todoRepository.findById(taskId);
+                if (optionalTask.isPresent() && optionalTask.get().getParent() == null) {
+                    Todo task = optionalTask.get();
+                    newOrder += DisplayOrderAllocator.GAP;
+                    if (!Objects.equals(task.getDisplayOrder(), newOrder)) {
+                        task.setDisplayOrder(newOrder);
+                        tasksToUpdate.add(task);
+                    }
+                }
+            }
+            todoRepository.saveAll(tasksToUpdate);
+        });
+    }
+}
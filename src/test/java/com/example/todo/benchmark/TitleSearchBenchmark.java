@@ -0,0 +1,124 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.repository.TodoSpecification;
+import com.example.todo.service.TodoReadModel;
+import com.example.todo.service.TodoSearchIndexer;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Search latency over a million top-level titles: the first page of TodoService.getTodoPage ranked by
+ * the search indexes (words, then fragments inside words), versus the same page built from the
+ * lower(title) LIKE '%term%' scan the search box used to run.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+public class TitleSearchBenchmark {
+
+    private static final int TITLES = 1_000_000;
+    private static final int ROUNDS = 7;
+    private static final String[] QUERIES = {"invoice", "rev inv", "kelo", "a", "nomatchxyz", "oice 48", "482"};
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoSearchIndexer searchIndexer;
+
+    @Autowired
+    private TodoReadModel readModel;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        // In slices: one statement over a million rows runs H2 out of memory
+        while (jdbcTemplate.update("DELETE FROM todo FETCH FIRST 100000 ROWS ONLY") > 0) {
+        }
+        searchIndexer.rebuild();
+        readModel.rebuild();
+    }
+
+    @Test
+    void searchLatency() {
+        String[] verbs = {"Review", "Send", "Pay", "Call", "Fix", "Plan", "Book", "Update", "Buy", "Draft"};
+        String[] nouns = {"invoice", "report", "slides", "budget", "ticket", "contract", "flight", "roadmap"};
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            String title = verbs[random.nextInt(verbs.length)] + " " + nouns[random.nextInt(nouns.length)]
+                    + " " + pseudoWord(random) + " " + random.nextInt(10_000);
+            batch.add(new Object[] {title, (long) (i + 1)});
+            if (batch.size() == 10_000) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+
+        long start = System.nanoTime();
+        long indexed = searchIndexer.rebuild();
+        System.out.printf("%nIndexed %d titles in %.0f ms%n", indexed, (System.nanoTime() - start) / 1_000_000.0);
+        readModel.rebuild();
+
+        System.out.printf("%-12s %16s %14s%n", "query", "LIKE scan (ms)", "index (ms)");
+        for (String query : QUERIES) {
+            Specification<Todo> like = TodoSpecification.isTopLevelTask().and((root, q, cb) ->
+                    cb.like(cb.lower(root.get("title")), "%" + query.toLowerCase() + "%"));
+            // The page as it used to be built: the LIKE slice, then the roots' subtasks
+            double likeMillis = medianMillis(() -> {
+                List<Long> rootIds = todoRepository.findSlice(like, Sort.by("displayOrder", "id"),
+                        TodoService.DEFAULT_PAGE_SIZE + 1).stream().map(Todo::getId).toList();
+                if (!rootIds.isEmpty()) {
+                    todoRepository.findDescendantsOf(rootIds);
+                }
+            });
+            double indexMillis = medianMillis(() -> todoService.getTodoPage("ALL", null, "ALL", query,
+                    TodoService.RELEVANCE, "ASC", null, TodoService.DEFAULT_PAGE_SIZE));
+            System.out.printf("%-12s %16.2f %14.2f%n", query, likeMillis, indexMillis);
+        }
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO todo (id, title, completed, priority, display_order, path, depth) "
+                + "VALUES (NEXT VALUE FOR todo_seq, ?, FALSE, 'MEDIUM', ?, '/', 0)", batch);
+        batch.clear();
+    }
+
+    // Two or three syllables: a vocabulary of some tens of thousands of words
+    private static String pseudoWord(Random random) {
+        String[] syllables = {"ka", "lo", "mi", "ne", "ru", "ta", "vo", "zi", "be", "do", "fa", "gu", "ho", "ji", "pe"};
+        StringBuilder word = new StringBuilder();
+        for (int s = 2 + random.nextInt(2); s > 0; s--) {
+            word.append(syllables[random.nextInt(syllables.length)]);
+        }
+        return word.toString();
+    }
+
+    private static double medianMillis(Runnable search) {
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            search.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2] / 1_000_000.0;
+    }
+}
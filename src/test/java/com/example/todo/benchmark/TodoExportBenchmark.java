@@ -0,0 +1,99 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoExportService;
+import com.example.todo.service.TransferFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Export time and heap growth for growing table sizes; the growth should stay roughly flat.
+ * Run with: mvn -Pbenchmark test
+ */
+@SpringBootTest
+public class TodoExportBenchmark {
+
+    private static final int[] ROW_COUNTS = {10_000, 100_000, 300_000};
+
+    @Autowired
+    private TodoExportService todoExportService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void exportHeap() throws Exception {
+        System.out.printf("%n%-10s %12s %12s %16s%n", "rows", "ms", "MB written", "heap growth (MB)");
+        int seeded = 0;
+        for (int rows : ROW_COUNTS) {
+            seedTopLevelRows(seeded, rows - seeded);
+            seeded = rows;
+
+            // The in-memory H2 tables live in this heap too, so report growth over the heap before the export
+            long baseline = liveHeap();
+            CountingWriter out = new CountingWriter();
+            long start = System.nanoTime();
+            long written = todoExportService.exportTodos(out, TransferFormat.NDJSON);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(rows, written);
+            System.out.printf("%-10d %12d %12.1f %16.1f%n", rows, millis, out.chars / 1e6, (out.peakHeap - baseline) / 1e6);
+        }
+    }
+
+    // Plain JDBC so seeding does not go through (or warm up) the persistence context
+    private void seedTopLevelRows(int offset, int count) {
+        List<Object[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            args.add(new Object[] {"Exported task " + (offset + i), (long) (offset + i + 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO todo (id, title, completed, priority, display_order, path, depth) "
+                + "VALUES (NEXT VALUE FOR todo_seq, ?, FALSE, 'MEDIUM', ?, '/', 0)", args);
+    }
+
+    // Forces a GC so the number is what is kept alive, not garbage waiting to be collected
+    private static long liveHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Discards output, sampling live heap about every 2M characters
+    private static final class CountingWriter extends Writer {
+        long chars;
+        long peakHeap;
+
+        @Override
+        public void write(char[] buffer, int off, int len) {
+            chars += len;
+            if ((chars & 0x1FFFFF) < len) {
+                peakHeap = Math.max(peakHeap, liveHeap());
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+public class TodoApiControllerIntegrationTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository.deleteAll();
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void testListTodos_shouldNestSubtasksAndPageLikeTheIndex() throws Exception {
+        Todo parent = todoService.addTodo("Api Parent", LocalDate.of(2030, 1, 2), Priority.HIGH);
+        Todo child = todoService.addSubTask(parent.getId(), "Api Child", null, Priority.LOW).get();
+        todoService.addSubTask(child.getId(), "Api Grandchild", null, null);
+        todoService.addTodo("Api Second", null, null);
+
+        String nextCursor = mockMvc.perform(get("/api/todos").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.todos.length()").value(1))
+                .andExpect(jsonPath("$.todos[0].title").value("Api Parent"))
+                .andExpect(jsonPath("$.todos[0].dueDate").value("2030-01-02"))
+                .andExpect(jsonPath("$.todos[0].priority").value("HIGH"))
+                .andExpect(jsonPath("$.todos[0].subTasks[0].title").value("Api Child"))
+                .andExpect(jsonPath("$.todos[0].subTasks[0].parentId").value(parent.getId()))
+                .andExpect(jsonPath("$.todos[0].subTasks[0].subTasks[0].title").value("Api Grandchild"))
+                .andReturn().getResponse().getContentAsString().replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+        mockMvc.perform(get("/api/todos").param("size", "1").param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.todos[0].title").value("Api Second"))
+                .andExpect(jsonPath("$.todos[0].subTasks").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        mockMvc.perform(get("/api/todos").param("filterByPriority", "HIGH").param("searchTerm", "api"))
+                .andExpect(jsonPath("$.todos.length()").value(1));
+        mockMvc.perform(get("/api/todos").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testConditionalGet_shouldAnswer304UntilAWriteCommits() throws Exception {
+        Todo todo = todoService.addTodo("Api Polled", null, Priority.MEDIUM);
+
+        String tag = mockMvc.perform(get("/api/todos"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(tag);
+        assertTrue(tag.startsWith("\"")); // Strong
+
+        mockMvc.perform(get("/api/todos").header("If-None-Match", tag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", tag))
+                .andExpect(content().string(""));
+        // Bulk updates count as writes too
+        mockMvc.perform(post("/api/todos/{id}/complete", todo.getId()).param("subtree", "true"))
+                .andExpect(status().isNoContent());
+        String newTag = mockMvc.perform(get("/api/todos").header("If-None-Match", tag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.todos[0].completed").value(true))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(tag, newTag);
+
+        // The tag of a relative due-date filter also names the day it was computed on
+        String overdueTag = mockMvc.perform(get("/api/todos").param("filterByDueDate", "overdue"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertEquals(newTag.replace("\"", ""), overdueTag.replace("\"", "").replace("-" + LocalDate.now(), ""));
+        mockMvc.perform(get("/api/todos/{id}", todo.getId()).header("If-None-Match", newTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testWrites_shouldCreateUpdateCompleteAndDelete() throws Exception {
+        String location = mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Api Created\",\"dueDate\":\"2030-05-06\",\"priority\":\"LOW\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.title").value("Api Created"))
+                .andExpect(jsonPath("$.parentId").doesNotExist())
+                .andReturn().getResponse().getHeader("Location");
+        long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Api Sub\",\"parentId\":" + id + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.parentId").value(id))
+                .andExpect(jsonPath("$.priority").value("MEDIUM"));
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\" \"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Orphan\",\"parentId\":-1}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/todos/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Api Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Api Renamed"))
+                .andExpect(jsonPath("$.dueDate").doesNotExist())
+                .andExpect(jsonPath("$.priority").value("LOW"));
+        mockMvc.perform(put("/api/todos/{id}", -1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Missing\"}"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/todos/{id}/complete", id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/todos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.subTasks[0].title").value("Api Sub"))
+                .andExpect(jsonPath("$.subTasks[0].completed").value(false));
+
+        mockMvc.perform(delete("/api/todos/{id}", id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/todos/{id}", id))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/todos/{id}/complete", id))
+                .andExpect(status().isNotFound());
+        assertEquals(0, todoRepository.count());
+    }
+
+    @Test
+    void testBatch_shouldApplyEveryOperationInOrder_andReportEachResult() throws Exception {
+        Todo parent = todoService.addTodo("Batch Parent", null, null);
+        Todo child = todoService.addSubTask(parent.getId(), "Batch Child", null, null).get();
+        Todo grandchild = todoService.addSubTask(child.getId(), "Batch Grandchild", null, null).get();
+        Todo target = todoService.addTodo("Batch Target", null, null);
+        Todo doomed = todoService.addTodo("Batch Doomed", null, null);
+        todoService.addSubTask(doomed.getId(), "Batch Doomed Child", null, null);
+
+        String operations = String.join(",",
+                "{\"op\":\"create\",\"title\":\"Batch Created\",\"priority\":\"HIGH\",\"parentId\":" + target.getId() + "}",
+                "{\"op\":\"update\",\"id\":" + parent.getId() + ",\"title\":\"Batch Renamed\"}",
+                "{\"op\":\"complete\",\"id\":" + parent.getId() + ",\"subtree\":true}",
+                "{\"op\":\"move\",\"id\":" + child.getId() + ",\"parentId\":" + target.getId() + "}",
+                "{\"op\":\"update\",\"id\":" + grandchild.getId() + ",\"title\":\"Below a move\"}",
+                "{\"op\":\"delete\",\"id\":" + doomed.getId() + "}",
+                "{\"op\":\"complete\",\"id\":" + doomed.getId() + "}",
+                "{\"op\":\"move\",\"id\":" + target.getId() + ",\"parentId\":" + child.getId() + "}",
+                "{\"op\":\"update\",\"id\":-1,\"title\":\"Missing\"}",
+                "{\"op\":\"create\"}");
+        mockMvc.perform(post("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[" + operations + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(10))
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[0].id").isNumber())
+                .andExpect(jsonPath("$.results[1].status").value(200))
+                .andExpect(jsonPath("$.results[2].status").value(204))
+                .andExpect(jsonPath("$.results[3].status").value(200))
+                .andExpect(jsonPath("$.results[4].status").value(409))
+                .andExpect(jsonPath("$.results[5].status").value(204))
+                .andExpect(jsonPath("$.results[6].status").value(404))
+                .andExpect(jsonPath("$.results[7].status").value(400)) // Under its own subtask
+                .andExpect(jsonPath("$.results[8].status").value(404))
+                .andExpect(jsonPath("$.results[9].index").value(9))
+                .andExpect(jsonPath("$.results[9].status").value(400))
+                .andExpect(jsonPath("$.results[9].error").value("Missing title"));
+
+        Todo moved = todoRepository.findById(child.getId()).get();
+        assertEquals(target.getId(), moved.getParent().getId());
+        assertTrue(moved.isCompleted()); // Completed with the parent's subtree before it was moved
+        Todo movedGrandchild = todoRepository.findById(grandchild.getId()).get();
+        assertEquals("Batch Grandchild", movedGrandchild.getTitle());
+        assertTrue(movedGrandchild.isCompleted());
+        assertEquals(moved.getDescendantPathPrefix(), movedGrandchild.getPath());
+        assertEquals(2, movedGrandchild.getDepth());
+        assertEquals("Batch Renamed", todoRepository.findById(parent.getId()).get().getTitle());
+        assertTrue(todoRepository.findById(doomed.getId()).isEmpty());
+        assertEquals(5, todoRepository.count()); // The doomed task went with its subtask
+        mockMvc.perform(get("/api/todos/{id}", target.getId()))
+                .andExpect(jsonPath("$.subTasks.length()").value(2))
+                .andExpect(jsonPath("$.subTasks[0].title").value("Batch Created"))
+                .andExpect(jsonPath("$.subTasks[1].title").value("Batch Child"))
+                .andExpect(jsonPath("$.subTasks[1].subTasks[0].title").value("Batch Grandchild"));
+
+        mockMvc.perform(post("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"op\":\"archive\",\"id\":1}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testBatch_shouldKeepTheOrderOfMovesAndCompletions_whenStatementsAreGrouped() throws Exception {
+        Todo left = todoService.addTodo("Grouped Left", null, null);
+        Todo right = todoService.addTodo("Grouped Right", null, null);
+        Todo leaving = todoService.addSubTask(left.getId(), "Grouped Leaving", null, null).get();
+        Todo leavingChild = todoService.addSubTask(leaving.getId(), "Grouped Leaving Child", null, null).get();
+        Todo arriving = todoService.addTodo("Grouped Arriving", null, null);
+        Todo arrivingChild = todoService.addSubTask(arriving.getId(), "Grouped Arriving Child", null, null).get();
+
+        String operations = String.join(",",
+                "{\"op\":\"move\",\"id\":" + leaving.getId() + ",\"parentId\":" + right.getId() + "}",
+                "{\"op\":\"complete\",\"id\":" + left.getId() + ",\"subtree\":true}",
+                "{\"op\":\"move\",\"id\":" + arriving.getId() + ",\"parentId\":" + left.getId() + "}",
+                "{\"op\":\"complete\",\"id\":" + right.getId() + ",\"subtree\":true}",
+                "{\"op\":\"move\",\"id\":" + arriving.getId() + ",\"parentId\":" + right.getId() + "}");
+        mockMvc.perform(post("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[" + operations + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[*].status").value(everyItem(lessThan(300))));
+
+        assertTrue(todoRepository.findById(left.getId()).get().isCompleted());
+        // Moved out before its old parent was completed, then completed with its new one
+        assertTrue(todoRepository.findById(leavingChild.getId()).get().isCompleted());
+        // Moved into each completed subtree only after its completion
+        Todo arrived = todoRepository.findById(arrivingChild.getId()).get();
+        assertFalse(arrived.isCompleted());
+        assertEquals(right.getDescendantPathPrefix() + arriving.getId() + "/", arrived.getPath());
+    }
+
+    @Test
+    void testBatch_shouldNotCompleteATaskMovedOutBeforeTheCompletion() throws Exception {
+        Todo parent = todoService.addTodo("Order Parent", null, null);
+        Todo leaving = todoService.addSubTask(parent.getId(), "Order Leaving", null, null).get();
+        Todo leavingChild = todoService.addSubTask(leaving.getId(), "Order Leaving Child", null, null).get();
+        Todo staying = todoService.addSubTask(parent.getId(), "Order Staying", null, null).get();
+        Todo elsewhere = todoService.addTodo("Order Elsewhere", null, null);
+
+        String operations = String.join(",",
+                "{\"op\":\"move\",\"id\":" + leaving.getId() + ",\"parentId\":" + elsewhere.getId() + "}",
+                "{\"op\":\"complete\",\"id\":" + parent.getId() + ",\"subtree\":true}",
+                "{\"op\":\"move\",\"id\":" + staying.getId() + ",\"parentId\":" + elsewhere.getId() + "}");
+        mockMvc.perform(post("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[" + operations + "]}"))
+                .andExpect(status().isOk());
+
+        assertFalse(todoRepository.findById(leaving.getId()).get().isCompleted());
+        assertFalse(todoRepository.findById(leavingChild.getId()).get().isCompleted());
+        assertTrue(todoRepository.findById(staying.getId()).get().isCompleted());
+        assertEquals(elsewhere.getDescendantPathPrefix() + leaving.getId() + "/",
+                todoRepository.findById(leavingChild.getId()).get().getPath());
+    }
+}
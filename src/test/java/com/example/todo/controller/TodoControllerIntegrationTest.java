@@ -2,32 +2,60 @@ package com.example.todo.controller;
 
 import com.example.todo.model.Priority;
 import com.example.todo.model.Todo;
+import com.example.todo.model.TodoPage;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.model.TodoView;
+import com.example.todo.model.TodoViewPage;
 import com.example.todo.repository.TodoRepository;
 import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.DisplayOrderAllocator;
+import com.example.todo.service.TaskRankRebalancer;
+import com.example.todo.service.TodoReadModel;
+import com.example.todo.service.TodoSearchIndex;
+import com.example.todo.service.TodoTrigramIndex;
+import com.example.todo.service.TodoService;
+import com.example.todo.service.TodoWriteBehind;
 import com.fasterxml.jackson.databind.ObjectMapper; // Added for JSON serialization
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders; // Added
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays; // Added this import
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.springframework.web.context.WebApplicationContext; // Added
 
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity; // Added
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,6 +75,30 @@ public class TodoControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper; // Added for JSON serialization
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoSearchIndex searchIndex;
+
+    @Autowired
+    private TodoTrigramIndex trigramIndex;
+
+    @Autowired
+    private TodoReadModel readModel;
+
+    @Autowired
+    private TaskRankRebalancer taskRankRebalancer;
+
+    @SpyBean
+    private TodoWriteBehind todoWriteBehind;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Todo task1; // This seems unused, can be removed if setupFilterSortTestData is always used
 
     @BeforeEach
@@ -291,6 +343,10 @@ public class TodoControllerIntegrationTest {
                 .andExpect(xpath("//li[contains(.,'Upcoming Task')]//span[contains(@class, 'badge-info') and text()='Low']").exists());
     }
 
+    private long displayOrderOf(Todo todo) {
+        return todoRepository.findById(todo.getId()).get().getDisplayOrder();
+    }
+
     // Helper method to create and save a Todo item
     private Todo createAndSaveTodo(String title, boolean completed, LocalDate dueDate, Priority priority, Todo parent) {
         Todo todo = new Todo(0L, title, completed, dueDate, priority);
@@ -417,6 +473,137 @@ public class TodoControllerIntegrationTest {
                 .andExpect(xpath("//li[contains(.,'Task Bravo')]").doesNotExist());
     }
 
+    @Test
+    void testSearchTerm_shouldMatchWordPrefixesOfEveryTerm_rankedByRelevance() throws Exception {
+        createAndSaveTodo("Buy oat milk, bread, eggs and coffee for the office", false, null, Priority.LOW, null);
+        createAndSaveTodo("Buy milk", false, null, Priority.LOW, null);
+        createAndSaveTodo("Milkshake recipe", false, null, Priority.LOW, null);
+        createAndSaveTodo("Buy a gift", false, null, Priority.LOW, null);
+
+        List<?> todos = (List<?>) mockMvc.perform(get("/").param("searchTerm", "BUY mil"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("currentSortBy", "relevance"))
+                .andExpect(xpath("//select[@id='sortBy']/option[@value='relevance' and @selected]").exists())
+                .andReturn().getModelAndView().getModel().get("todos");
+        assertEquals(List.of("Buy milk", "Buy oat milk, bread, eggs and coffee for the office"),
+                todos.stream().map(todo -> ((TodoView) todo).title()).toList());
+
+        // An explicit sort still applies to the matches
+        mockMvc.perform(get("/").param("searchTerm", "buy mil").param("sortBy", "title").param("sortDir", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(xpath("//ul/li[1][contains(.,'Buy oat milk')]").exists());
+    }
+
+    @Test
+    void testSearchTerm_shouldFollowCommittedRenamesAndDeletes_only() {
+        Todo parent = todoService.addTodo("Quarterly taxes", null, null);
+        Todo child = todoService.addSubTask(parent.getId(), "Collect receipts", null, null).get();
+        assertEquals(1, todoService.getTodos("ALL", null, "ALL", "quart", null, null).size());
+
+        todoService.updateTodo(parent.getId(), "Annual taxes", null, null);
+        assertTrue(todoService.getTodos("ALL", null, "ALL", "quart", null, null).isEmpty());
+        assertEquals(parent.getId(), todoService.getTodos("ALL", null, "ALL", "annual tax", null, null).get(0).getId());
+
+        // A rolled back rename never reaches the index
+        transactionTemplate.executeWithoutResult(status -> {
+            todoService.updateTodo(parent.getId(), "Renamed then rolled back", null, null);
+            status.setRollbackOnly();
+        });
+        assertTrue(todoService.getTodos("ALL", null, "ALL", "rolled", null, null).isEmpty());
+        assertEquals(1, todoService.getTodos("ALL", null, "ALL", "annual", null, null).size());
+
+        // Deleting the parent cascades to the subtask; both leave the index
+        todoService.deleteTodo(parent.getId());
+        assertTrue(searchIndex.search("annual", 10).isEmpty());
+        assertTrue(searchIndex.search("receipts", 10).isEmpty());
+        assertFalse(todoRepository.existsById(child.getId()));
+    }
+
+    @Test
+    void testSearchTerm_shouldFindFragmentsInsideWords_afterWordMatches() {
+        Todo ticket = todoService.addTodo("Ticket ABC-1234 follow up", null, null);
+        Todo notes = todoService.addTodo("C-12 notes", null, null);
+        todoService.addTodo("Fix login bug", null, null);
+
+        assertEquals(List.of(notes.getId(), ticket.getId()), todoService.getTodos("ALL", null, "ALL", "c-12", "relevance", null)
+                .stream().map(Todo::getId).toList());
+        assertEquals(List.of(ticket.getId()), todoService.getTodos("ALL", null, "ALL", "BC-123", null, null)
+                .stream().map(Todo::getId).toList());
+
+        // Subtasks, renames and deletes are followed too
+        Todo refund = todoService.addSubTask(ticket.getId(), "Refund INV-20931", null, null).get();
+        assertEquals(List.of(refund.getId()), trigramIndex.find("v-209", 10));
+        todoService.updateTodo(refund.getId(), "Refund INV-20932", null, null);
+        assertEquals(List.of(), trigramIndex.find("20931", 10));
+        assertEquals(List.of(refund.getId()), trigramIndex.find("20932", 10));
+        todoService.deleteTodo(ticket.getId());
+        assertEquals(List.of(), trigramIndex.find("v-209", 10));
+        assertEquals(List.of(), trigramIndex.find("bc-123", 10));
+    }
+
+    @Test
+    void testSearchTerm_shouldFindFilteredMatches_behindMoreThanMaxSearchHitsOthers() {
+        Todo chores = createAndSaveTodo("Chores", false, null, Priority.LOW, null);
+        List<Todo> subtasks = new ArrayList<>();
+        for (int i = 0; i < TodoService.MAX_SEARCH_HITS; i++) {
+            Todo subtask = new Todo(0L, "Chore " + i, false, null, Priority.HIGH);
+            subtask.setParent(chores);
+            subtasks.add(subtask);
+        }
+        todoRepository.saveAll(subtasks);
+        // Ranked after every subtask: same score, newer
+        Todo garden = createAndSaveTodo("Garden chore", false, null, Priority.HIGH, null);
+
+        assertEquals(List.of(garden.getId()), todoService.getTodos("ALL", Priority.HIGH, "ALL", "chore", null, null)
+                .stream().map(Todo::getId).toList());
+        assertEquals(List.of(chores.getId(), garden.getId()), todoService.getTodos("ALL", null, "ALL", "chore", null, null)
+                .stream().map(Todo::getId).sorted().toList());
+        TodoPage page = todoService.getTodoPage("PENDING", Priority.HIGH, "ALL", "chore", "relevance", null, null, 10);
+        assertEquals(List.of(garden.getId()), page.tree().getRoots().stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    void testSearchTerm_shouldFindFilteredFragmentMatches_behindMoreThanMaxSearchHitsOthers() {
+        Todo refunds = createAndSaveTodo("Refunds", false, null, Priority.LOW, null);
+        List<Todo> subtasks = new ArrayList<>();
+        for (int i = 0; i < TodoService.MAX_SEARCH_HITS; i++) {
+            Todo subtask = new Todo(0L, "Refund INV-" + (20000 + i), false, null, Priority.HIGH);
+            subtask.setParent(refunds);
+            subtasks.add(subtask);
+        }
+        todoRepository.saveAll(subtasks);
+        // No word starts with "v-2": a mid-word match, found oldest first after every subtask
+        Todo late = createAndSaveTodo("Late refund INV-29999", false, null, Priority.HIGH, null);
+
+        assertEquals(List.of(late.getId()), todoService.getTodos("ALL", null, "ALL", "v-2", null, null)
+                .stream().map(Todo::getId).toList());
+        TodoPage page = todoService.getTodoPage("PENDING", Priority.HIGH, "ALL", "v-2", "relevance", null, null, 10);
+        assertEquals(List.of(late.getId()), page.tree().getRoots().stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    void testSearchTerm_withRelevanceSort_shouldPageThroughTheRankingWithFilters() {
+        for (int i = 1; i <= 9; i++) {
+            // Longer titles rank lower; every third task is completed and filtered out below
+            createAndSaveTodo("Plan trip" + " day".repeat(i), i % 3 == 0, null, Priority.MEDIUM, null);
+        }
+        createAndSaveTodo("Unrelated", false, null, Priority.MEDIUM, null);
+
+        List<String> expected = todoService.getTodos("PENDING", null, "ALL", "plan trip", "relevance", "ASC")
+                .stream().map(Todo::getTitle).toList();
+        assertEquals(6, expected.size());
+        assertEquals("Plan trip day", expected.get(0));
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            TodoPage page = todoService.getTodoPage("PENDING", null, "ALL", "plan trip", "relevance", "ASC", cursor, 4);
+            page.tree().getRoots().forEach(todo -> paged.add(todo.getTitle()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(expected, paged);
+    }
+
     @Test
     void testSortByTitle_ASC() throws Exception {
         setupFilterSortTestData(); // Alpha, Bravo, Charlie, Delta, Echo, Foxtrot
@@ -760,10 +947,9 @@ public class TodoControllerIntegrationTest {
                         .with(org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf()))
                 .andExpect(status().isOk());
 
-        // Verify displayOrder in DB
-        assertEquals(0, todoRepository.findById(t3.getId()).get().getDisplayOrder());
-        assertEquals(1, todoRepository.findById(t1.getId()).get().getDisplayOrder());
-        assertEquals(2, todoRepository.findById(t2.getId()).get().getDisplayOrder());
+        // Verify displayOrder in DB (sparse ranks, so only their relative order matters)
+        assertTrue(displayOrderOf(t3) < displayOrderOf(t1));
+        assertTrue(displayOrderOf(t1) < displayOrderOf(t2));
 
         // Verify HTML order on GET /
         mockMvc.perform(get("/"))
@@ -790,9 +976,8 @@ public class TodoControllerIntegrationTest {
                         .with(org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf()))
                 .andExpect(status().isOk());
 
-        assertEquals(0, todoRepository.findById(s3.getId()).get().getDisplayOrder());
-        assertEquals(1, todoRepository.findById(s1.getId()).get().getDisplayOrder());
-        assertEquals(2, todoRepository.findById(s2.getId()).get().getDisplayOrder());
+        assertTrue(displayOrderOf(s3) < displayOrderOf(s1));
+        assertTrue(displayOrderOf(s1) < displayOrderOf(s2));
 
         mockMvc.perform(get("/"))
             .andExpect(status().isOk())
@@ -831,8 +1016,8 @@ public class TodoControllerIntegrationTest {
 
         // Existing tasks should be reordered based on their presence in the list
         // t1 is at index 0, t2 is at index 2 (but after 999L is skipped, it's effectively index 1)
-        assertEquals(0, todoRepository.findById(t1.getId()).get().getDisplayOrder());
-        assertEquals(1, todoRepository.findById(t2.getId()).get().getDisplayOrder());
+        assertEquals(DisplayOrderAllocator.GAP, displayOrderOf(t1));
+        assertEquals(2 * DisplayOrderAllocator.GAP, displayOrderOf(t2));
     }
 
     @Test
@@ -853,14 +1038,685 @@ public class TodoControllerIntegrationTest {
                 .andExpect(status().isOk());
 
         // topLevelTask should be reordered (it's the only one matching parentId=null context)
-        // Its new order will be 0 as it's the first valid task in the list for this context.
-        assertEquals(0, todoRepository.findById(topLevelTask.getId()).get().getDisplayOrder());
-        // subtask's displayOrder should remain unchanged (0 relative to its parent) as it was skipped
-        assertEquals(0, todoRepository.findById(subtask.getId()).get().getDisplayOrder());
+        // Its new rank will be the first one as it's the first valid task in the list for this context.
+        assertEquals(DisplayOrderAllocator.GAP, displayOrderOf(topLevelTask));
+        // subtask's displayOrder should remain unchanged as it was skipped
+        assertNull(todoRepository.findById(subtask.getId()).get().getDisplayOrder());
         assertNotNull(todoRepository.findById(subtask.getId()).get().getParent()); // ensure it's still a subtask
     }
 
 
+    @Test
+    void testReorderTasks_concurrentlyInOppositeOrders_shouldNotDeadlock() throws Exception {
+        List<Long> forward = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            forward.add(createAndSaveTodo("Concurrent Reorder " + i, false, null, Priority.MEDIUM, null).getId());
+        }
+        List<Long> backward = new ArrayList<>(forward);
+        Collections.reverse(backward);
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> reorders = new ArrayList<>();
+            for (List<Long> order : List.of(forward, backward)) {
+                reorders.add(executor.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    // Each call undoes the other thread's order, so it rewrites all twenty rows
+                    for (int i = 0; i < 25; i++) {
+                        todoService.updateTaskOrder(order, null);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> reorder : reorders) {
+                reorder.get(60, TimeUnit.SECONDS); // A deadlock surfaces as an ExecutionException
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(readModel.check().isEmpty());
+    }
+
+    // --- Tests for /todos/reposition endpoint ---
+
+    private void reposition(Todo task, Todo parent, Todo previous, Todo next) throws Exception {
+        TodoController.RepositionRequestPayload payload = new TodoController.RepositionRequestPayload();
+        payload.setTaskId(task.getId());
+        payload.setParentId(parent == null ? null : parent.getId());
+        payload.setPreviousTaskId(previous == null ? null : previous.getId());
+        payload.setNextTaskId(next == null ? null : next.getId());
+        mockMvc.perform(post("/todos/reposition")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRepositionTask_shouldOnlyChangeTheMovedTask() throws Exception {
+        Todo a = todoService.addTodo("Rank A", null, null);
+        Todo b = todoService.addTodo("Rank B", null, null);
+        Todo c = todoService.addTodo("Rank C", null, null);
+        long rankA = displayOrderOf(a);
+        long rankB = displayOrderOf(b);
+
+        reposition(c, null, a, b); // A, C, B
+
+        assertEquals(rankA, displayOrderOf(a));
+        assertEquals(rankB, displayOrderOf(b));
+        assertTrue(rankA < displayOrderOf(c) && displayOrderOf(c) < rankB);
+
+        mockMvc.perform(get("/"))
+                .andExpect(xpath("//ul[contains(@class,'sortable-list') and not(contains(@class,'subtask-list'))]/li[1][contains(.,'Rank A')]").exists())
+                .andExpect(xpath("//ul[contains(@class,'sortable-list') and not(contains(@class,'subtask-list'))]/li[2][contains(.,'Rank C')]").exists())
+                .andExpect(xpath("//ul[contains(@class,'sortable-list') and not(contains(@class,'subtask-list'))]/li[3][contains(.,'Rank B')]").exists());
+    }
+
+    @Test
+    void testRepositionTask_repeatedlyIntoSameGap_shouldKeepOrderAfterRanksRunOut() throws Exception {
+        Todo first = todoService.addTodo("First", null, null);
+        Todo last = todoService.addTodo("Last", null, null);
+        Todo previous = first;
+        // Each drop lands right after the previous one, halving the remaining gap until it is exhausted
+        for (int i = 0; i < 20; i++) {
+            Todo moved = todoService.addTodo("Moved " + i, null, null);
+            reposition(moved, null, previous, last);
+            previous = moved;
+        }
+
+        List<Todo> ordered = todoService.getTodos(null, null, null, null, "displayOrder", "ASC");
+        assertEquals("First", ordered.get(0).getTitle());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("Moved " + i, ordered.get(i + 1).getTitle());
+        }
+        assertEquals("Last", ordered.get(21).getTitle());
+    }
+
+    @Test
+    void testRepositionTask_intoAnotherList_shouldReparent() throws Exception {
+        Todo parent = todoService.addTodo("New Parent", null, null);
+        Todo existingChild = todoService.addSubTask(parent.getId(), "Existing Child", null, null).get();
+        Todo moved = todoService.addTodo("Dragged In", null, null);
+
+        reposition(moved, parent, null, existingChild);
+
+        Todo reloaded = todoRepository.findById(moved.getId()).get();
+        assertEquals(parent.getId(), reloaded.getParent().getId());
+        assertTrue(reloaded.getDisplayOrder() < displayOrderOf(existingChild));
+    }
+
+    @Test
+    void testRepositionTask_droppedLastOnAPartialPage_shouldLandRightAfterPrevious() throws Exception {
+        Todo a = todoService.addTodo("Page A", null, null);
+        Todo b = todoService.addTodo("Page B", null, null);
+        Todo c = todoService.addTodo("Page C", null, null);
+        Todo d = todoService.addTodo("Page D", null, null);
+
+        // The client only has [A, B] loaded and drops D at the end of that list
+        reposition(d, null, a, null);
+
+        List<Todo> ordered = todoService.getTodos(null, null, null, null, "displayOrder", "ASC");
+        assertEquals(List.of("Page A", "Page D", "Page B", "Page C"), ordered.stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void testRepositionTask_withAMissingNeighbour_shouldNotMoveTheTask() throws Exception {
+        Todo a = todoService.addTodo("Stays A", null, null);
+        Todo b = todoService.addTodo("Stays B", null, null);
+        long rankB = displayOrderOf(b);
+
+        TodoController.RepositionRequestPayload payload = new TodoController.RepositionRequestPayload();
+        payload.setTaskId(b.getId());
+        payload.setPreviousTaskId(999999L);
+        payload.setNextTaskId(a.getId());
+        mockMvc.perform(post("/todos/reposition")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isNotFound());
+
+        assertEquals(rankB, displayOrderOf(b));
+    }
+
+    @Test
+    void testRepositionTask_concurrentlyWithARebalance_shouldNotDeadlock() throws Exception {
+        List<Todo> siblings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            siblings.add(todoService.addTodo("Concurrent Move " + i, null, null));
+        }
+        Todo moved = siblings.get(0);
+        CyclicBarrier start = new CyclicBarrier(3);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            // Two movers of the same task, between the last two siblings and back to the front
+            for (int mover = 0; mover < 2; mover++) {
+                writers.add(executor.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    for (int i = 0; i < 25; i++) {
+                        todoService.repositionTask(moved.getId(), null, siblings.get(18).getId(), siblings.get(19).getId());
+                        todoService.repositionTask(moved.getId(), null, null, siblings.get(1).getId());
+                    }
+                    return null;
+                }));
+            }
+            writers.add(executor.submit(() -> {
+                start.await(10, TimeUnit.SECONDS);
+                for (int i = 0; i < 50; i++) {
+                    taskRankRebalancer.rebalance(null); // Locks every sibling, in list order
+                }
+                return null;
+            }));
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS); // A deadlock surfaces as an ExecutionException
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(readModel.check().isEmpty());
+    }
+
+    // --- Keyset pagination ---
+
+    @Test
+    void testKeysetPaging_shouldMatchUnpagedOrder_forEverySort() {
+        setupFilterSortTestData(); // Includes a null due date and null display orders
+        createAndSaveTodo("Task Alpha (Same Title)", false, LocalDate.now().plusDays(5), Priority.HIGH, null);
+
+        for (String dueDate : List.of("ALL", "NEXT_7_DAYS", "OVERDUE")) { // Relative filters read due-date buckets
+          for (String sortBy : List.of("displayOrder", "creationDate", "dueDate", "priority", "title")) {
+            for (String sortDir : List.of("ASC", "DESC")) {
+                List<Long> expected = todoService.getTodos("ALL", null, dueDate, null, sortBy, sortDir)
+                        .stream().map(Todo::getId).toList();
+
+                List<Long> paged = new ArrayList<>();
+                String cursor = null;
+                do {
+                    TodoPage page = todoService.getTodoPage("ALL", null, dueDate, null, sortBy, sortDir, cursor, 3);
+                    assertTrue(page.tree().getRoots().size() <= 3);
+                    page.tree().getRoots().forEach(todo -> paged.add(todo.getId()));
+                    cursor = page.nextCursor();
+                } while (cursor != null);
+
+                assertEquals(expected, paged, dueDate + " " + sortBy + " " + sortDir);
+            }
+          }
+        }
+    }
+
+    @Test
+    void testIndex_withPageSize_shouldRenderLoadMoreLinkUntilTheLastPage() throws Exception {
+        setupFilterSortTestData(); // 7 top-level tasks
+        String topLevelItems = "//ul[contains(@class,'sortable-list') and not(contains(@class,'subtask-list'))]/li";
+
+        String cursor = (String) mockMvc.perform(get("/").param("sortBy", "title").param("size", "4"))
+                .andExpect(status().isOk())
+                .andExpect(xpath(topLevelItems).nodeCount(4))
+                .andExpect(xpath(topLevelItems + "[1][contains(.,'Task Alpha')]").exists())
+                .andExpect(xpath("//a[@id='load-more' and contains(@href,'cursor=')]").exists())
+                .andReturn().getModelAndView().getModel().get("nextCursor");
+
+        mockMvc.perform(get("/").param("sortBy", "title").param("size", "4").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(xpath(topLevelItems).nodeCount(3))
+                .andExpect(xpath(topLevelItems + "[1][contains(.,'Task Echo')]").exists())
+                .andExpect(xpath("//a[@id='load-more']").doesNotExist());
+    }
+
+    @Test
+    void testIndex_withForeignOrMalformedCursor_shouldReturnBadRequest() throws Exception {
+        setupFilterSortTestData();
+        String titleCursor = todoService.getTodoPage("ALL", null, "ALL", null, "title", "ASC", null, 2).nextCursor();
+
+        mockMvc.perform(get("/").param("sortBy", "dueDate").param("cursor", titleCursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // --- Tests for the materialized path hierarchy ---
+
+    @Test
+    void testNewSubtasks_getMaterializedPathOfTheirAncestors() {
+        Todo root = createAndSaveTodo("Path Root", false, null, Priority.MEDIUM, null);
+        Todo child = createAndSaveTodo("Path Child", false, null, Priority.MEDIUM, root);
+        Todo grandChild = createAndSaveTodo("Path Grandchild", false, null, Priority.MEDIUM, child);
+
+        assertEquals("/", root.getPath());
+        assertEquals("/" + root.getId() + "/", child.getPath());
+        assertEquals("/" + root.getId() + "/" + child.getId() + "/", grandChild.getPath());
+        assertEquals(2, grandChild.getDepth());
+    }
+
+    @Test
+    void testMoveTask_shouldRebaseWholeSubtree() {
+        Todo oldRoot = createAndSaveTodo("Old Root", false, null, Priority.MEDIUM, null);
+        Todo newRoot = createAndSaveTodo("New Root", false, null, Priority.MEDIUM, null);
+        Todo moved = createAndSaveTodo("Moved", false, null, Priority.MEDIUM, oldRoot);
+        Todo movedChild = createAndSaveTodo("Moved Child", false, null, Priority.MEDIUM, moved);
+
+        todoService.moveTask(moved.getId(), newRoot.getId());
+
+        Todo reloadedChild = todoRepository.findById(movedChild.getId()).get();
+        assertEquals("/" + newRoot.getId() + "/" + moved.getId() + "/", reloadedChild.getPath());
+        assertEquals(2, reloadedChild.getDepth());
+        assertEquals(2, todoService.findDescendants(newRoot.getId()).size());
+        assertTrue(todoService.findDescendants(oldRoot.getId()).isEmpty());
+    }
+
+    @Test
+    void testCompleteSubtree_shouldCompleteAllDescendants() throws Exception {
+        Todo root = createAndSaveTodo("Subtree Root", false, null, Priority.MEDIUM, null);
+        Todo child = createAndSaveTodo("Subtree Child", false, null, Priority.MEDIUM, root);
+        Todo grandChild = createAndSaveTodo("Subtree Grandchild", false, null, Priority.MEDIUM, child);
+        Todo other = createAndSaveTodo("Unrelated", false, null, Priority.MEDIUM, null);
+
+        mockMvc.perform(post("/completeSubtree")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(root.getId())))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/"));
+
+        assertTrue(todoRepository.findById(root.getId()).get().isCompleted());
+        assertTrue(todoRepository.findById(child.getId()).get().isCompleted());
+        assertTrue(todoRepository.findById(grandChild.getId()).get().isCompleted());
+        assertFalse(todoRepository.findById(other.getId()).get().isCompleted());
+    }
+
+    @Test
+    void testAddTodos_shouldInsertParentsAndSubtasksInOneBatchedCall() {
+        List<Todo> batch = new ArrayList<>();
+        Todo root = new Todo();
+        root.setTitle("Bulk Root");
+        batch.add(root);
+        // More rows than one id allocation block, so the sequence is hit more than once
+        for (int i = 0; i < 2 * Todo.ID_ALLOCATION_SIZE + 10; i++) {
+            Todo child = new Todo();
+            child.setTitle("Bulk Child " + i);
+            child.setParent(root);
+            batch.add(child);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long insertsBefore = statistics.getEntityInsertCount();
+        long statementsBefore = statistics.getPrepareStatementCount();
+
+        List<Todo> saved = todoService.addTodos(batch);
+
+        assertEquals(batch.size(), statistics.getEntityInsertCount() - insertsBefore);
+        // Per 50 rows (hibernate.jdbc.batch_size and Todo.ID_ALLOCATION_SIZE): one JDBC batch, and at most one
+        // sequence call; ids left over from an earlier allocation need none
+        int blocks = (batch.size() + Todo.ID_ALLOCATION_SIZE - 1) / Todo.ID_ALLOCATION_SIZE;
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+        assertTrue(statements >= blocks && statements <= 2 * blocks, statements + " statements");
+        assertEquals(batch.size(), saved.stream().map(Todo::getId).distinct().count());
+        assertEquals(batch.size() - 1, todoService.findDescendants(root.getId()).size());
+        Todo lastChild = todoRepository.findById(saved.get(saved.size() - 1).getId()).get();
+        assertEquals("/" + root.getId() + "/", lastChild.getPath());
+        assertTrue(lastChild.getDisplayOrder() > todoRepository.findById(root.getId()).get().getDisplayOrder());
+    }
+
+    @Test
+    void testAddTodo_whenTheWriteBehindQueueIsFull_shouldAnswerServiceUnavailableWithRetryAfter() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Write-behind queue is full")))
+                .when(todoWriteBehind).addTodo(any(), any(), any());
+
+        mockMvc.perform(post("/add")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("title", "Not Taken"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+
+        assertEquals(0, todoRepository.count());
+    }
+
+    // --- Tests for forms posted in place (HX-Request) ---
+
+    @Test
+    void testInPlaceComplete_shouldReturnOnlyTheTaskItemAndTheSummary() throws Exception {
+        Todo parent = createAndSaveTodo("Fragment Parent", false, null, Priority.HIGH, null);
+        createAndSaveTodo("Fragment Child", false, null, Priority.LOW, parent);
+        createAndSaveTodo("Fragment Other", false, null, Priority.MEDIUM, null);
+
+        String html = mockMvc.perform(post("/completeSubtree")
+                        .header("HX-Request", "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(parent.getId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(html.strip().startsWith("<li id=\"task-item-" + parent.getId() + "\""), html);
+        assertTrue(html.contains("task-completed"));
+        assertTrue(html.contains("Fragment Child"));
+        assertTrue(html.contains("(Subtask of: <span>Fragment Parent</span>)"));
+        assertFalse(html.contains("Fragment Other")); // Nothing outside the changed subtree is rendered
+        assertFalse(html.contains("<html"));
+        assertTrue(html.contains("<div class=\"summary\" id=\"summary\" hx-swap-oob=\"true\">"));
+        assertTrue(html.contains("<strong>1</strong> pending"));
+
+        // Without the header the form still redirects, and the full page has no out-of-band marker
+        mockMvc.perform(post("/complete")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(parent.getId())))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/"))
+                .andExpect(xpath("//div[@id='summary']").exists())
+                .andExpect(xpath("//div[@id='summary']/@hx-swap-oob").doesNotExist());
+    }
+
+    @Test
+    void testInPlaceAddAndDelete_shouldReturnTheNewItemOrTheParentWithoutTheDeletedSubtask() throws Exception {
+        String added = mockMvc.perform(post("/add")
+                        .header("HX-Request", "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("title", "Fragment Added")
+                        .param("priority", "HIGH"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Todo parent = todoRepository.findAll().get(0);
+        assertTrue(added.contains("id=\"task-item-" + parent.getId() + "\""), added);
+        assertTrue(added.contains("Fragment Added"));
+
+        String withChild = mockMvc.perform(post("/task/" + parent.getId() + "/addSubTask")
+                        .header("HX-Request", "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("title", "Fragment Subtask"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(withChild.strip().startsWith("<li id=\"task-item-" + parent.getId() + "\""), withChild);
+        Todo child = todoRepository.findAll().stream().filter(todo -> todo.getParent() != null).findFirst().get();
+        assertTrue(withChild.contains("id=\"task-item-" + child.getId() + "\""));
+
+        String afterSubtaskDelete = mockMvc.perform(post("/delete")
+                        .header("HX-Request", "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(child.getId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(afterSubtaskDelete.contains("id=\"task-item-" + parent.getId() + "\""));
+        assertFalse(afterSubtaskDelete.contains("Fragment Subtask"));
+        assertFalse(afterSubtaskDelete.contains("Complete All")); // The parent has no subtasks left
+
+        String afterDelete = mockMvc.perform(post("/delete")
+                        .header("HX-Request", "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(parent.getId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertFalse(afterDelete.contains("<li"));
+        assertTrue(afterDelete.contains("<strong>0</strong> pending"));
+        assertEquals(0, todoRepository.count());
+    }
+
+    // --- Tests for the in-memory read model ---
+
+    @Test
+    void testReadModel_shouldListLikeTheDatabase_forEveryFilterAndSort() {
+        setupFilterSortTestData(); // Includes null due dates and null display orders
+        Todo parent = createAndSaveTodo("Task Alpha (Same Title)", false, LocalDate.now().plusDays(5), Priority.HIGH, null);
+        createAndSaveTodo("Task Alpha Subtask", false, null, Priority.LOW, parent);
+
+        for (String status : List.of("ALL", "PENDING", "COMPLETED")) {
+            for (String dueDate : List.of("ALL", "OVERDUE", "TODAY", "NEXT_7_DAYS", LocalDate.now().plusDays(5).toString())) {
+                for (String sortBy : List.of("displayOrder", "creationDate", "dueDate", "priority", "title", "relevance")) {
+                    for (String sortDir : List.of("ASC", "DESC")) {
+                        String searchTerm = "relevance".equals(sortBy) ? "task" : null;
+                        List<Long> fromMemory = todoService.getTodos(status, null, dueDate, searchTerm, sortBy, sortDir)
+                                .stream().map(Todo::getId).toList();
+                        // Inside a read-write transaction the service reads the database
+                        List<Long> fromDatabase = transactionTemplate.execute(tx -> {
+                            assertFalse(readModel.canServe());
+                            return todoService.getTodos(status, null, dueDate, searchTerm, sortBy, sortDir)
+                                    .stream().map(Todo::getId).toList();
+                        });
+                        assertEquals(fromDatabase, fromMemory, String.join(" ", status, dueDate, sortBy, sortDir));
+                    }
+                }
+            }
+        }
+        assertTrue(readModel.canServe());
+        assertEquals(List.of("Task Alpha Subtask"), todoService.getTodoTree("ALL", Priority.HIGH, null, null, null, null)
+                .childrenOf(parent.getId()).stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void testViewPage_shouldPageAndNestLikeTheDatabase() {
+        Todo first = createAndSaveTodo("View First", false, LocalDate.now().plusDays(1), Priority.HIGH, null);
+        Todo second = createAndSaveTodo("View Second", true, null, Priority.LOW, null);
+        Todo child = createAndSaveTodo("View Child", false, null, Priority.MEDIUM, first);
+        createAndSaveTodo("View Grandchild", false, null, Priority.LOW, child);
+        createAndSaveTodo("View Third", false, LocalDate.now(), Priority.MEDIUM, null);
+
+        for (String sortBy : List.of("displayOrder", "dueDate", "title")) {
+            List<List<TodoView>> fromMemory = viewPages(sortBy);
+            List<List<TodoView>> fromDatabase = transactionTemplate.execute(tx -> viewPages(sortBy));
+            assertEquals(fromDatabase, fromMemory, sortBy);
+            assertEquals(2, fromMemory.size(), sortBy); // Three roots, two per page
+        }
+        TodoViewPage page = todoService.getTodoViewPage("ALL", null, null, null, "displayOrder", "ASC", null, 2);
+        assertEquals(List.of(first.getId(), second.getId()), page.getRoots().stream().map(TodoView::id).toList());
+        TodoView childView = page.childrenOf(first.getId()).get(0);
+        assertEquals("View First", childView.parentTitle());
+        assertEquals("View Child", page.childrenOf(childView.id()).get(0).parentTitle());
+        assertFalse(page.hasChildren(second.getId()));
+    }
+
+    // Every page's roots, each followed by its descendants in tree order
+    private List<List<TodoView>> viewPages(String sortBy) {
+        List<List<TodoView>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            TodoViewPage page = todoService.getTodoViewPage("ALL", null, null, null, sortBy, "ASC", cursor, 2);
+            List<TodoView> views = new ArrayList<>();
+            for (TodoView root : page.getRoots()) {
+                appendSubtree(page, root, views);
+            }
+            pages.add(views);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private static void appendSubtree(TodoViewPage page, TodoView view, List<TodoView> views) {
+        views.add(view);
+        page.childrenOf(view.id()).forEach(child -> appendSubtree(page, child, views));
+    }
+
+    @Test
+    void testReadModel_shouldFollowCommittedWrites_includingBulkUpdates() throws Exception {
+        Todo root = createAndSaveTodo("Model Root", false, null, Priority.MEDIUM, null);
+        Todo child = createAndSaveTodo("Model Child", false, null, Priority.MEDIUM, root);
+        Todo grandChild = createAndSaveTodo("Model Grandchild", false, null, Priority.MEDIUM, child);
+        Todo other = createAndSaveTodo("Model Other", false, null, Priority.MEDIUM, null);
+        assertTrue(readModel.check().isEmpty());
+
+        mockMvc.perform(post("/completeSubtree")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(root.getId())))
+                .andExpect(status().is3xxRedirection());
+        assertTrue(readModel.check().isEmpty());
+        assertTrue(todoService.getTodoTree("COMPLETED", null, null, null, null, null).childrenOf(child.getId())
+                .stream().allMatch(Todo::isCompleted));
+
+        todoService.moveTask(child.getId(), other.getId()); // Rewrites the grandchild's path in bulk
+        todoService.updateTaskOrder(List.of(other.getId(), root.getId()), null); // JDBC batch
+        todoService.updateTodo(grandChild.getId(), "Model Grandchild Renamed", null, null);
+        assertTrue(readModel.check().isEmpty());
+        assertEquals(List.of(other.getId(), root.getId()),
+                todoService.getTodos("ALL", null, "ALL", null, null, null).stream().map(Todo::getId).toList());
+        assertEquals("Model Grandchild Renamed", todoService.getTodoTree("ALL", null, null, null, null, null)
+                .childrenOf(child.getId()).get(0).getTitle());
+
+        todoService.deleteTodo(other.getId()); // Cascades to the moved subtree
+        TodoReadModel.Drift drift = readModel.check();
+        assertTrue(drift.isEmpty(), drift.toString());
+        assertEquals(1, drift.rows());
+        assertEquals(List.of(root.getId()),
+                todoService.getTodos("ALL", null, "ALL", null, null, null).stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    void testReadModel_shouldIgnoreRolledBackWrites() {
+        Todo kept = createAndSaveTodo("Kept", false, null, Priority.MEDIUM, null);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            todoService.updateTodo(kept.getId(), "Renamed, then rolled back", null, null);
+            todoService.addTodo("Rolled back", null, null);
+            // The writing transaction reads its own writes from the database
+            assertEquals(2, todoService.getTodos("ALL", null, "ALL", null, null, null).size());
+            tx.setRollbackOnly();
+        });
+
+        assertTrue(readModel.check().isEmpty());
+        assertEquals(List.of("Kept"),
+                todoService.getTodos("ALL", null, "ALL", null, null, null).stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void testReadModel_shouldReloadCommittedRowsOnItsOwnConnection_whenWritersHoldEveryConnection() throws Exception {
+        int writers = 10; // spring.datasource.hikari.maximum-pool-size
+        CyclicBarrier everyConnectionHeld = new CyclicBarrier(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Long>> added = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                String title = "Pool Writer " + i;
+                added.add(executor.submit(() -> transactionTemplate.execute(tx -> {
+                    Todo todo = todoService.addTodo(title, null, null);
+                    try {
+                        everyConnectionHeld.await(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return todo.getId();
+                })));
+            }
+            // A reload taking a second pooled connection would wait out the 5 s connection-timeout, then fail
+            for (Future<Long> writer : added) {
+                assertNotNull(writer.get(4, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(readModel.check().isEmpty());
+        assertEquals(writers, todoService.getTodos("ALL", null, "ALL", "pool writer", null, null).size());
+    }
+
+    // --- Tests for the second-level cache ---
+
+    private List<Long> cachedSubTaskIds(Todo parent) {
+        return transactionTemplate.execute(status -> todoService.findTodoById(parent.getId()).get()
+                .getSubTasks().stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    void testSecondLevelCache_shouldServeRepeatedLookups_andFollowReorderCompleteAndDelete() throws Exception {
+        Todo parent = createAndSaveTodo("Cached Parent", false, null, Priority.MEDIUM, null);
+        Todo first = createAndSaveTodo("Cached First", false, null, Priority.MEDIUM, parent);
+        Todo second = createAndSaveTodo("Cached Second", false, null, Priority.MEDIUM, parent);
+        first.setDisplayOrder(1L);
+        second.setDisplayOrder(2L);
+        todoRepository.saveAll(List.of(first, second));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        mockMvc.perform(get("/edit/" + parent.getId())).andExpect(status().isOk());
+        long hits = statistics.getSecondLevelCacheHitCount();
+        mockMvc.perform(get("/edit/" + parent.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Cached Second")));
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= hits + 2, "parent and its subTasks come from the cache");
+        assertEquals(List.of(first.getId(), second.getId()), cachedSubTaskIds(parent));
+
+        todoService.updateTaskOrder(List.of(second.getId(), first.getId()), parent.getId()); // JDBC batch
+        assertEquals(List.of(second.getId(), first.getId()), cachedSubTaskIds(parent));
+
+        todoService.repositionTask(second.getId(), parent.getId(), first.getId(), null); // Entity update
+        assertEquals(List.of(first.getId(), second.getId()), cachedSubTaskIds(parent));
+
+        todoService.markCompleted(first.getId());
+        assertTrue(todoService.findTodoById(first.getId()).get().isCompleted());
+
+        todoService.deleteTodo(second.getId());
+        assertTrue(todoService.findTodoById(second.getId()).isEmpty());
+        assertEquals(List.of(first.getId()), cachedSubTaskIds(parent));
+
+        mockMvc.perform(get("/admin/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true))
+                .andExpect(jsonPath("$.regions[?(@.region == 'todo')].hits").isNotEmpty())
+                .andExpect(jsonPath("$.regions[?(@.region == 'todo.subTasks')].entries").isNotEmpty());
+    }
+
+    @Test
+    void testQueryCache_shouldNotServeResultsOlderThanAWrite() {
+        Todo root = createAndSaveTodo("Query Cache Root", false, null, Priority.MEDIUM, null);
+        Todo child = createAndSaveTodo("Query Cache Child", false, null, Priority.MEDIUM, root);
+        assertEquals(1, todoService.findDescendants(root.getId()).size());
+        assertEquals(1, todoService.findDescendants(root.getId()).size());
+
+        todoService.addSubTask(child.getId(), "Query Cache Grandchild", null, null);
+        todoService.markSubtreeCompleted(root.getId()); // Bulk update
+
+        List<Todo> descendants = todoService.findDescendants(root.getId());
+        assertEquals(2, descendants.size());
+        assertTrue(descendants.stream().allMatch(Todo::isCompleted));
+    }
+
+    @Test
+    void testFilterCache_shouldNotServeResultsOlderThanAWrite() throws Exception {
+        Todo alpha = createAndSaveTodo("Filter Cache Alpha", false, null, Priority.HIGH, null);
+        Todo bravo = createAndSaveTodo("Filter Cache Bravo", false, null, Priority.HIGH, null);
+        assertEquals(List.of(alpha.getId(), bravo.getId()), idsOf(todoService.getTodos("PENDING", Priority.HIGH, null, null, "title", "ASC")));
+        assertEquals(List.of(alpha.getId(), bravo.getId()), idsOf(todoService.getTodos("pending", Priority.HIGH, "ALL", " ", "TITLE", "asc")));
+
+        todoService.updateTodo(alpha.getId(), "Filter Cache Zulu", null, Priority.HIGH);
+        assertEquals(List.of(bravo.getId(), alpha.getId()), idsOf(todoService.getTodos("PENDING", Priority.HIGH, null, null, "title", "ASC")));
+
+        mockMvc.perform(post("/completeSubtree")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(bravo.getId())))
+                .andExpect(status().is3xxRedirection());
+        assertEquals(List.of(alpha.getId()), idsOf(todoService.getTodos("PENDING", Priority.HIGH, null, null, "title", "ASC")));
+
+        todoService.deleteTodo(alpha.getId());
+        assertTrue(todoService.getTodos("PENDING", Priority.HIGH, null, null, "title", "ASC").isEmpty());
+    }
+
+    private static List<Long> idsOf(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+
+    @Test
+    void testSummary_shouldCountLikeTheDatabase_throughWritesAndBulkUpdates() throws Exception {
+        LocalDate today = LocalDate.now();
+        Todo overdue = createAndSaveTodo("Summary Overdue", false, today.minusDays(2), Priority.HIGH, null);
+        Todo dueToday = createAndSaveTodo("Summary Today", false, today, Priority.LOW, null);
+        createAndSaveTodo("Summary Next Week", false, today.plusDays(6), Priority.HIGH, null);
+        createAndSaveTodo("Summary Later", true, today.plusDays(7), Priority.MEDIUM, null);
+        createAndSaveTodo("Summary Subtask", false, today, Priority.HIGH, dueToday); // Not counted
+        assertEquals(new TodoSummary(today, 3, 1, Map.of(Priority.HIGH, 2L, Priority.MEDIUM, 0L, Priority.LOW, 1L), 1, 1, 2),
+                todoService.getSummary());
+
+        mockMvc.perform(post("/completeSubtree") // Bulk update
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", String.valueOf(dueToday.getId())))
+                .andExpect(status().is3xxRedirection());
+        todoService.deleteTodo(overdue.getId());
+
+        TodoSummary expected = new TodoSummary(today, 1, 2, Map.of(Priority.HIGH, 1L, Priority.MEDIUM, 0L, Priority.LOW, 0L), 0, 0, 1);
+        assertEquals(expected, todoService.getSummary());
+        // Inside a read-write transaction the counts come from the database
+        assertEquals(expected, transactionTemplate.execute(status -> todoService.getSummary()));
+
+        mockMvc.perform(get("/todos/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pending").value(1))
+                .andExpect(jsonPath("$.pendingByPriority.HIGH").value(1))
+                .andExpect(jsonPath("$.dueNext7Days").value(1));
+        mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(xpath("//div[@class='summary']/a[contains(.,'pending')]/strong").string("1"))
+                .andExpect(xpath("//div[@class='summary']/a[contains(.,'completed')]/strong").string("2"));
+    }
+
     // --- Test @OrderBy on subTasks collection ---
     @Test
     void testParentEntity_loadsSubtasks_inDisplayOrder() throws Exception {
@@ -871,28 +1727,28 @@ public class TodoControllerIntegrationTest {
         Todo sub2 = new Todo();
         sub2.setTitle("Subtask B");
         sub2.setParent(parent);
-        sub2.setDisplayOrder(1); // Explicitly set order
+        sub2.setDisplayOrder(1L); // Explicitly set order
         todoRepository.save(sub2);
 
         Todo sub1 = new Todo();
         sub1.setTitle("Subtask A");
         sub1.setParent(parent);
-        sub1.setDisplayOrder(0); // Explicitly set order
+        sub1.setDisplayOrder(0L); // Explicitly set order
         todoRepository.save(sub1);
 
         Todo sub3 = new Todo();
         sub3.setTitle("Subtask C");
         sub3.setParent(parent);
-        sub3.setDisplayOrder(2); // Explicitly set order
+        sub3.setDisplayOrder(2L); // Explicitly set order
         todoRepository.save(sub3);
 
-        // Fetch the parent task
-        Optional<Todo> fetchedParentOptional = todoRepository.findById(parent.getId());
-        assertTrue(fetchedParentOptional.isPresent());
-        Todo fetchedParent = fetchedParentOptional.get();
-
-        // Access subTasks - @OrderBy should ensure they are sorted by displayOrder
-        List<Todo> subTasks = fetchedParent.getSubTasks();
+        // Fetch the parent task and access subTasks inside a transaction, since the collection is lazy
+        // @OrderBy should ensure they are sorted by displayOrder
+        List<Todo> subTasks = transactionTemplate.execute(status -> {
+            Optional<Todo> fetchedParentOptional = todoRepository.findById(parent.getId());
+            assertTrue(fetchedParentOptional.isPresent());
+            return new java.util.ArrayList<>(fetchedParentOptional.get().getSubTasks());
+        });
         assertNotNull(subTasks);
         assertEquals(3, subTasks.size());
         assertEquals("Subtask A", subTasks.get(0).getTitle()); // Expected order 0
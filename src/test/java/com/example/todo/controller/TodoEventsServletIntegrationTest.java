@@ -0,0 +1,159 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TodoEventsServletIntegrationTest {
+
+    private static final Pattern CHANGE_EVENT_ID = Pattern.compile("const CHANGE_EVENT_ID = \"([^\"]*)\"");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        todoRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void testChangeEvents_shouldStreamCommittedChanges_andReplayFromThePageRender() throws Exception {
+        Todo parent = todoService.addTodo("Feed Parent", null, null);
+        Matcher rendered = CHANGE_EVENT_ID.matcher(get("/", HttpResponse.BodyHandlers.ofString()).body());
+        assertTrue(rendered.find());
+        todoService.markCompleted(parent.getId()); // Between the render and the subscription
+
+        HttpResponse<Stream<String>> stream = get(TodoEventsServlet.PATH + "?after=" + rendered.group(1),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, stream.statusCode());
+        assertTrue(stream.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+        todoService.addSubTask(parent.getId(), "Feed Child", null, null);
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                todoService.deleteTodo(parent.getId());
+                tx.setRollbackOnly(); // Rolled back: never sent
+            });
+        } catch (Exception ignored) {
+        }
+
+        String events = String.join("\n", readUntil(stream.body().iterator(), "event:created"));
+        assertTrue(events.contains("event:completed\ndata:{\"type\":\"COMPLETED\",\"id\":" + parent.getId() + "}"), events);
+        assertTrue(events.indexOf("event:completed") < events.indexOf("event:created"));
+        assertTrue(events.contains("\"parentId\":" + parent.getId()));
+        assertFalse(events.contains("event:deleted"));
+        stream.body().close();
+
+        // An id from another run cannot be replayed
+        HttpRequest stale = HttpRequest.newBuilder(URI.create("http://localhost:" + port + TodoEventsServlet.PATH))
+                .header("Last-Event-ID", "0-1")
+                .build();
+        HttpResponse<Stream<String>> resync = httpClient.send(stale, HttpResponse.BodyHandlers.ofLines());
+        assertTrue(readUntil(resync.body().iterator(), "event:resync").contains("event:resync"));
+        resync.body().close();
+
+        String item = get("/todos/item?id=" + parent.getId(), HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(item.contains("Feed Child"));
+    }
+
+    @Test
+    void testChangeEvents_whenTheClientGoesAway_shouldCompleteWithoutAnErrorDispatch() throws Exception {
+        int before = ErrorDispatchCounter.dispatches.get();
+        for (int client = 0; client < 5; client++) {
+            HttpResponse<InputStream> stream = get(TodoEventsServlet.PATH, HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, stream.statusCode());
+            stream.body().close(); // Drops the connection mid-stream
+        }
+        // Writes to the dropped connections fail on the sender threads
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        for (int i = 0; System.nanoTime() < deadline; i++) {
+            todoService.addTodo("Nobody Listening " + i, null, null);
+            Thread.sleep(50);
+        }
+
+        assertEquals(before, ErrorDispatchCounter.dispatches.get());
+    }
+
+    // Counts the error pages rendered, as Spring's /error does for a request the container dispatches there
+    @TestConfiguration
+    static class ErrorDispatchCounter {
+        static final AtomicInteger dispatches = new AtomicInteger();
+
+        @Bean
+        DefaultErrorAttributes countingErrorAttributes() {
+            return new DefaultErrorAttributes() {
+                @Override
+                public Map<String, Object> getErrorAttributes(WebRequest webRequest, ErrorAttributeOptions options) {
+                    dispatches.incrementAndGet();
+                    return super.getErrorAttributes(webRequest, options);
+                }
+            };
+        }
+    }
+
+    private <T> HttpResponse<T> get(String pathAndQuery, HttpResponse.BodyHandler<T> bodyHandler) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery)).build(),
+                bodyHandler);
+    }
+
+    // The lines up to the end of the event with the expected line; fails if it has not come within five seconds
+    private static List<String> readUntil(Iterator<String> lines, String expected) {
+        return assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            List<String> read = new ArrayList<>();
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (line.isEmpty() && read.contains(expected)) {
+                    break;
+                }
+                read.add(line);
+            }
+            return read;
+        });
+    }
+}
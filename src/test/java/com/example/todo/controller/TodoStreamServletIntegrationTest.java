@@ -0,0 +1,132 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.model.TodoView;
+import com.example.todo.model.TodoViewPage;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TodoStreamServletIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        todoRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    @Test
+    void testStream_shouldWriteEveryPageAsNdjson() throws Exception {
+        List<Todo> tasks = new ArrayList<>();
+        for (int i = 0; i < TodoService.MAX_PAGE_SIZE * 2 + 5; i++) { // Three pages
+            Todo task = new Todo();
+            task.setTitle("Streamed " + i);
+            task.setPriority(i % 2 == 0 ? Priority.HIGH : Priority.LOW);
+            tasks.add(task);
+        }
+        List<Todo> saved = todoService.addTodos(tasks);
+        todoService.addSubTask(saved.get(0).getId(), "Streamed Child", null, null);
+
+        Response response = get("");
+        assertEquals(200, response.status());
+        assertTrue(response.contentType().startsWith(TodoTransferController.NDJSON));
+        List<String> lines = response.lines();
+        assertEquals(tasks.size(), lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("Streamed 0", first.get("title").asText());
+        assertEquals("Streamed Child", first.get("subTasks").get(0).get("title").asText());
+        assertEquals("Streamed " + (tasks.size() - 1), objectMapper.readTree(lines.get(lines.size() - 1)).get("title").asText());
+
+        assertEquals(TodoService.MAX_PAGE_SIZE + 3, get("?filterByPriority=high").lines().size());
+        assertEquals(400, get("?filterByPriority=urgent").status());
+        assertEquals(400, get("?cursor=not-a-cursor").status());
+    }
+
+    @Test
+    void pageWriter_shouldReadTheNextPageOnlyOnceTheClientTookThePrevious() throws Exception {
+        TodoService pages = mock(TodoService.class);
+        TodoViewPage firstPage = TodoViewPage.of(List.of(view(1), view(2)), Collections.emptyList(), "second");
+        when(pages.getTodoViewPage(any(), any(), any(), any(), any(), any(), eq("second"), anyInt()))
+                .thenReturn(TodoViewPage.of(List.of(view(3)), Collections.emptyList(), null));
+        ServletOutputStream out = mock(ServletOutputStream.class);
+        AsyncContext async = mock(AsyncContext.class);
+        TodoStreamServlet.ListQuery query = new TodoStreamServlet.ListQuery("ALL", null, "ALL", null, "displayOrder", "ASC");
+        TodoStreamServlet.PageWriter writer = new TodoStreamServlet(pages, objectMapper).new PageWriter(query, firstPage, async, out);
+
+        when(out.isReady()).thenReturn(true, false); // Room for one line
+        writer.onWritePossible();
+        verify(out, times(1)).write(any(byte[].class));
+        verify(pages, never()).getTodoViewPage(any(), any(), any(), any(), any(), any(), any(), anyInt());
+
+        when(out.isReady()).thenReturn(true, true, false); // The second line, then the flush fills the output
+        writer.onWritePossible();
+        verify(out, times(2)).write(any(byte[].class));
+        verify(pages, never()).getTodoViewPage(any(), any(), any(), any(), any(), any(), any(), anyInt());
+
+        when(out.isReady()).thenReturn(true);
+        writer.onWritePossible();
+        verify(pages, times(1)).getTodoViewPage(any(), any(), any(), any(), any(), any(), eq("second"), anyInt());
+        verify(out, times(3)).write(any(byte[].class));
+        verify(async).complete();
+        verify(pages, never()).getTodoViewPage(any(), any(), any(), any(), any(), any(), isNull(), anyInt());
+    }
+
+    private Response get(String query) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + TodoStreamServlet.PATH + query)).build();
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        return new Response(response.statusCode(), response.headers().firstValue("Content-Type").orElse(""),
+                response.body().toList());
+    }
+
+    private record Response(int status, String contentType, List<String> lines) {
+    }
+
+    private static TodoView view(long id) {
+        return new TodoView(id, "Page Task " + id, false, null, Priority.MEDIUM, null, null);
+    }
+}
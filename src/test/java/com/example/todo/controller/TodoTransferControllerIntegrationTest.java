@@ -0,0 +1,274 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import com.example.todo.repository.TodoRepository;
+import com.example.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+public class TodoTransferControllerIntegrationTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository.deleteAll();
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+    }
+
+    // --- Import ---
+
+    @Test
+    void testImportNdjson_shouldCreateTreeAndReportBadRows() throws Exception {
+        String body = String.join("\n",
+                "{\"ref\":\"p\",\"title\":\"Imported Parent\",\"priority\":\"HIGH\",\"dueDate\":\"2030-01-02\"}",
+                "{\"ref\":\"c\",\"parentRef\":\"p\",\"title\":\"Imported Child\"}",
+                "{\"parentRef\":\"c\",\"title\":\"Imported Grandchild\",\"completed\":true}",
+                "{\"title\":\"\"}",
+                "not json",
+                "{\"parentRef\":\"missing\",\"title\":\"Orphan\"}");
+
+        String response = mockMvc.perform(post("/todos/import")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(response.contains("{\"event\":\"error\",\"line\":4,\"message\":\"Missing title\"}"));
+        assertTrue(response.contains("\"line\":5"));
+        assertTrue(response.contains("{\"event\":\"error\",\"line\":6,\"message\":\"Unknown parentRef: missing\"}"));
+        assertTrue(response.contains("{\"event\":\"done\",\"rowsRead\":6,\"imported\":3,\"failed\":3}"));
+
+        List<Todo> parents = todoRepository.findByParentIsNull(Sort.by("id"));
+        assertEquals(1, parents.size());
+        Todo parent = parents.get(0);
+        assertEquals("Imported Parent", parent.getTitle());
+        assertEquals(Priority.HIGH, parent.getPriority());
+        assertEquals(LocalDate.of(2030, 1, 2), parent.getDueDate());
+
+        List<Todo> descendants = todoService.findDescendants(parent.getId());
+        assertEquals(2, descendants.size());
+        Todo grandchild = descendants.stream().filter(t -> t.getTitle().equals("Imported Grandchild")).findFirst().get();
+        assertEquals(2, grandchild.getDepth());
+        assertTrue(grandchild.isCompleted());
+    }
+
+    @Test
+    void testImportCsv_shouldHandleQuotesAndExistingParents() throws Exception {
+        Todo existing = todoRepository.save(new Todo(0L, "Existing Parent", false, null, null));
+        String body = "title,parentId,priority\n"
+                + "\"Buy milk, eggs\",,low\n"
+                + "\"Say \"\"hi\"\"\"," + existing.getId() + ",\n"
+                + "Lost child,999999,\n";
+
+        mockMvc.perform(post("/todos/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Parent task not found: 999999")))
+                .andExpect(content().string(containsString("\"rowsRead\":3,\"imported\":2,\"failed\":1")));
+
+        assertTrue(todoRepository.findAll().stream()
+                .anyMatch(t -> t.getTitle().equals("Buy milk, eggs") && t.getPriority() == Priority.LOW));
+        List<Todo> children = todoService.findDescendants(existing.getId());
+        assertEquals(1, children.size());
+        assertEquals("Say \"hi\"", children.get(0).getTitle());
+    }
+
+    @Test
+    void testImportCsv_shouldReportAStrayQuoteAndReadOnFromTheNextLine() throws Exception {
+        StringBuilder body = new StringBuilder("title,priority\n")
+                .append("Before,low\n")
+                .append("\"Stray quote,high\n");
+        int after = 2000; // Well over the 16k characters a record may span
+        for (int i = 0; i < after; i++) {
+            body.append("After ").append(i).append(",\n");
+        }
+        // Would close the stray quote, but only past the record length cap
+        body.append("Odd \" quote,\n");
+
+        mockMvc.perform(post("/todos/import")
+                        .contentType("text/csv")
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("{\"event\":\"error\",\"line\":3,\"message\":\"Unterminated quoted field\"}")))
+                .andExpect(content().string(containsString("{\"event\":\"error\",\"line\":" + (after + 4)
+                        + ",\"message\":\"Unterminated quoted field\"}")))
+                .andExpect(content().string(containsString("\"imported\":" + (after + 1) + ",\"failed\":2")));
+
+        assertEquals(after + 1, todoRepository.count());
+        assertTrue(todoRepository.findAll().stream().anyMatch(t -> t.getTitle().equals("After " + (after - 1))));
+    }
+
+    @Test
+    void testImport_shouldFailOnlyTheRowsTheDatabaseRefuses_withoutReportingTheCause() throws Exception {
+        String body = "{\"title\":\"Parent\",\"ref\":\"p\"}\n"
+                + "{\"title\":\"" + "x".repeat(Todo.MAX_TITLE_LENGTH + 1) + "\"}\n"
+                + "{\"title\":\"Refused\"}\n"
+                + "{\"title\":\"Child\",\"parentRef\":\"p\"}\n";
+        // Stands in for any constraint the parser cannot check ahead of the insert
+        jdbcTemplate.execute("ALTER TABLE todo ADD CONSTRAINT test_refused CHECK (title <> 'Refused')");
+        String response;
+        try {
+            response = mockMvc.perform(post("/todos/import")
+                            .contentType("application/x-ndjson")
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE todo DROP CONSTRAINT test_refused");
+        }
+
+        assertTrue(response.contains("{\"event\":\"error\",\"line\":2,\"message\":\"Title is longer than 255 characters\"}"), response);
+        assertTrue(response.contains("{\"event\":\"error\",\"line\":3,\"message\":\"Rejected by the database\"}"), response);
+        assertTrue(response.contains("\"rowsRead\":4,\"imported\":2,\"failed\":2"), response);
+        assertFalse(response.contains("Exception"), response);
+        assertFalse(response.toUpperCase().contains("TEST_REFUSED"), response); // Nor the constraint from the SQL error
+        Todo parent = todoRepository.findByParentIsNull(Sort.by("id")).get(0);
+        assertEquals("Parent", parent.getTitle());
+        assertEquals(List.of("Child"), todoService.findDescendants(parent.getId()).stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void testImport_acrossBatches_shouldResolveParentsFromEarlierBatchesAndReportProgress() throws Exception {
+        int rows = 1200;
+        StringBuilder body = new StringBuilder("{\"ref\":\"root\",\"title\":\"Batch Root\"}\n");
+        for (int i = 1; i < rows; i++) {
+            body.append("{\"parentRef\":\"root\",\"title\":\"Row ").append(i).append("\"}\n");
+        }
+
+        String response = mockMvc.perform(post("/todos/import")
+                        .contentType("application/x-ndjson")
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(2, response.lines().filter(l -> l.contains("\"event\":\"progress\"")).count());
+        assertTrue(response.contains("{\"event\":\"done\",\"rowsRead\":1200,\"imported\":1200,\"failed\":0}"));
+
+        Todo root = todoRepository.findByParentIsNull(Sort.by("id")).get(0);
+        List<Todo> children = todoService.findDescendants(root.getId());
+        assertEquals(rows - 1, children.size());
+        // Children keep file order
+        assertEquals("Row 1", children.get(0).getTitle());
+        assertEquals("Row " + (rows - 1), children.get(children.size() - 1).getTitle());
+    }
+
+    // --- Export ---
+
+    @Test
+    void testExportNdjson_shouldWriteParentsBeforeChildren() throws Exception {
+        Todo parent = todoRepository.save(new Todo(0L, "Export Parent", false, LocalDate.of(2030, 5, 6), Priority.HIGH));
+        Todo child = new Todo(0L, "Export Child", true, null, Priority.LOW);
+        child.setParent(parent);
+        child = todoRepository.save(child);
+
+        String response = mockMvc.perform(get("/todos/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", containsString("todos.ndjson")))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = response.lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals("{\"ref\":\"" + parent.getId() + "\",\"title\":\"Export Parent\",\"dueDate\":\"2030-05-06\",\"priority\":\"HIGH\",\"completed\":false}", lines.get(0));
+        assertEquals("{\"ref\":\"" + child.getId() + "\",\"parentRef\":\"" + parent.getId() + "\",\"title\":\"Export Child\",\"priority\":\"LOW\",\"completed\":true}", lines.get(1));
+    }
+
+    @Test
+    void testExportCsv_shouldQuoteTitlesAndRoundTripThroughImport() throws Exception {
+        Todo parent = todoRepository.save(new Todo(0L, "Groceries, \"weekly\"", false, null, Priority.MEDIUM));
+        for (int i = 0; i < 3; i++) {
+            Todo child = new Todo(0L, "Item " + i, false, null, Priority.LOW);
+            child.setParent(parent);
+            todoRepository.save(child);
+        }
+
+        String csv = mockMvc.perform(get("/todos/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(csv.startsWith("ref,parentRef,title,dueDate,priority,completed\n"));
+        assertTrue(csv.contains(parent.getId() + ",,\"Groceries, \"\"weekly\"\"\",,MEDIUM,false\n"));
+
+        todoRepository.deleteAll();
+        mockMvc.perform(post("/todos/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"imported\":4,\"failed\":0")));
+
+        List<Todo> roots = todoRepository.findByParentIsNull(Sort.by("id"));
+        assertEquals(1, roots.size());
+        assertEquals("Groceries, \"weekly\"", roots.get(0).getTitle());
+        List<Todo> children = todoService.findDescendants(roots.get(0).getId());
+        assertEquals(List.of("Item 0", "Item 1", "Item 2"), children.stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void testExportCsv_shouldRoundTripTitlesWithLineBreaks() throws Exception {
+        Todo parent = todoRepository.save(new Todo(0L, "Packing list:\n\nsocks, \"good\" shoes", false, null, Priority.HIGH));
+        Todo child = new Todo(0L, "Check\nweather", false, null, Priority.LOW);
+        child.setParent(parent);
+        todoRepository.save(child);
+
+        String csv = mockMvc.perform(get("/todos/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(csv.contains(",\"Packing list:\n\nsocks, \"\"good\"\" shoes\","));
+
+        todoRepository.deleteAll();
+        // A bad row after the multi-line ones is reported at the line it starts on
+        mockMvc.perform(post("/todos/import").contentType("text/csv").content(csv + ",,,,,\n\"Never closed\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("{\"event\":\"error\",\"line\":7,\"message\":\"Missing title\"}")))
+                .andExpect(content().string(containsString("{\"event\":\"error\",\"line\":8,\"message\":\"Unterminated quoted field\"}")))
+                .andExpect(content().string(containsString("\"imported\":2,\"failed\":2")));
+
+        Todo imported = todoRepository.findByParentIsNull(Sort.by("id")).get(0);
+        assertEquals("Packing list:\n\nsocks, \"good\" shoes", imported.getTitle());
+        assertEquals(Priority.HIGH, imported.getPriority());
+        assertEquals(List.of("Check\nweather"),
+                todoService.findDescendants(imported.getId()).stream().map(Todo::getTitle).toList());
+    }
+}
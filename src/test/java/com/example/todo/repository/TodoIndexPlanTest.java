@@ -0,0 +1,188 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.TodoPage;
+import com.example.todo.service.TodoService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the H2 plan of the list query for every filter and sort the index page can produce,
+ * so a dropped or reshaped index in schema.sql fails here instead of turning into a full scan.
+ * <p>
+ * Criteria literals are inlined and the statements captured, so the plans are for the exact SQL
+ * the service runs. The table is seeded and analyzed first; on an empty table H2 has no
+ * selectivity to tell the indexes apart. Search terms are not part of the matrix: TodoSearchIndex
+ * turns them into an id list before the query runs. The read model and the query cache are off, so every list
+ * read reaches the database.
+ */
+@SpringBootTest(properties = {
+        "todo.read-model.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.todo.repository.TodoIndexPlanTest$RecordingInspector"
+})
+public class TodoIndexPlanTest {
+
+    private static final int ROOTS = 1000;
+    private static final int CHILDREN_PER_ROOT = 2;
+    private static final int PAGE_SIZE = 5;
+
+    // H2 prints the chosen index as a comment after the table: /* PUBLIC.IDX_NAME: condition */
+    private static final Pattern PLAN_INDEX = Pattern.compile("/\\* PUBLIC\\.(\\w+)(?:: ([^*]*))? \\*/");
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        deleteRows();
+        // Negative ids stay clear of the todo_seq range the other tests draw from
+        LocalDate today = LocalDate.now();
+        List<Object[]> roots = new ArrayList<>();
+        List<Object[]> children = new ArrayList<>();
+        for (int i = 1; i <= ROOTS; i++) {
+            roots.add(row(-i, null, i, today));
+            for (int c = 1; c <= CHILDREN_PER_ROOT; c++) {
+                children.add(row(-(ROOTS * c + i), (long) -i, i * c, today));
+            }
+        }
+        String insert = "INSERT INTO todo (id, parent_id, title, completed, due_date, priority, creation_date,"
+                + " display_order, path, depth) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(insert, roots);
+        jdbcTemplate.batchUpdate(insert, children);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteRows();
+    }
+
+    @Test
+    void everyListFilter_shouldBeServedByAnIndex() {
+        List<String> failures = new ArrayList<>();
+        for (String status : List.of("ALL", "PENDING", "COMPLETED")) {
+            for (Priority priority : priorityFilters()) {
+                for (String due : List.of("ALL", "OVERDUE", "TODAY", "NEXT_7_DAYS")) {
+                    for (String sortBy : List.of("displayOrder", "creationDate", "dueDate", "priority", "title")) {
+                        for (String sortDir : List.of("ASC", "DESC")) {
+                            String filter = status + "/" + priority + "/" + due + " by " + sortBy + " " + sortDir;
+                            String expected = expectedIndex(status, priority, due);
+
+                            TodoPage first = listPage(status, priority, due, sortBy, sortDir, null);
+                            checkPlan(filter, expected, failures);
+                            if (first.hasMore()) {
+                                listPage(status, priority, due, sortBy, sortDir, first.nextCursor());
+                                checkPlan(filter + " (next page)", expected, failures);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " list queries are not using the expected index:\n"
+                + String.join("\n", failures));
+    }
+
+    // The narrowest index each filter combination is meant to use
+    private static String expectedIndex(String status, Priority priority, String due) {
+        if (!"ALL".equals(status) || "OVERDUE".equals(due)) {
+            return "IDX_TODO_ROOT_COMPLETED_DUE";
+        }
+        if (!"ALL".equals(due)) {
+            return "IDX_TODO_ROOT_DUE";
+        }
+        if (priority != null) {
+            return "IDX_TODO_ROOT_PRIORITY";
+        }
+        return "IDX_TODO_ROOT_ORDER";
+    }
+
+    private TodoPage listPage(String status, Priority priority, String due,
+                              String sortBy, String sortDir, String cursor) {
+        RecordingInspector.STATEMENTS.clear();
+        return todoService.getTodoPage(status, priority, due, null, sortBy, sortDir, cursor, PAGE_SIZE);
+    }
+
+    private void checkPlan(String filter, String expectedIndex, List<String> failures) {
+        String sql = RecordingInspector.STATEMENTS.stream()
+                .filter(s -> s.contains("fetch first"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No list query captured for " + filter));
+        // Everything but the row limit is inlined
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql.replace("?", String.valueOf(PAGE_SIZE + 1)), String.class);
+
+        Matcher matcher = PLAN_INDEX.matcher(plan);
+        if (!matcher.find() || plan.contains("tableScan")) {
+            failures.add(filter + ": full scan\n  " + plan.replace("\n", " "));
+            return;
+        }
+        String index = matcher.group(1);
+        String condition = matcher.group(2) == null ? "" : matcher.group(2);
+        if (!index.equals(expectedIndex) || !condition.contains("DEPTH = 0")) {
+            failures.add(filter + ": expected " + expectedIndex + " but used " + index + " (" + condition + ")");
+        }
+    }
+
+    private static List<Priority> priorityFilters() {
+        List<Priority> filters = new ArrayList<>(Arrays.asList(Priority.values()));
+        filters.add(0, null);
+        return filters;
+    }
+
+    // Spreads status, priority, due date and creation date so no single value dominates the statistics
+    private static Object[] row(long id, Long parentId, int n, LocalDate today) {
+        Priority priority = Priority.values()[n % Priority.values().length];
+        LocalDate dueDate = n % 10 == 0 ? null : today.plusDays(n % 365 - 180);
+        return new Object[]{
+                id,
+                parentId,
+                "Task " + n,
+                n % 3 == 0,
+                dueDate == null ? null : Date.valueOf(dueDate),
+                priority.name(),
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(n * 37L)),
+                (long) n << 16,
+                parentId == null ? "/" : "/" + -parentId + "/",
+                parentId == null ? 0 : 1
+        };
+    }
+
+    private void deleteRows() {
+        jdbcTemplate.update("UPDATE todo SET parent_id = NULL");
+        jdbcTemplate.update("DELETE FROM todo");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.repository.TodoNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DueDateIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+    private static TodoNode node(long id, boolean completed, LocalDate dueDate, Long parentId) {
+        return new TodoNode(id, "Task " + id, completed, dueDate, Priority.MEDIUM, parentId, null, id, "/", parentId == null ? 0 : 1);
+    }
+
+    private final List<TodoNode> nodes = List.of(
+            node(1, false, TODAY.minusDays(30), null),
+            node(2, true, TODAY.minusDays(1), null),
+            node(3, false, TODAY, null),
+            node(4, true, TODAY, null),
+            node(5, false, TODAY.plusDays(6), null),
+            node(6, false, TODAY.plusDays(7), null),
+            node(7, false, null, null),
+            node(8, false, TODAY.minusDays(1), 3L)); // Subtask
+
+    private DueDateIndex indexed() {
+        DueDateIndex index = new DueDateIndex();
+        nodes.forEach(index::add);
+        return index;
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    @Test
+    void rootIds_shouldSelectTheSameTasksAsTheFilter() {
+        DueDateIndex index = indexed();
+        for (String status : List.of("ALL", "PENDING", "COMPLETED")) {
+            for (String dueDate : List.of("OVERDUE", "TODAY", "NEXT_7_DAYS", TODAY.minusDays(1).toString())) {
+                TodoFilter filter = TodoFilter.of(status, null, dueDate, null, TODAY);
+                List<Long> expected = nodes.stream().filter(filter::test).map(TodoNode::id).toList();
+                assertEquals(expected, sorted(index.rootIds(filter)), status + " " + dueDate);
+            }
+        }
+        assertNull(index.rootIds(TodoFilter.of("PENDING", null, "ALL", null, TODAY)));
+    }
+
+    @Test
+    void rootIds_shouldFollowRemovedTasks_andTheNextDay() {
+        DueDateIndex index = indexed();
+        index.remove(nodes.get(0));
+        index.remove(nodes.get(2));
+        index.add(node(3, true, TODAY, null)); // Completed
+
+        assertEquals(List.of(), index.rootIds(TodoFilter.of("ALL", null, "OVERDUE", null, TODAY)));
+        assertEquals(List.of(3L, 4L), sorted(index.rootIds(TodoFilter.of("ALL", null, "TODAY", null, TODAY))));
+        assertEquals(List.of(6L), index.rootIds(TodoFilter.of("ALL", null, "TODAY", null, TODAY.plusDays(7))));
+        assertEquals(List.of(5L, 6L), sorted(index.rootIds(TodoFilter.of("PENDING", null, "OVERDUE", null, TODAY.plusDays(8)))));
+    }
+}
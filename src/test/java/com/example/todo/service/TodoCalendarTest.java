@@ -0,0 +1,63 @@
+package com.example.todo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TodoCalendarTest {
+
+    private Instant now = Instant.parse("2024-03-10T23:59:59Z");
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    };
+
+    @Test
+    void advance_shouldMoveToTheClocksDay_andPublishEachNewDayOnce() {
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        TodoCalendar calendar = new TodoCalendar(clock, eventPublisher);
+
+        calendar.advance();
+        assertEquals(LocalDate.of(2024, 3, 10), calendar.today());
+        verifyNoInteractions(eventPublisher);
+
+        now = Instant.parse("2024-03-11T00:00:00Z");
+        calendar.advance();
+        calendar.advance();
+        assertEquals(LocalDate.of(2024, 3, 11), calendar.today());
+        verify(eventPublisher).publishEvent(new DayStartedEvent(LocalDate.of(2024, 3, 11)));
+    }
+
+    @Test
+    void today_shouldMoveToTheClocksDay_whenTheScheduledAdvanceHasNotRun() {
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        TodoCalendar calendar = new TodoCalendar(clock, eventPublisher);
+
+        now = Instant.parse("2024-03-11T00:00:01Z");
+        assertEquals(LocalDate.of(2024, 3, 11), calendar.today());
+        assertEquals(LocalDate.of(2024, 3, 11), calendar.today());
+        calendar.advance(); // A late tick finds nothing left to do
+        verify(eventPublisher).publishEvent(new DayStartedEvent(LocalDate.of(2024, 3, 11)));
+    }
+}
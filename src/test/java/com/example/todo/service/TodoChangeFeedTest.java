@@ -0,0 +1,237 @@
+package com.example.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TodoChangeFeedTest {
+
+    // Sender tasks are only run when a test says so
+    private final List<Runnable> pendingSends = new ArrayList<>();
+    private TodoChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        feed = new TodoChangeFeed(new ObjectMapper(), 2, 10, 60_000, pendingSends::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void publish_insideATransaction_shouldWaitForTheCommit() {
+        String before = feed.lastEventId();
+        TransactionSynchronizationManager.initSynchronization();
+
+        feed.publish(TodoChange.completed(1L));
+        assertEquals(before, feed.lastEventId());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNotEquals(before, feed.lastEventId());
+    }
+
+    @Test
+    void publish_shouldDropASubscriberWhoseBufferIsFull() {
+        subscribe(null);
+        subscribe(null);
+        assertEquals(2, feed.subscriberCount());
+
+        feed.publish(TodoChange.created(1L, null));
+        feed.publish(TodoChange.created(2L, null));
+        assertEquals(2, feed.subscriberCount());
+        assertEquals(2, pendingSends.size()); // One sender per subscriber, however many events are waiting
+
+        feed.publish(TodoChange.created(3L, null)); // A third event does not fit a buffer of 2
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void heartbeat_shouldCountAgainstTheBufferToo() {
+        subscribe(null);
+        feed.heartbeat();
+        feed.heartbeat();
+        assertEquals(1, feed.subscriberCount());
+        feed.heartbeat();
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void subscribe_shouldReplayWhatFitsTheBuffer_andOtherwiseResync() {
+        String start = feed.lastEventId();
+        feed.publish(TodoChange.deleted(1L));
+        feed.publish(TodoChange.deleted(2L));
+
+        subscribe(start); // Two missed events, two buffer slots
+        assertEquals(1, pendingSends.size());
+        assertEquals(1, feed.subscriberCount());
+
+        feed.publish(TodoChange.deleted(3L));
+        assertEquals(0, feed.subscriberCount()); // The replay filled its buffer
+        pendingSends.clear();
+
+        subscribe(start); // Three missed events: a single resync event instead
+        subscribe("another-instance-1");
+        subscribe(feed.lastEventId());
+        assertEquals(3, feed.subscriberCount());
+        assertEquals(2, pendingSends.size()); // The up-to-date subscriber has nothing to send yet
+    }
+
+    @Test
+    void publishAll_shouldSendABigBatchAsOneResync() {
+        subscribe(null);
+        String start = feed.lastEventId();
+
+        feed.publishAll(List.of(TodoChange.created(1L, null), TodoChange.created(2L, null), TodoChange.created(3L, null)));
+        assertEquals(1, feed.subscriberCount()); // Three events would not have fit a buffer of 2
+        assertEquals(sequence(start) + 1, sequence(feed.lastEventId()));
+
+        String before = feed.lastEventId();
+        feed.publishAll(List.of(TodoChange.deleted(1L))); // Half a buffer or less goes out as it is
+        assertEquals(sequence(before) + 1, sequence(feed.lastEventId()));
+        assertEquals(1, feed.subscriberCount());
+    }
+
+    @Test
+    void publish_shouldNotWaitForAStalledSubscriber() {
+        Client stalled = subscribe(null);
+        Client reading = subscribe(null);
+        stalled.ready = false;
+        stalled.writePossible();
+        reading.writePossible();
+
+        feed.publish(TodoChange.deleted(1L));
+        feed.publish(TodoChange.deleted(2L));
+        runPendingSends(); // Returns at once for the stalled one: its events wait for the container's call
+        assertEquals(2, reading.events());
+        assertEquals(0, stalled.events());
+
+        stalled.ready = true;
+        stalled.writePossible();
+        assertEquals(2, stalled.events());
+        assertTrue(stalled.text().startsWith("id:"), stalled.text());
+        assertTrue(stalled.text().contains("\nevent:deleted\ndata:{\"type\":\"DELETED\",\"id\":2}\n\n"), stalled.text());
+        assertEquals(2, feed.subscriberCount());
+    }
+
+    @Test
+    void drop_shouldCompleteTheRequest() {
+        Client client = subscribe(null);
+        feed.heartbeat();
+        feed.heartbeat();
+        feed.heartbeat();
+        assertEquals(0, feed.subscriberCount());
+        assertTrue(client.completed());
+    }
+
+    private static long sequence(String eventId) {
+        return Long.parseLong(eventId.substring(eventId.lastIndexOf('-') + 1));
+    }
+
+    @Test
+    void change_shouldSerializeCompactly() throws Exception {
+        assertEquals("{\"type\":\"CREATED\",\"id\":5}",
+                new ObjectMapper().writeValueAsString(TodoChange.created(5L, null)));
+        assertEquals("{\"type\":\"REORDERED\",\"id\":5,\"parentId\":1,\"nextId\":7}",
+                new ObjectMapper().writeValueAsString(TodoChange.reordered(5L, 1L, null, 7L)));
+        assertEquals("reordered", TodoChange.Type.REORDERED.eventName());
+    }
+
+    private Client subscribe(String lastEventId) {
+        Client client = new Client();
+        feed.subscribe(lastEventId, client.async, client);
+        return client;
+    }
+
+    private void runPendingSends() {
+        while (!pendingSends.isEmpty()) {
+            pendingSends.remove(0).run();
+        }
+    }
+
+    // A connection whose output takes writes while ready is set, as the container would
+    private static final class Client extends ServletOutputStream {
+        final MockAsyncContext async = new MockAsyncContext(new MockHttpServletRequest(), new MockHttpServletResponse());
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        WriteListener listener;
+        boolean ready = true;
+        private boolean complete;
+
+        Client() {
+            async.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    complete = true;
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+
+        void writePossible() {
+            try {
+                listener.onWritePossible();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        String text() {
+            return written.toString(StandardCharsets.UTF_8);
+        }
+
+        int events() {
+            return text().split("\n\n", -1).length - 1;
+        }
+
+        boolean completed() {
+            return complete;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.repository.TodoNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TodoCountersTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+    private static TodoNode node(long id, boolean completed, LocalDate dueDate, Priority priority, Long parentId) {
+        return new TodoNode(id, "Task " + id, completed, dueDate, priority, parentId, null, id, "/", parentId == null ? 0 : 1);
+    }
+
+    private static final List<TodoNode> NODES = List.of(
+            node(1, false, TODAY.minusDays(3), Priority.HIGH, null),
+            node(2, false, TODAY, Priority.LOW, null),
+            node(3, false, TODAY.plusDays(1), Priority.HIGH, null),
+            node(4, false, TODAY.plusDays(6), Priority.MEDIUM, null),
+            node(5, false, TODAY.plusDays(7), null, null),
+            node(6, false, null, Priority.LOW, null),
+            node(7, true, TODAY.minusDays(1), Priority.HIGH, null),
+            node(8, false, TODAY, Priority.HIGH, 2L)); // Subtask
+
+    private static TodoCounters counted(LocalDate today) {
+        TodoCounters counters = new TodoCounters(today);
+        NODES.forEach(node -> counters.add(node, 1));
+        return counters;
+    }
+
+    @Test
+    void summary_shouldCountPendingTopLevelTasksPerPriorityAndDueDate() {
+        assertEquals(new TodoSummary(TODAY, 6, 1, Map.of(Priority.HIGH, 2L, Priority.MEDIUM, 1L, Priority.LOW, 2L), 1, 1, 3),
+                counted(TODAY).summary());
+    }
+
+    @Test
+    void add_withNegativeCount_shouldUndoTheRow() {
+        TodoCounters counters = counted(TODAY);
+        counters.add(NODES.get(1), -1);
+        counters.add(new TodoNode(2, "Task 2", true, TODAY, Priority.LOW, null, null, 2L, "/", 0), 1); // Completed
+        assertEquals(new TodoSummary(TODAY, 5, 2, Map.of(Priority.HIGH, 2L, Priority.MEDIUM, 1L, Priority.LOW, 1L), 1, 0, 2),
+                counters.summary());
+    }
+
+    @Test
+    void rollOver_shouldMatchCountingFromScratch_onEveryFollowingDay() {
+        TodoCounters counters = counted(TODAY);
+        for (int day = 1; day <= 10; day++) {
+            LocalDate today = TODAY.plusDays(day);
+            counters.rollOver(today);
+            assertEquals(counted(today).summary(), counters.summary(), "Day " + day);
+        }
+    }
+
+    @Test
+    void rollOver_shouldRecount_afterALongJumpOrGoingBack() {
+        TodoCounters counters = counted(TODAY);
+        counters.rollOver(TODAY.plusDays(400));
+        assertEquals(counted(TODAY.plusDays(400)).summary(), counters.summary());
+        assertEquals(5, counters.summary().overdue()); // Every pending task with a due date
+
+        counters.rollOver(TODAY.minusDays(1));
+        assertEquals(counted(TODAY.minusDays(1)).summary(), counters.summary());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TodoFilterCacheTest {
+
+    private final AtomicLong version = new AtomicLong();
+    private LocalDate today;
+    private TodoFilterCache cache;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.of(2024, 3, 10);
+        cache = new TodoFilterCache(10, version::get, () -> today);
+    }
+
+    @Test
+    void key_shouldNormalizeEquivalentParameters() {
+        TodoFilterCache.Key key = TodoFilterCache.Key.of(null, null, null, null, null, null);
+        assertEquals(key, TodoFilterCache.Key.of("ALL", null, "all", "   ", "manual", "asc"));
+        assertEquals(key, TodoFilterCache.Key.of("bogus", null, "SOMEDAY", "", "unknownField", null));
+        assertEquals(key, TodoFilterCache.Key.of(null, null, null, null, "relevance", "ASC")); // No search, no ranking
+
+        assertEquals(TodoFilterCache.Key.of("PENDING", Priority.HIGH, "TODAY", " Crème ", "TITLE", "DESC"),
+                TodoFilterCache.Key.of("pending", Priority.HIGH, "today", "CREME", "title", "desc"));
+        assertNotEquals(TodoFilterCache.Key.of("PENDING", null, null, null, null, null),
+                TodoFilterCache.Key.of("COMPLETED", null, null, null, null, null));
+        assertEquals("2024-03-15", TodoFilterCache.Key.of(null, null, "2024-03-15", null, null, null).dueDate());
+    }
+
+    @Test
+    void get_shouldMissOnceAWriteHasBeenApplied() {
+        TodoFilterCache.Key key = TodoFilterCache.Key.of(null, null, null, null, "title", null);
+        cache.put(key, cache.version(), List.of(3L, 1L, 2L));
+        assertEquals(List.of(3L, 1L, 2L), cache.get(key).orElseThrow());
+
+        version.incrementAndGet();
+        assertTrue(cache.get(key).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_shouldIgnoreResultsComputedBeforeTheLastWrite() {
+        TodoFilterCache.Key key = TodoFilterCache.Key.of(null, null, null, null, null, null);
+        long computedUnder = cache.version();
+        version.incrementAndGet();
+        cache.put(key, computedUnder, List.of(1L));
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    void get_shouldExpireRelativeDueDateFiltersWhenTheDayChanges() {
+        TodoFilterCache.Key relative = TodoFilterCache.Key.of(null, null, "TODAY", null, null, null);
+        TodoFilterCache.Key fixedDate = TodoFilterCache.Key.of(null, null, "2024-03-10", null, null, null);
+        cache.put(relative, cache.version(), List.of(1L));
+        cache.put(fixedDate, cache.version(), List.of(1L));
+
+        assertEquals(List.of(1L), cache.get(relative).orElseThrow());
+        today = today.plusDays(1); // TodoCalendar has moved on
+        assertTrue(cache.get(relative).isEmpty());
+        assertEquals(List.of(1L), cache.get(fixedDate).orElseThrow());
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedResults_toStayWithinTheIdBudget() {
+        TodoFilterCache.Key first = TodoFilterCache.Key.of("PENDING", null, null, null, null, null);
+        TodoFilterCache.Key second = TodoFilterCache.Key.of("COMPLETED", null, null, null, null, null);
+        TodoFilterCache.Key third = TodoFilterCache.Key.of(null, Priority.LOW, null, null, null, null);
+        cache.put(first, cache.version(), List.of(1L, 2L, 3L, 4L));
+        cache.put(second, cache.version(), List.of(5L, 6L, 7L, 8L));
+        cache.get(first); // Now the most recently used
+
+        cache.put(third, cache.version(), List.of(9L, 10L, 11L));
+        assertTrue(cache.get(second).isEmpty());
+        assertTrue(cache.get(first).isPresent());
+        assertTrue(cache.get(third).isPresent());
+
+        cache.put(second, cache.version(), List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L));
+        assertTrue(cache.get(second).isEmpty()); // Over the budget, never cached
+        assertEquals(2, cache.size());
+    }
+}
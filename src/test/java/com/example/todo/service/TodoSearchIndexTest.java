@@ -0,0 +1,112 @@
+package com.example.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TodoSearchIndexTest {
+
+    private TodoSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TodoSearchIndex();
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, 100).stream().map(TodoSearchIndex.Hit::id).toList();
+    }
+
+    @Test
+    void terms_shouldSplitOnNonAlphanumerics_andFoldCaseAndAccents() {
+        assertEquals(List.of("buy", "creme", "brulee", "x2", "today"),
+                TodoSearchIndex.terms("Buy CRÈME-brûlée (x2), today!"));
+        assertEquals(List.of(), TodoSearchIndex.terms("  ...  "));
+        assertEquals(List.of(), TodoSearchIndex.terms(null));
+    }
+
+    @Test
+    void search_shouldMatchWordPrefixes_andRequireEveryTerm() {
+        index.put(1, "Buy groceries: milk, eggs");
+        index.put(2, "Buy a gift");
+        index.put(3, "Milkshake recipe");
+
+        assertEquals(List.of(1L), ids("gro mil"));
+        assertEquals(List.of(1L, 2L), ids("buy").stream().sorted().toList());
+        assertEquals(List.of(), ids("buy recipe"));
+        assertEquals(List.of(), ids("ilk")); // Not a word start
+        assertEquals(List.of(), ids("   "));
+    }
+
+    @Test
+    void search_shouldRankExactWordsAbovePrefixes_andShorterTitlesFirst() {
+        index.put(1, "Yearly budget review");
+        index.put(2, "Budget");
+        index.put(3, "Budgeting course");
+        index.put(4, "Call the plumber");
+
+        // Exact beats prefix at similar lengths; among exact matches the shorter title is the better match
+        assertEquals(List.of(2L, 1L, 3L), ids("budget"));
+    }
+
+    @Test
+    void search_shouldWeighRareTermsAboveCommonOnes() {
+        for (long id = 1; id <= 20; id++) {
+            index.put(id, "Team meeting " + id);
+        }
+        index.put(21, "Team team offsite");
+        index.put(22, "Team offsite offsite");
+
+        // Same length, one repeated word each; repeating the rare word counts for more
+        assertEquals(List.of(22L, 21L), ids("team offsite"));
+    }
+
+    @Test
+    void search_shouldReturnTheBestHitsFirst_upToTheLimit() {
+        for (long id = 1; id <= 10; id++) {
+            index.put(id, "Report " + "draft ".repeat((int) id));
+        }
+        List<TodoSearchIndex.Hit> hits = index.search("report", 3);
+        assertEquals(3, hits.size());
+        // Equal terms, shorter title wins: 1 has the fewest words
+        assertEquals(List.of(1L, 2L, 3L), hits.stream().map(TodoSearchIndex.Hit::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void search_shouldRankEqualScoresByIdAndCountTasksWithRepeatedTermsOnce() {
+        index.put(7, "Pay rent");
+        index.put(3, "Pay rent");
+        index.put(5, "Pay pay pay");
+
+        List<TodoSearchIndex.Hit> hits = index.search("pa", 10);
+        assertEquals(3, hits.size());
+        assertEquals(5L, hits.get(0).id()); // Three prefix matches
+        assertEquals(List.of(3L, 7L), List.of(hits.get(1).id(), hits.get(2).id()));
+    }
+
+    @Test
+    void put_shouldReplaceTheOldTitle_andRemoveShouldUnindex() {
+        index.put(1, "Write report");
+        index.put(1, "Review slides");
+        assertEquals(List.of(), ids("report"));
+        assertEquals(List.of(1L), ids("slides"));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertEquals(List.of(), ids("slides"));
+        assertEquals(0, index.size());
+        index.remove(1); // Unknown ids are ignored
+    }
+
+    @Test
+    void put_withBlankTitle_shouldUnindexTheTask() {
+        index.put(1, "Something");
+        index.put(1, "");
+        assertEquals(List.of(), ids("something"));
+        assertEquals(0, index.size());
+    }
+}
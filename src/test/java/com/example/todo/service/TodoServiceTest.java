@@ -2,6 +2,11 @@ package com.example.todo.service;
 
 import com.example.todo.model.Priority;
 import com.example.todo.model.Todo;
+import com.example.todo.model.TodoSummary;
+import com.example.todo.model.TodoTree;
+import com.example.todo.repository.SiblingRank;
+import com.example.todo.repository.TodoCount;
+import com.example.todo.repository.TodoNode;
 import com.example.todo.repository.TodoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +15,7 @@ import org.mockito.InjectMocks;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -17,6 +23,7 @@ import java.time.LocalDate;
 import java.util.ArrayList; // Added this import
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,9 +33,41 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class TodoServiceTest {
 
+    private static final long GAP = DisplayOrderAllocator.GAP;
+
     @Mock
     private TodoRepository todoRepository;
 
+    @Mock
+    private DisplayOrderAllocator displayOrderAllocator;
+
+    @Mock
+    private TaskRankRebalancer taskRankRebalancer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TodoSearchIndex searchIndex;
+
+    @Mock
+    private TodoTrigramIndex trigramIndex;
+
+    @Mock
+    private TodoReadModel readModel;
+
+    @Mock
+    private TodoFilterCache filterCache;
+
+    @Mock
+    private TodoCalendar calendar;
+
+    @Mock
+    private TodoChangeFeed changeFeed;
+
+    @Mock
+    private TodoSearchIndexer searchIndexer;
+
     @InjectMocks
     private TodoService todoService;
 
@@ -42,6 +81,7 @@ public class TodoServiceTest {
     void setUp() {
         specCaptor = ArgumentCaptor.forClass(Specification.class);
         sortCaptor = ArgumentCaptor.forClass(Sort.class);
+        lenient().when(calendar.today()).thenReturn(LocalDate.now());
         // REMOVED: when(todoRepository.findAll(specCaptor.capture(), sortCaptor.capture())).thenReturn(new ArrayList<>());
 
         // Setup for existing tests, can be refactored if those tests change significantly
@@ -262,27 +302,123 @@ public class TodoServiceTest {
         verify(todoRepository, times(1)).findAll(any(Specification.class), any(Sort.class));
     }
 
+    @Test
+    void getTodoTree_shouldAttachDescendantsToTheirParents() {
+        Todo root = new Todo(); root.setId(1L); root.setTitle("Root");
+        Todo child = new Todo(); child.setId(2L); child.setParent(root);
+        Todo grandChild = new Todo(); grandChild.setId(3L); grandChild.setParent(child);
+        Todo secondChild = new Todo(); secondChild.setId(4L); secondChild.setParent(root);
+
+        when(todoRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(List.of(root));
+        when(todoRepository.findDescendantsOf(List.of(1L))).thenReturn(List.of(child, secondChild, grandChild));
+
+        TodoTree tree = todoService.getTodoTree(null, null, null, null, null, null);
+
+        assertEquals(List.of(root), tree.getRoots());
+        assertEquals(List.of(child, secondChild), tree.childrenOf(1L));
+        assertEquals(List.of(grandChild), tree.childrenOf(2L));
+        assertTrue(tree.childrenOf(3L).isEmpty());
+        verify(todoRepository, times(1)).findDescendantsOf(List.of(1L));
+    }
+
+    @Test
+    void getTodoTree_whenNoRootsMatch_shouldNotQueryDescendants() {
+        when(todoRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(new ArrayList<>());
+
+        TodoTree tree = todoService.getTodoTree("COMPLETED", null, null, null, null, null);
+
+        assertTrue(tree.getRoots().isEmpty());
+        verify(todoRepository, never()).findDescendantsOf(any());
+    }
+
+    @Test
+    void getTodos_withCachedResult_shouldLoadTheCachedIdsInTheirOrder() {
+        TodoFilterCache.Key key = TodoFilterCache.Key.of("all", null, "", " ", "Title", "desc");
+        when(filterCache.get(key)).thenReturn(Optional.of(List.of(2L, 1L)));
+        when(todoRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(todo1, todo2));
+
+        List<Todo> todos = todoService.getTodos(null, null, null, null, "title", "DESC");
+
+        assertEquals(List.of(todo2, todo1), todos);
+        verify(todoRepository, never()).findAll(any(Specification.class), any(Sort.class));
+        verify(filterCache, never()).put(any(), anyLong(), any());
+    }
+
+    @Test
+    void getTodos_withoutCachedResult_shouldCacheTheIdsUnderTheVersionReadBeforeTheQuery() {
+        when(filterCache.version()).thenReturn(7L);
+        when(todoRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(List.of(todo2, todo1));
+
+        todoService.getTodos("PENDING", null, null, null, null, null);
+
+        verify(filterCache).put(TodoFilterCache.Key.of("PENDING", null, null, null, null, null), 7L, List.of(2L, 1L));
+    }
+
+    @Test
+    void getSummary_whenReadModelCannotServe_shouldFoldTheGroupedCounts() {
+        LocalDate today = LocalDate.now();
+        when(todoRepository.countTopLevelByStatusPriorityAndDueDate()).thenReturn(List.of(
+                new TodoCount(false, Priority.HIGH, today.minusDays(1), 2),
+                new TodoCount(false, Priority.LOW, today, 1),
+                new TodoCount(false, null, null, 4),
+                new TodoCount(true, Priority.HIGH, today, 3)));
+
+        TodoSummary summary = todoService.getSummary();
+
+        assertEquals(new TodoSummary(today, 7, 3, Map.of(Priority.HIGH, 2L, Priority.MEDIUM, 0L, Priority.LOW, 1L), 2, 1, 1),
+                summary);
+        verify(readModel, never()).summary();
+    }
+
+    @Test
+    void getEntityTag_shouldFollowTheVersion_andTheDayForRelativeDueDates() {
+        when(readModel.version()).thenReturn(4L, 4L, 4L, 5L);
+        String all = todoService.getEntityTag("ALL");
+        String overdue = todoService.getEntityTag("overdue");
+        String isoDate = todoService.getEntityTag("2030-01-02");
+        String afterWrite = todoService.getEntityTag(null);
+
+        assertTrue(all.matches("\"[0-9a-z]+-4\""), all);
+        assertEquals(all.replace("\"", "") + "-" + LocalDate.now(), overdue.replace("\"", ""));
+        assertEquals(all, isoDate);
+        assertNotEquals(all, afterWrite);
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    void getTodoTree_whenReadModelCanServe_shouldNotQueryTheDatabase() {
+        Todo root = new Todo(); root.setId(1L); root.setTitle("Root");
+        TodoTree fromMemory = TodoTree.of(List.of(root), List.of());
+        when(readModel.canServe()).thenReturn(true);
+        when(readModel.findRoots(any(TodoFilter.class), eq("title"), eq(true), isNull(), eq(Integer.MAX_VALUE)))
+                .thenReturn(List.of(root));
+        when(readModel.treeOf(List.of(root))).thenReturn(fromMemory);
+
+        TodoTree tree = todoService.getTodoTree("PENDING", null, null, null, "title", "DESC");
+
+        assertSame(fromMemory, tree);
+        verifyNoInteractions(todoRepository);
+    }
+
     // --- End of tests for getTodos ---
 
     // --- Tests for displayOrder in addTodo and addSubTask ---
     @Test
-    void addTodo_shouldSetCorrectDisplayOrder_forNewTopLevelTask() {
+    void addTodo_shouldAppendWithAllocatedRank_withoutMaxQuery() {
         ArgumentCaptor<Todo> todoCaptor = ArgumentCaptor.forClass(Todo.class);
         when(todoRepository.save(todoCaptor.capture())).thenAnswer(inv -> inv.getArgument(0));
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(DisplayOrderAllocator.GAP, 2 * DisplayOrderAllocator.GAP);
 
-        // First task
-        when(todoRepository.findMaxDisplayOrderByParentIsNull()).thenReturn(null);
         todoService.addTodo("First Task", null, null);
-        assertEquals(0, todoCaptor.getValue().getDisplayOrder());
+        assertEquals(DisplayOrderAllocator.GAP, todoCaptor.getValue().getDisplayOrder());
 
-        // Subsequent task
-        when(todoRepository.findMaxDisplayOrderByParentIsNull()).thenReturn(1);
-        todoService.addTodo("Third Task", null, null);
-        assertEquals(2, todoCaptor.getValue().getDisplayOrder());
+        todoService.addTodo("Second Task", null, null);
+        assertEquals(2 * DisplayOrderAllocator.GAP, todoCaptor.getValue().getDisplayOrder());
+        verify(todoRepository, never()).findMaxDisplayOrder();
     }
 
     @Test
-    void addSubTask_shouldSetCorrectDisplayOrder_forNewSubTask() {
+    void addSubTask_shouldAppendWithAllocatedRank() {
         Long parentId = 1L;
         Todo parentTodo = new Todo();
         parentTodo.setId(parentId);
@@ -290,106 +426,218 @@ public class TodoServiceTest {
 
         ArgumentCaptor<Todo> todoCaptor = ArgumentCaptor.forClass(Todo.class);
         when(todoRepository.save(todoCaptor.capture())).thenAnswer(inv -> inv.getArgument(0));
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(5 * DisplayOrderAllocator.GAP);
 
-        // First subtask for this parent
-        when(todoRepository.findMaxDisplayOrderByParent(parentTodo)).thenReturn(null);
         todoService.addSubTask(parentId, "First Subtask", null, null);
-        assertEquals(0, todoCaptor.getValue().getDisplayOrder());
+        assertEquals(5 * DisplayOrderAllocator.GAP, todoCaptor.getValue().getDisplayOrder());
         assertEquals(parentTodo, todoCaptor.getValue().getParent());
+    }
 
-        // Subsequent subtask for this parent
-        when(todoRepository.findMaxDisplayOrderByParent(parentTodo)).thenReturn(0);
-        todoService.addSubTask(parentId, "Second Subtask", null, null);
-        assertEquals(1, todoCaptor.getValue().getDisplayOrder());
-        assertEquals(parentTodo, todoCaptor.getValue().getParent());
+    @Test
+    void addTodos_shouldAppendTasksWithoutRank_andSaveThemInOneCall() {
+        Todo ranked = new Todo(); ranked.setTitle("Ranked"); ranked.setDisplayOrder(7L);
+        Todo unranked = new Todo(); unranked.setTitle("Unranked");
+        List<Todo> todos = List.of(ranked, unranked);
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(3 * GAP);
+        when(todoRepository.saveAll(todos)).thenReturn(todos);
+
+        assertEquals(todos, todoService.addTodos(todos));
+
+        assertEquals(7L, ranked.getDisplayOrder());
+        assertEquals(3 * GAP, unranked.getDisplayOrder());
+        verify(displayOrderAllocator, times(1)).nextAppendRank();
+        verify(todoRepository, never()).save(any(Todo.class));
     }
 
-    // --- Tests for updateTaskOrder ---
+    // --- Tests for repositionTask ---
     @Test
-    void updateTaskOrder_shouldReorderTopLevelTasks() {
-        Todo t1 = new Todo(); t1.setId(1L); t1.setDisplayOrder(0); t1.setParent(null);
-        Todo t2 = new Todo(); t2.setId(2L); t2.setDisplayOrder(1); t2.setParent(null);
-        Todo t3 = new Todo(); t3.setId(3L); t3.setDisplayOrder(2); t3.setParent(null);
+    void repositionTask_betweenNeighbours_shouldWriteOnlyTheMovedTask() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(900_000L);
+        Todo previous = new Todo(); previous.setId(1L); previous.setDisplayOrder(100L);
+        Todo next = new Todo(); next.setId(2L); next.setDisplayOrder(300L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L, 2L))).thenReturn(List.of(previous, next, moved));
+        when(todoRepository.save(moved)).thenReturn(moved);
 
-        when(todoRepository.findById(1L)).thenReturn(Optional.of(t1));
-        when(todoRepository.findById(2L)).thenReturn(Optional.of(t2));
-        when(todoRepository.findById(3L)).thenReturn(Optional.of(t3));
+        todoService.repositionTask(3L, null, 1L, 2L);
 
-        ArgumentCaptor<List<Todo>> saveAllCaptor = ArgumentCaptor.forClass(List.class);
+        assertEquals(200L, moved.getDisplayOrder());
+        verify(todoRepository, times(1)).save(moved);
+        verify(todoRepository, never()).saveAll(any());
+        verifyNoInteractions(taskRankRebalancer, eventPublisher);
+    }
 
-        todoService.updateTaskOrder(Arrays.asList(3L, 1L, 2L), null);
+    @Test
+    void repositionTask_toStartOfList_shouldRankBelowNext() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(900_000L);
+        Todo next = new Todo(); next.setId(2L); next.setDisplayOrder(300L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 2L))).thenReturn(List.of(next, moved));
+        when(todoRepository.save(moved)).thenReturn(moved);
 
-        verify(todoRepository).saveAll(saveAllCaptor.capture());
-        List<Todo> savedTasks = saveAllCaptor.getValue();
+        todoService.repositionTask(3L, null, null, 2L);
 
-        assertEquals(3, savedTasks.size());
-        assertEquals(0, savedTasks.stream().filter(t -> t.getId() == 3L).findFirst().get().getDisplayOrder());
-        assertEquals(1, savedTasks.stream().filter(t -> t.getId() == 1L).findFirst().get().getDisplayOrder());
-        assertEquals(2, savedTasks.stream().filter(t -> t.getId() == 2L).findFirst().get().getDisplayOrder());
+        assertEquals(300L - DisplayOrderAllocator.GAP, moved.getDisplayOrder());
     }
 
     @Test
-    void updateTaskOrder_shouldReorderSubtasks_forSpecificParent() {
+    void repositionTask_toEndOfList_shouldTakeAnAppendRank() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(100L);
+        Todo previous = new Todo(); previous.setId(1L); previous.setDisplayOrder(300L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L))).thenReturn(List.of(moved, previous));
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(999L);
+        when(todoRepository.save(moved)).thenReturn(moved);
+
+        todoService.repositionTask(3L, null, 1L, null);
+
+        assertEquals(999L, moved.getDisplayOrder());
+    }
+
+    @Test
+    void repositionTask_whenNeighboursAreAdjacent_shouldRebalanceInline() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(900_000L);
+        Todo previous = new Todo(); previous.setId(1L); previous.setDisplayOrder(100L);
+        Todo next = new Todo(); next.setId(2L); next.setDisplayOrder(101L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L, 2L))).thenReturn(List.of(previous, next, moved));
+        when(todoRepository.save(moved)).thenReturn(moved);
+        when(taskRankRebalancer.rebalance(null)).thenAnswer(inv -> {
+            previous.setDisplayOrder(DisplayOrderAllocator.GAP);
+            next.setDisplayOrder(2 * DisplayOrderAllocator.GAP);
+            return 2;
+        });
+
+        todoService.repositionTask(3L, null, 1L, 2L);
+
+        verify(taskRankRebalancer).rebalance(null);
+        assertEquals(DisplayOrderAllocator.GAP + DisplayOrderAllocator.GAP / 2, moved.getDisplayOrder());
+    }
+
+    @Test
+    void repositionTask_whenGapBecomesCrowded_shouldScheduleBackgroundRebalance() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(900_000L);
+        Todo previous = new Todo(); previous.setId(1L); previous.setDisplayOrder(100L);
+        Todo next = new Todo(); next.setId(2L); next.setDisplayOrder(110L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L, 2L))).thenReturn(List.of(previous, next, moved));
+        when(todoRepository.save(moved)).thenReturn(moved);
+
+        todoService.repositionTask(3L, null, 1L, 2L);
+
+        assertEquals(105L, moved.getDisplayOrder());
+        verify(eventPublisher).publishEvent(new SiblingRanksCrowdedEvent(null));
+        verify(taskRankRebalancer, never()).rebalance(any());
+    }
+
+    @Test
+    void repositionTask_withNeighbourFromAnotherList_shouldBeRejected() {
         Todo parent = new Todo(); parent.setId(10L);
-        Todo s1 = new Todo(); s1.setId(1L); s1.setDisplayOrder(0); s1.setParent(parent);
-        Todo s2 = new Todo(); s2.setId(2L); s2.setDisplayOrder(1); s2.setParent(parent);
-        Todo s3 = new Todo(); s3.setId(3L); s3.setDisplayOrder(2); s3.setParent(parent);
+        Todo moved = new Todo(); moved.setId(3L);
+        Todo foreign = new Todo(); foreign.setId(1L); foreign.setParent(parent);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L))).thenReturn(List.of(foreign, moved));
+
+        assertThrows(IllegalArgumentException.class, () -> todoService.repositionTask(3L, null, 1L, null));
+        verify(todoRepository, never()).save(any(Todo.class));
+    }
 
-        when(todoRepository.findById(1L)).thenReturn(Optional.of(s1));
-        when(todoRepository.findById(2L)).thenReturn(Optional.of(s2));
-        when(todoRepository.findById(3L)).thenReturn(Optional.of(s3));
+    @Test
+    void repositionTask_withMissingNeighbour_shouldNotMoveTheTask() {
+        Todo moved = new Todo(); moved.setId(3L); moved.setDisplayOrder(100L);
+        when(todoRepository.findAllByIdForUpdate(List.of(3L, 1L))).thenReturn(List.of(moved));
 
-        ArgumentCaptor<List<Todo>> saveAllCaptor = ArgumentCaptor.forClass(List.class);
+        assertTrue(todoService.repositionTask(3L, null, 1L, null).isEmpty());
+        assertEquals(100L, moved.getDisplayOrder());
+        verify(todoRepository, never()).save(any(Todo.class));
+    }
+
+    // --- Tests for updateTaskOrder ---
+    @Test
+    void updateTaskOrder_shouldReorderTopLevelTasks() {
+        List<Long> order = Arrays.asList(3L, 1L, 2L);
+        when(todoRepository.findSiblingRanks(order)).thenReturn(List.of(
+                new SiblingRank(1L, null, 0L),
+                new SiblingRank(2L, null, GAP),
+                new SiblingRank(3L, null, 2 * GAP)));
 
-        todoService.updateTaskOrder(Arrays.asList(3L, 1L, 2L), 10L);
+        ArgumentCaptor<Map<Long, Long>> ranksCaptor = ArgumentCaptor.forClass(Map.class);
 
-        verify(todoRepository).saveAll(saveAllCaptor.capture());
-        List<Todo> savedTasks = saveAllCaptor.getValue();
+        todoService.updateTaskOrder(order, null);
 
-        assertEquals(3, savedTasks.size());
-        assertEquals(0, savedTasks.stream().filter(t -> t.getId() == 3L).findFirst().get().getDisplayOrder());
-        assertEquals(1, savedTasks.stream().filter(t -> t.getId() == 1L).findFirst().get().getDisplayOrder());
-        assertEquals(2, savedTasks.stream().filter(t -> t.getId() == 2L).findFirst().get().getDisplayOrder());
+        verify(todoRepository).updateDisplayOrders(ranksCaptor.capture());
+        Map<Long, Long> newRanks = ranksCaptor.getValue();
+
+        assertEquals(3, newRanks.size());
+        assertEquals(GAP, newRanks.get(3L));
+        assertEquals(2 * GAP, newRanks.get(1L));
+        assertEquals(3 * GAP, newRanks.get(2L));
+        verify(displayOrderAllocator).observe(3 * GAP);
+        verify(todoRepository, never()).findById(any());
     }
 
     @Test
-    void updateTaskOrder_shouldOnlyUpdateTasksMatchingParentContext_andSkipUnchangedOrders() {
-        Todo t1 = new Todo(); t1.setId(1L); t1.setDisplayOrder(0); t1.setParent(null); // Matches parentId = null
-        Todo p1 = new Todo(); p1.setId(10L);
-        Todo s1 = new Todo(); s1.setId(2L); s1.setDisplayOrder(1); s1.setParent(p1); // Does not match parentId = null
-        Todo t2 = new Todo(); t2.setId(3L); t2.setDisplayOrder(1); t2.setParent(null); // Matches, but order is already correct for its new position if it were [t1,t2]
+    void updateTaskOrder_withRepeatedIds_shouldKeepTheFirstPositionWithoutLeavingAHole() {
+        when(todoRepository.findSiblingRanks(List.of(3L, 1L, 2L))).thenReturn(List.of(
+                new SiblingRank(1L, null, 0L),
+                new SiblingRank(2L, null, GAP),
+                new SiblingRank(3L, null, 2 * GAP)));
+
+        ArgumentCaptor<Map<Long, Long>> ranksCaptor = ArgumentCaptor.forClass(Map.class);
+
+        todoService.updateTaskOrder(Arrays.asList(3L, 1L, 3L, 2L, 1L), null);
 
-        when(todoRepository.findById(1L)).thenReturn(Optional.of(t1));
-        when(todoRepository.findById(2L)).thenReturn(Optional.of(s1)); // s1 will be skipped due to parent mismatch
-        when(todoRepository.findById(3L)).thenReturn(Optional.of(t2));
+        verify(todoRepository).updateDisplayOrders(ranksCaptor.capture());
+        assertEquals(Map.of(3L, GAP, 1L, 2 * GAP, 2L, 3 * GAP), ranksCaptor.getValue());
+        verify(displayOrderAllocator).observe(3 * GAP);
+    }
 
+    @Test
+    void updateTaskOrder_shouldReorderSubtasks_forSpecificParent() {
+        List<Long> order = Arrays.asList(3L, 1L, 2L);
+        when(todoRepository.findSiblingRanks(order)).thenReturn(List.of(
+                new SiblingRank(1L, 10L, 0L),
+                new SiblingRank(2L, 10L, GAP),
+                new SiblingRank(3L, 10L, 2 * GAP)));
 
-        ArgumentCaptor<List<Todo>> saveAllCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Map<Long, Long>> ranksCaptor = ArgumentCaptor.forClass(Map.class);
 
-        // Attempt to reorder [t1, s1, t2] as top-level. s1 should be ignored.
-        // If t1 is now at index 0 (new order 0), and its old order was 0, it's skipped by saveAll.
-        // If t2 is now at index 1 (new order 1, after s1 is filtered out conceptually), and its old order was 1, it's also skipped.
-        // Let's make one of them change order: reorder [t2, t1] as top-level
-        // t2 (id 3) new order 0, old order 1 -> should be updated
-        // t1 (id 1) new order 1, old order 0 -> should be updated
-        todoService.updateTaskOrder(Arrays.asList(3L, 1L), null);
+        todoService.updateTaskOrder(order, 10L);
 
-        verify(todoRepository).saveAll(saveAllCaptor.capture());
-        List<Todo> savedTasks = saveAllCaptor.getValue();
+        verify(todoRepository).updateDisplayOrders(ranksCaptor.capture());
+        Map<Long, Long> newRanks = ranksCaptor.getValue();
 
-        assertEquals(2, savedTasks.size()); // Only t1 and t2 should be considered for update
-        assertTrue(savedTasks.stream().anyMatch(t -> t.getId() == 1L && t.getDisplayOrder() == 1));
-        assertTrue(savedTasks.stream().anyMatch(t -> t.getId() == 3L && t.getDisplayOrder() == 0));
+        assertEquals(3, newRanks.size());
+        assertEquals(GAP, newRanks.get(3L));
+        assertEquals(2 * GAP, newRanks.get(1L));
+        assertEquals(3 * GAP, newRanks.get(2L));
+    }
+
+    @Test
+    void updateTaskOrder_shouldOnlyUpdateTasksMatchingParentContext_andSkipUnchangedOrders() {
+        // id 2 is a subtask of 10 and does not match parentId = null; id 99 does not exist
+        List<Long> order = Arrays.asList(3L, 2L, 99L, 1L);
+        when(todoRepository.findSiblingRanks(order)).thenReturn(List.of(
+                new SiblingRank(1L, null, 0L),
+                new SiblingRank(2L, 10L, GAP),
+                new SiblingRank(3L, null, 2 * GAP)));
+
+        ArgumentCaptor<Map<Long, Long>> ranksCaptor = ArgumentCaptor.forClass(Map.class);
+
+        // Ranks are assigned as (position + 1) * GAP among the tasks that match the parent context.
+        // Reorder [t2, t1] as top-level:
+        // t2 (id 3) new rank GAP, old rank 2 * GAP -> should be updated
+        // t1 (id 1) new rank 2 * GAP, old rank 0 -> should be updated
+        todoService.updateTaskOrder(order, null);
+
+        verify(todoRepository).updateDisplayOrders(ranksCaptor.capture());
+        Map<Long, Long> newRanks = ranksCaptor.getValue();
+
+        assertEquals(Map.of(3L, GAP, 1L, 2 * GAP), newRanks); // Only t1 and t2 should be considered for update
 
         // Test case where order doesn't change for any matched task
         reset(todoRepository); // Reset mocks for new verification
-        t1.setDisplayOrder(0); // Reset to original for this part of test
-        t2.setDisplayOrder(1);
-        when(todoRepository.findById(1L)).thenReturn(Optional.of(t1));
-        when(todoRepository.findById(3L)).thenReturn(Optional.of(t2));
+        List<Long> unchanged = Arrays.asList(1L, 3L);
+        when(todoRepository.findSiblingRanks(unchanged)).thenReturn(List.of(
+                new SiblingRank(1L, null, GAP), // Already at the ranks a [t1, t2] order produces
+                new SiblingRank(3L, null, 2 * GAP)));
 
-        todoService.updateTaskOrder(Arrays.asList(1L, 3L), null); // Orders match existing orders
-        verify(todoRepository, never()).saveAll(any()); // saveAll should not be called
+        todoService.updateTaskOrder(unchanged, null); // Orders match existing orders
+        verify(todoRepository, never()).updateDisplayOrders(any()); // Nothing should be written
     }
 
 
@@ -398,15 +646,14 @@ public class TodoServiceTest {
         LocalDate dueDate = LocalDate.now().plusDays(5);
         Priority priority = Priority.HIGH;
 
-        // Mock findMaxDisplayOrderByParentIsNull for this specific test, as it's called by addTodo
-        when(todoRepository.findMaxDisplayOrderByParentIsNull()).thenReturn(null);
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(GAP);
 
         Todo todoToSave = new Todo();
         todoToSave.setTitle("New Task");
         todoToSave.setCompleted(false);
         todoToSave.setDueDate(dueDate);
         todoToSave.setPriority(priority);
-        todoToSave.setDisplayOrder(0); // What we expect it to be set to
+        todoToSave.setDisplayOrder(GAP); // What we expect it to be set to
 
         // Capture the argument to save, then return it, checking displayOrder
         ArgumentCaptor<Todo> todoCaptor = ArgumentCaptor.forClass(Todo.class);
@@ -420,9 +667,9 @@ public class TodoServiceTest {
         assertFalse(savedTodo.isCompleted());
         assertEquals(dueDate, savedTodo.getDueDate());
         assertEquals(priority, savedTodo.getPriority());
-        assertEquals(0, savedTodo.getDisplayOrder()); // Verify displayOrder
+        assertEquals(GAP, savedTodo.getDisplayOrder()); // Verify displayOrder
         verify(todoRepository, times(1)).save(any(Todo.class));
-        verify(todoRepository, times(1)).findMaxDisplayOrderByParentIsNull();
+        verify(displayOrderAllocator, times(1)).nextAppendRank();
 
     }
 
@@ -457,10 +704,27 @@ public class TodoServiceTest {
     }
 
     @Test
-    void deleteTodo_shouldCallDeleteById() {
-        doNothing().when(todoRepository).deleteById(1L);
-        todoService.deleteTodo(1L);
-        verify(todoRepository, times(1)).deleteById(1L);
+    void deleteTodo_shouldDeleteTheSubtreeWithoutLoadingIt_andReportTheDeletedRows() {
+        TodoNode node = new TodoNode(5L, "Project", false, null, Priority.MEDIUM, 1L, null, GAP, "/1/", 1);
+        when(todoRepository.findNodesByIdIn(List.of(5L))).thenReturn(List.of(node));
+        when(todoRepository.deleteSubtrees(Map.of(5L, "/1/5/"))).thenReturn(List.of(5L, 7L, 9L));
+
+        todoService.deleteTodo(5L);
+
+        verify(todoRepository).deleteSubtrees(Map.of(5L, "/1/5/"));
+        verify(todoRepository, never()).deleteById(anyLong());
+        verify(todoRepository, never()).findById(anyLong());
+        verify(readModel).changed(5L);
+        verify(searchIndexer).deleted(List.of(5L, 7L, 9L));
+        verify(changeFeed).publish(TodoChange.deleted(5L));
+    }
+
+    @Test
+    void deleteTodo_shouldDoNothing_whenTheTaskIsMissing() {
+        when(todoRepository.findNodesByIdIn(List.of(5L))).thenReturn(List.of());
+        todoService.deleteTodo(5L);
+        verify(todoRepository, never()).deleteSubtrees(any());
+        verifyNoInteractions(changeFeed);
     }
 
     @Test
@@ -634,4 +898,62 @@ public class TodoServiceTest {
         assertEquals(Priority.MEDIUM, savedSubtaskOptional.get().getPriority());
         verify(todoRepository, times(1)).save(any(Todo.class));
     }
+    // --- Tests for the materialized path hierarchy ---
+
+    @Test
+    void markSubtreeCompleted_shouldCompleteTaskAndUpdateDescendantsByPath() {
+        todo1.setPath("/");
+        when(todoRepository.findById(1L)).thenReturn(Optional.of(todo1));
+
+        todoService.markSubtreeCompleted(1L);
+
+        assertTrue(todo1.isCompleted());
+        verify(todoRepository).save(todo1);
+        verify(todoRepository).markCompletedByPathLike("/1/%");
+        verify(readModel).subtreeChanged("/1/");
+    }
+
+    @Test
+    void moveTask_shouldRebaseSubtreeUnderNewParent() {
+        Todo task = new Todo(); task.setId(5L); task.setPath("/1/"); task.setDepth(1);
+        Todo newParent = new Todo(); newParent.setId(7L); newParent.setPath("/3/"); newParent.setDepth(1);
+        when(todoRepository.findById(5L)).thenReturn(Optional.of(task));
+        when(todoRepository.findById(7L)).thenReturn(Optional.of(newParent));
+        when(displayOrderAllocator.nextAppendRank()).thenReturn(4 * GAP);
+        when(todoRepository.save(task)).thenReturn(task);
+
+        Optional<Todo> moved = todoService.moveTask(5L, 7L);
+
+        assertTrue(moved.isPresent());
+        assertEquals(newParent, task.getParent());
+        assertEquals("/3/7/", task.getPath());
+        assertEquals(2, task.getDepth());
+        assertEquals(4 * GAP, task.getDisplayOrder());
+        verify(todoRepository).rebaseSubtree("/1/5/%", "/3/7/5/", "/1/5/".length() + 1, 1);
+    }
+
+    @Test
+    void moveTask_toTopLevel_shouldResetPath() {
+        Todo task = new Todo(); task.setId(5L); task.setPath("/1/"); task.setDepth(1);
+        when(todoRepository.findById(5L)).thenReturn(Optional.of(task));
+        when(todoRepository.save(task)).thenReturn(task);
+
+        todoService.moveTask(5L, null);
+
+        assertNull(task.getParent());
+        assertEquals("/", task.getPath());
+        assertEquals(0, task.getDepth());
+        verify(todoRepository).rebaseSubtree("/1/5/%", "/5/", "/1/5/".length() + 1, -1);
+    }
+
+    @Test
+    void moveTask_underOwnDescendant_shouldBeRejected() {
+        Todo task = new Todo(); task.setId(5L); task.setPath("/1/"); task.setDepth(1);
+        Todo descendant = new Todo(); descendant.setId(9L); descendant.setPath("/1/5/8/"); descendant.setDepth(3);
+        when(todoRepository.findById(5L)).thenReturn(Optional.of(task));
+        when(todoRepository.findById(9L)).thenReturn(Optional.of(descendant));
+
+        assertThrows(IllegalArgumentException.class, () -> todoService.moveTask(5L, 9L));
+        verify(todoRepository, never()).rebaseSubtree(any(), any(), anyInt(), anyInt());
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TodoTrigramIndexTest {
+
+    private TodoTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TodoTrigramIndex();
+    }
+
+    @Test
+    void find_shouldMatchFragmentsAnywhere_ignoringCaseAndAccents() {
+        index.put(1, "Ticket ABC-1234 follow up");
+        index.put(2, "Réserver l'hôtel");
+        index.put(3, "Fix login bug");
+
+        assertEquals(List.of(1L), index.find("c-12", 10));
+        assertEquals(List.of(1L), index.find("  4 FOLL ", 10));
+        assertEquals(List.of(2L), index.find("hotel", 10));
+        assertEquals(List.of(3L), index.find("in bu", 10));
+        assertEquals(List.of(), index.find("c-13", 10));
+    }
+
+    @Test
+    void find_shouldVerifyCandidatesAgainstTheTitle() {
+        index.put(1, "abcab");
+        index.put(2, "xabcabcx");
+
+        // Title 1 has every trigram of "abcabc" (abc, bca, cab) but not the fragment itself
+        assertEquals(List.of(2L), index.find("abcabc", 10));
+    }
+
+    @Test
+    void find_shouldReturnTheOldestMatchesFirst_upToTheLimit() {
+        for (long id = 10; id >= 1; id--) {
+            index.put(id, "Order #" + (1000 + id));
+        }
+        assertEquals(List.of(1L, 2L, 3L), index.find("der #10", 3));
+        assertEquals(List.of(), index.find("der", 0));
+    }
+
+    @Test
+    void find_withFragmentShorterThanATrigram_shouldMatchNothing() {
+        index.put(1, "Ab");
+        index.put(2, "Abc");
+        assertEquals(List.of(), index.find("ab", 10));
+        assertEquals(List.of(), index.find(null, 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void put_shouldReplaceTheOldTitle_andRemoveShouldUnindex() {
+        index.put(1, "Invoice 20931");
+        index.put(1, "Invoice 20932");
+        assertEquals(List.of(), index.find("0931", 10));
+        assertEquals(List.of(1L), index.find("0932", 10));
+
+        index.remove(1);
+        assertEquals(List.of(), index.find("voice", 10));
+        assertEquals(0, index.size());
+        index.remove(1); // Unknown ids are ignored
+    }
+}
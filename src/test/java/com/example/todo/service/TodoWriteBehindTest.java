@@ -0,0 +1,114 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Priority;
+import com.example.todo.model.Todo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class TodoWriteBehindTest {
+
+    private TodoService todoService;
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        todoService = mock(TodoService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    // Enabled, but without its flusher thread: the tests flush by hand
+    private TodoWriteBehind writeBehind(int maxBatch, int queueCapacity) {
+        return new TodoWriteBehind(todoService, transactionManager, true, maxBatch, 5, queueCapacity);
+    }
+
+    @Test
+    void flush_shouldCoalesceTheWritesToATask_andCommitTheGroupOnce() {
+        Todo renamed = new Todo();
+        when(todoService.updateTodo(anyLong(), any(), any(), any())).thenReturn(Optional.of(renamed));
+        Todo added = new Todo();
+        when(todoService.addTodo(any(), any(), any())).thenReturn(added);
+        TodoWriteBehind writeBehind = writeBehind(100, 100);
+
+        CompletableFuture<Optional<Todo>> firstEdit = writeBehind.updateTodo(1L, "First", null, Priority.HIGH);
+        CompletableFuture<Void> completion = writeBehind.markCompleted(1L);
+        CompletableFuture<Optional<Todo>> secondEdit = writeBehind.updateTodo(1L, "Second", LocalDate.of(2030, 1, 1), null);
+        CompletableFuture<Void> otherCompletion = writeBehind.markCompleted(2L);
+        CompletableFuture<Todo> add = writeBehind.addTodo("New", null, null);
+        doAnswer(invocation -> {
+            assertFalse(add.isDone()); // Not before the commit
+            return null;
+        }).when(transactionManager).commit(any());
+
+        writeBehind.flushQueued();
+
+        verify(transactionManager, times(1)).commit(any());
+        // The last title and due date, the last priority given
+        verify(todoService).updateTodo(1L, "Second", LocalDate.of(2030, 1, 1), Priority.HIGH);
+        verify(todoService, times(1)).updateTodo(anyLong(), any(), any(), any());
+        verify(todoService, times(1)).markCompleted(1L);
+        verify(todoService, times(1)).markCompleted(2L);
+        assertSame(renamed, firstEdit.join().get());
+        assertSame(renamed, secondEdit.join().get());
+        assertTrue(completion.isDone() && otherCompletion.isDone());
+        assertSame(added, add.join());
+    }
+
+    @Test
+    void flush_shouldRetryEachWriteAlone_whenTheGroupFails() {
+        doThrow(new IllegalStateException("Bad row")).when(todoService).markCompleted(2L);
+        TodoWriteBehind writeBehind = writeBehind(100, 100);
+
+        CompletableFuture<Void> good = writeBehind.markCompleted(1L);
+        CompletableFuture<Void> bad = writeBehind.markCompleted(2L);
+        writeBehind.flushQueued();
+
+        assertNull(good.join());
+        CompletionException failure = assertThrows(CompletionException.class, bad::join);
+        assertEquals("Bad row", failure.getCause().getMessage());
+        verify(transactionManager, times(3)).getTransaction(any()); // The group, then each write
+        verify(transactionManager, times(1)).commit(any()); // Only the good write's
+    }
+
+    @Test
+    void flush_shouldCommitAtMostMaxBatchWritesPerGroup() {
+        TodoWriteBehind writeBehind = writeBehind(2, 100);
+        for (long id = 1; id <= 5; id++) {
+            writeBehind.markCompleted(id);
+        }
+        writeBehind.flushQueued();
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void submit_shouldRejectWrites_whenTheQueueIsFull() {
+        TodoWriteBehind writeBehind = writeBehind(100, 1);
+        CompletableFuture<Void> queued = writeBehind.markCompleted(1L);
+        CompletableFuture<Void> rejected = writeBehind.markCompleted(2L);
+
+        assertFalse(queued.isDone());
+        CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+    }
+
+    @Test
+    void disabled_shouldWriteRightAway() {
+        TodoWriteBehind writeBehind = new TodoWriteBehind(todoService, transactionManager, false, 100, 5, 100);
+        assertTrue(writeBehind.markCompleted(3L).isDone());
+        verify(todoService).markCompleted(3L);
+        verifyNoInteractions(transactionManager);
+    }
+}